@@ -0,0 +1,20 @@
+package com.quanna.gateway.accesslog;
+
+import java.net.InetSocketAddress;
+
+/**
+ * One exchange as captured on the event loop. Formatting is deferred to the writer thread.
+ * {@code cancelled} exchanges ended before a response was complete (client abort, hedge loser);
+ * their status is 499.
+ */
+public record AccessLogRecord(
+        long timestampMillis,
+        String method,
+        String path,
+        InetSocketAddress remoteAddress,
+        String routeId,
+        int status,
+        long durationNanos,
+        Throwable error,
+        boolean cancelled) {
+}
@@ -0,0 +1,154 @@
+package com.quanna.gateway.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log written off the event loop.
+ *
+ * Request threads only decide whether to sample and offer one {@link AccessLogRecord} to a ring
+ * buffer. A dedicated writer thread drains the buffer and formats the lines. Errors and slow
+ * exchanges are always kept, the rest is sampled at {@code access-log.sample-rate}. When the
+ * buffer is full the record is dropped and counted instead of applying back pressure to traffic.
+ *
+ * An idle writer parks until a producer finds it parked after adding a record, so an idle gateway
+ * doesn't wake it up. The writer announces it is about to park before checking the buffer once
+ * more, and producers check that flag after publishing, so one of them always sees the other.
+ */
+@Component
+@ConditionalOnProperty(name = "access-log.mode", havingValue = "async")
+public class AsyncAccessLogger implements SmartLifecycle, MeterBinder {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("access-log");
+
+    private final AccessLogRingBuffer buffer;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final StringBuilder line = new StringBuilder(256);
+
+    private volatile boolean running;
+    private volatile boolean parked;
+    private volatile Thread writer;
+
+    public AsyncAccessLogger(AccessLogProperties properties) {
+        this.buffer = new AccessLogRingBuffer(properties.getBufferSize());
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowThresholdMs());
+    }
+
+    /**
+     * Cheap check on the request thread, so unsampled exchanges never allocate a record.
+     */
+    public boolean shouldLog(int status, long durationNanos, Throwable error, boolean cancelled) {
+        return error != null
+                || cancelled
+                || status >= 500
+                || durationNanos >= slowThresholdNanos
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    public void log(AccessLogRecord record) {
+        if (!buffer.offer(record)) {
+            dropped.incrementAndGet();
+        } else if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("gateway.access.log.written", written, AtomicLong::get)
+                .description("Access log records written by the background writer")
+                .register(registry);
+
+        FunctionCounter.builder("gateway.access.log.dropped", dropped, AtomicLong::get)
+                .description("Access log records dropped because the ring buffer was full")
+                .register(registry);
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (!drain()) {
+                parked = true;
+                if (running && buffer.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+        drain();
+    }
+
+    private boolean drain() {
+        boolean drained = false;
+        AccessLogRecord record;
+        while ((record = buffer.poll()) != null) {
+            write(record);
+            drained = true;
+        }
+        return drained;
+    }
+
+    private void write(AccessLogRecord record) {
+        line.setLength(0);
+        line.append("time=").append(Instant.ofEpochMilli(record.timestampMillis()))
+                .append(" method=").append(record.method())
+                .append(" path=").append(record.path())
+                .append(" status=").append(record.status())
+                .append(" duration_ms=").append(TimeUnit.NANOSECONDS.toMillis(record.durationNanos()))
+                .append(" route=").append(record.routeId())
+                .append(" client=").append(record.remoteAddress() != null
+                        ? record.remoteAddress().getHostString() : "-");
+        if (record.cancelled()) {
+            line.append(" cancelled=true");
+        }
+        if (record.error() != null) {
+            line.append(" error=\"").append(record.error()).append('"');
+        }
+
+        try {
+            accessLog.info(line.toString());
+            written.incrementAndGet();
+        } catch (RuntimeException e) {
+            dropped.incrementAndGet();
+        }
+    }
+}
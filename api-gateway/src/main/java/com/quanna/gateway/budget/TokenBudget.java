@@ -0,0 +1,64 @@
+package com.quanna.gateway.budget;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps extra attempts (hedges, retries) at a fraction of original requests.
+ *
+ * Every original request deposits {@code ratio} of a token, every extra attempt withdraws a whole one,
+ * and the balance never exceeds {@code maxTokens}. Under a steady stream extra load stays below
+ * {@code ratio}; after an idle period up to {@code maxTokens} attempts can be spent at once. When the
+ * upstream degrades and every request wants an extra attempt, the budget runs dry instead of
+ * multiplying the load. Tokens are kept in thousandths so the hot path is one CAS on a long.
+ */
+public class TokenBudget {
+
+    private static final long SCALE = 1000;
+
+    private final AtomicLong balance;
+    private final long deposit;
+    private final long maxBalance;
+
+    public TokenBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || maxTokens < 0) {
+            throw new IllegalArgumentException("Budget ratio and max tokens must not be negative");
+        }
+        this.deposit = Math.round(ratio * SCALE);
+        this.maxBalance = maxTokens * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * Credits one original request
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * @return true if an extra attempt may be made, in which case its token is spent
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * @return whole attempts currently available
+     */
+    public long getAvailable() {
+        return balance.get() / SCALE;
+    }
+}
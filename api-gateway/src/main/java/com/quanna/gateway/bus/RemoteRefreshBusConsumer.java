@@ -0,0 +1,41 @@
+package com.quanna.gateway.bus;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.bus.BusBridge;
+import org.springframework.cloud.bus.BusConsumer;
+import org.springframework.cloud.bus.BusProperties;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * {@link BusConsumer} that also reports refreshes meant for other services as {@link RemoteRefreshEvent}.
+ *
+ * The default consumer only publishes events addressed to this instance, so a refresh that config-service
+ * sends to {@code demo-client:dev:**} never surfaces in the gateway. Events for the gateway itself are
+ * handled exactly as before.
+ */
+public class RemoteRefreshBusConsumer extends BusConsumer {
+
+    private final ApplicationEventPublisher publisher;
+    private final ServiceMatcher serviceMatcher;
+
+    public RemoteRefreshBusConsumer(ApplicationEventPublisher publisher, ServiceMatcher serviceMatcher,
+                                    ObjectProvider<BusBridge> busBridge, BusProperties properties,
+                                    Destination.Factory destinationFactory) {
+        super(publisher, serviceMatcher, busBridge, properties, destinationFactory);
+        this.publisher = publisher;
+        this.serviceMatcher = serviceMatcher;
+    }
+
+    @Override
+    public void accept(RemoteApplicationEvent event) {
+        super.accept(event);
+        if (event instanceof RefreshRemoteApplicationEvent
+                && !serviceMatcher.isForSelf(event) && !serviceMatcher.isFromSelf(event)) {
+            publisher.publishEvent(new RemoteRefreshEvent(this, event.getDestinationService()));
+        }
+    }
+}
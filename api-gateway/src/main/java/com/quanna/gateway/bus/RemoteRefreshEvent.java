@@ -0,0 +1,36 @@
+package com.quanna.gateway.bus;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * A bus refresh addressed to other services, published locally by {@link RemoteRefreshBusConsumer}.
+ * The gateway itself is not refreshed, but what it holds from those services may be stale.
+ */
+public class RemoteRefreshEvent extends ApplicationEvent {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    private final String destinationService;
+
+    public RemoteRefreshEvent(Object source, String destinationService) {
+        super(source);
+        this.destinationService = destinationService;
+    }
+
+    /**
+     * Bus destination, {@code application:profiles:instance} with wildcards, e.g. {@code demo-client:dev:**}
+     */
+    public String getDestinationService() {
+        return destinationService;
+    }
+
+    /**
+     * Whether the destination covers instances of {@code service}, whatever their profiles and port
+     */
+    public boolean isFor(String service) {
+        String destination = destinationService != null ? destinationService : "**";
+        int separator = destination.indexOf(':');
+        return MATCHER.match(separator < 0 ? destination : destination.substring(0, separator), service);
+    }
+}
@@ -0,0 +1,19 @@
+package com.quanna.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+
+/**
+ * Upstream response held by {@link ResponseCache}; headers are the upstream's, read-only.
+ * {@code service} is the host of the route's URI, the service id for {@code lb://} routes;
+ * {@code generation} the cache generation its fetch started in.
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                             long createdMillis, Duration timeToLive, String service, long generation) {
+
+    public long ageSeconds(long nowMillis) {
+        return Math.max(0, (nowMillis - createdMillis) / 1000);
+    }
+}
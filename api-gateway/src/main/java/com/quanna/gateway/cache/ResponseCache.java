@@ -0,0 +1,188 @@
+package com.quanna.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.quanna.gateway.bus.RemoteRefreshEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared store of the {@code ResponseCache} route filter.
+ *
+ * Entries are bounded by total body size and expire after their own time to live. Concurrent misses
+ * for one key are coalesced: the first request fetches from upstream, later ones wait for its result.
+ * Upstream payloads usually change with their configuration: everything is dropped when the gateway
+ * itself is refreshed, and a service's entries when a bus refresh addressed to it passes by.
+ *
+ * Each invalidation moves the generation on. A fetch remembers the generation it started in, and its
+ * response is neither stored nor served once its service was invalidated since; requests missing
+ * after the invalidation don't wait for it, they start a fetch of their own.
+ */
+@Component
+public class ResponseCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final Cache<String, CachedResponse> cache;
+    private final Map<String, Fetch> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Long> serviceInvalidated = new ConcurrentHashMap<>();
+    private final AtomicLong allInvalidated = new AtomicLong();
+    private final LongAdder coalesced = new LongAdder();
+    private final long maxEntrySize;
+
+    public ResponseCache(ResponseCacheProperties properties) {
+        this.maxEntrySize = properties.getMaxEntrySize().toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfter(Expiry.creating((String key, CachedResponse response) -> response.timeToLive()))
+                .recordStats()
+                .build();
+    }
+
+    public CachedResponse get(String key) {
+        CachedResponse response = cache.getIfPresent(key);
+        if (response != null && stale(response.generation(), response.service())) {
+            // Stored while an invalidation was running
+            cache.asMap().remove(key, response);
+            return null;
+        }
+        return response;
+    }
+
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Joins the upstream fetch of {@code key} running in the current generation, or starts one.
+     * The caller of a {@link Fetch#isLeading() leading} fetch calls upstream and then {@link #complete}.
+     *
+     * @param service host of the route's URI, whose bus refreshes invalidate the fetch
+     */
+    public Fetch joinInFlight(String key, String service) {
+        if (service != null) {
+            serviceInvalidated.putIfAbsent(service, 0L);
+        }
+        long started = generation.get();
+        while (true) {
+            Fetch existing = inFlight.get(key);
+            if (existing != null && !stale(existing.generation, existing.service)) {
+                coalesced.increment();
+                return new Fetch(existing.generation, existing.service, existing.sink, false);
+            }
+            Fetch leading = new Fetch(started, service, Sinks.one(), true);
+            if (existing == null ? inFlight.putIfAbsent(key, leading) == null : inFlight.replace(key, existing, leading)) {
+                return leading;
+            }
+        }
+    }
+
+    /**
+     * Stores the fetched response, if any and still current, and releases requests waiting for it
+     */
+    public void complete(String key, Fetch fetch, CachedResponse response) {
+        if (response != null && !stale(fetch.generation, fetch.service)) {
+            cache.put(key, response);
+        }
+        inFlight.remove(key, fetch);
+        if (response != null) {
+            fetch.sink.tryEmitValue(response);
+        } else {
+            fetch.sink.tryEmitEmpty();
+        }
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void invalidateAll() {
+        allInvalidated.accumulateAndGet(generation.incrementAndGet(), Math::max);
+        logger.info("Config refresh, dropping {} cached responses", cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void invalidate(RemoteRefreshEvent event) {
+        long invalidated = generation.incrementAndGet();
+        serviceInvalidated.replaceAll((service, since) -> event.isFor(service) ? Math.max(since, invalidated) : since);
+        int before = cache.asMap().size();
+        cache.asMap().values().removeIf(response -> response.service() != null && event.isFor(response.service()));
+        logger.info("Bus refresh for {}, dropped {} cached responses", event.getDestinationService(),
+                before - cache.asMap().size());
+    }
+
+    /**
+     * Whether a fetch of {@code service} started in {@code generation} was invalidated since
+     */
+    private boolean stale(long generation, String service) {
+        if (generation < allInvalidated.get()) {
+            return true;
+        }
+        Long invalidated = service != null ? serviceInvalidated.get(service) : null;
+        return invalidated != null && generation < invalidated;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "gateway.response.cache");
+        Gauge.builder("gateway.response.cache.size", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .baseUnit("bytes")
+                .description("Bytes held by the gateway response cache")
+                .register(registry);
+        FunctionCounter.builder("gateway.response.cache.coalesced", coalesced, LongAdder::sum)
+                .description("Cache misses that waited for an identical in-flight upstream call")
+                .register(registry);
+    }
+
+    /**
+     * One upstream fetch as seen by a request: leading it, or waiting for its {@link #result()}
+     */
+    public static final class Fetch {
+        private final long generation;
+        private final String service;
+        private final Sinks.One<CachedResponse> sink;
+        private final boolean leading;
+
+        private Fetch(long generation, String service, Sinks.One<CachedResponse> sink, boolean leading) {
+            this.generation = generation;
+            this.service = service;
+            this.sink = sink;
+            this.leading = leading;
+        }
+
+        public boolean isLeading() {
+            return leading;
+        }
+
+        /**
+         * Generation the fetch started in, to be kept with its {@link CachedResponse}
+         */
+        public long generation() {
+            return generation;
+        }
+
+        /**
+         * The leader's response; empty if it was not cacheable
+         */
+        public Mono<CachedResponse> result() {
+            return sink.asMono();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.quanna.gateway.coalescing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight registry of the {@code RequestCoalescing} route filter.
+ *
+ * The first request for a key becomes the origin and calls the upstream; identical requests arriving
+ * while it is in flight wait for its response instead. Nothing is kept once the origin completes.
+ *
+ * {@code gateway.request.coalescing} counts requests by result: {@code origin} went upstream,
+ * {@code coalesced} was answered from another request's response, {@code fallback} waited but had to
+ * call the upstream itself because the origin response could not be shared.
+ */
+@Component
+public class RequestCoalescer implements MeterBinder {
+
+    private final Map<String, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder origin = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder fallback = new LongAdder();
+    private final long maxBodySize;
+
+    public RequestCoalescer(RequestCoalescingProperties properties) {
+        this.maxBodySize = properties.getMaxBodySize().toBytes();
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * @return null when the caller is the origin and must call {@link #complete} when done, otherwise
+     * the response of the origin; empty if it could not be shared
+     */
+    public Mono<SharedResponse> join(String key) {
+        Sinks.One<SharedResponse> sink = Sinks.one();
+        Sinks.One<SharedResponse> existing = inFlight.putIfAbsent(key, sink);
+        if (existing == null) {
+            origin.increment();
+            return null;
+        }
+        return existing.asMono()
+                .doOnNext(response -> coalesced.increment())
+                .switchIfEmpty(Mono.fromRunnable(fallback::increment));
+    }
+
+    /**
+     * Releases the requests waiting on the key with the origin response, or empty if it cannot be shared
+     */
+    public void complete(String key, SharedResponse response) {
+        Sinks.One<SharedResponse> sink = inFlight.remove(key);
+        if (sink != null) {
+            if (response != null) {
+                sink.tryEmitValue(response);
+            } else {
+                sink.tryEmitEmpty();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, origin, "origin");
+        counter(registry, coalesced, "coalesced");
+        counter(registry, fallback, "fallback");
+        Gauge.builder("gateway.request.coalescing.in.flight", inFlight, Map::size)
+                .description("Distinct upstream calls that identical requests can currently join")
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, LongAdder adder, String result) {
+        FunctionCounter.builder("gateway.request.coalescing", adder, LongAdder::sum)
+                .tag("result", result)
+                .description("Requests handled by the single-flight filter, by how they were answered")
+                .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.quanna.gateway.coalescing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "request-coalescing")
+public class RequestCoalescingProperties {
+
+    /**
+     * Larger responses are not shared; waiting requests then call the upstream themselves
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+    public DataSize getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(DataSize maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+}
@@ -0,0 +1,10 @@
+package com.quanna.gateway.coalescing;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Upstream response of a coalesced request, replayed to every request that waited for it; headers are read-only
+ */
+public record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+}
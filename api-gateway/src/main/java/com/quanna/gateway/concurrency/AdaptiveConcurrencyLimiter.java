@@ -0,0 +1,69 @@
+package com.quanna.gateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-flight request limit for one upstream, adjusted after every completed request.
+ *
+ * Admission is a single atomic increment checked against the current limit; requests above the
+ * limit are rejected immediately instead of queueing, so upstream latency stays bounded.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private double limit;
+    private volatile int currentLimit;
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit) {
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.currentLimit = initialLimit;
+    }
+
+    /**
+     * @return the number of requests in flight including this one, or -1 if the request must be shed
+     */
+    public int tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > currentLimit) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            return -1;
+        }
+        return current;
+    }
+
+    /**
+     * Releases a request that got no answer from the upstream, leaving the limit as it is
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            limit = Math.max(minLimit, Math.min(maxLimit, algorithm.update(limit, rttNanos, inFlightAtStart, dropped)));
+            currentLimit = (int) limit;
+        }
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,28 @@
+package com.quanna.gateway.concurrency;
+
+/**
+ * Additive increase, multiplicative decrease.
+ * Grows by one slot per limit-worth of successes, backs off on drops and on requests slower than the latency threshold.
+ */
+public class AimdLimitAlgorithm implements LimitAlgorithm {
+
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    public AimdLimitAlgorithm(double backoffRatio, long latencyThresholdNanos) {
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > latencyThresholdNanos) {
+            return limit * backoffRatio;
+        }
+        // Only grow while the limit is actually being used
+        if (inFlight * 2 >= limit) {
+            return limit + 1 / limit;
+        }
+        return limit;
+    }
+}
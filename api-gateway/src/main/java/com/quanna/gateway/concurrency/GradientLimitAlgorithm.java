@@ -0,0 +1,52 @@
+package com.quanna.gateway.concurrency;
+
+/**
+ * Gradient based limit, in the spirit of Netflix concurrency-limits' Gradient2.
+ *
+ * Compares a short-term RTT average against a long-term one. While the two agree the limit grows
+ * by a queue allowance of sqrt(limit); once the short-term RTT rises above {@code tolerance} times
+ * the long-term baseline, the gradient drops below 1 and the limit shrinks proportionally.
+ */
+public class GradientLimitAlgorithm implements LimitAlgorithm {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final double tolerance;
+    private final double backoffRatio;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientLimitAlgorithm(double tolerance, double backoffRatio) {
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+    }
+
+    @Override
+    public double update(double limit, long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            return limit * backoffRatio;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        } else {
+            shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+            longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+        }
+
+        // Let the baseline follow a sustained latency drop quickly
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Application limited: no signal about the upstream's capacity
+        if (inFlight < limit / 2) {
+            return limit;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    }
+}
@@ -0,0 +1,17 @@
+package com.quanna.gateway.concurrency;
+
+/**
+ * Computes the next concurrency limit from one completed request.
+ * Implementations are called under the owning limiter's lock and may keep state.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @param limit current limit
+     * @param rttNanos round trip time of the completed request
+     * @param inFlight requests in flight when this one was started
+     * @param dropped whether the request failed or the upstream signalled overload
+     * @return the new limit, before clamping to the configured bounds
+     */
+    double update(double limit, long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,42 @@
+package com.quanna.gateway.concurrency;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Outcome of the upstream exchanges of one request, reported by the routing side of the chain.
+ *
+ * Responses the gateway produces itself (cache hits, rate limit rejections, circuit breaker
+ * fallbacks, shed requests) never reach the upstream and leave the sample empty. Retries and hedges
+ * report each attempt: the round trip of the last one that finished is kept, and the sample counts
+ * as dropped if any attempt failed.
+ */
+public final class UpstreamSample {
+
+    public static final String ATTRIBUTE = UpstreamSample.class.getName();
+
+    private long rttNanos = -1;
+    private boolean dropped;
+
+    public static UpstreamSample get(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * @param failed whether the attempt errored or the upstream answered with a 5xx
+     */
+    public synchronized void record(long rttNanos, boolean failed) {
+        this.rttNanos = rttNanos;
+        this.dropped |= failed;
+    }
+
+    /**
+     * @return round trip of the last finished attempt, or -1 if the request never reached the upstream
+     */
+    public synchronized long getRttNanos() {
+        return rttNanos;
+    }
+
+    public synchronized boolean isDropped() {
+        return dropped;
+    }
+}
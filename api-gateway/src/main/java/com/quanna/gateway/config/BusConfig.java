@@ -0,0 +1,28 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.bus.RemoteRefreshBusConsumer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.bus.BusBridge;
+import org.springframework.cloud.bus.BusConstants;
+import org.springframework.cloud.bus.BusProperties;
+import org.springframework.cloud.bus.ConditionalOnBusEnabled;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the bus consumer so refreshes addressed to upstream services reach the gateway's caches
+ */
+@Configuration
+@ConditionalOnBusEnabled
+public class BusConfig {
+
+    @Bean(BusConstants.BUS_CONSUMER)
+    public RemoteRefreshBusConsumer busConsumer(ApplicationEventPublisher publisher, ServiceMatcher serviceMatcher,
+                                                ObjectProvider<BusBridge> busBridge, BusProperties properties,
+                                                Destination.Factory destinationFactory) {
+        return new RemoteRefreshBusConsumer(publisher, serviceMatcher, busBridge, properties, destinationFactory);
+    }
+}
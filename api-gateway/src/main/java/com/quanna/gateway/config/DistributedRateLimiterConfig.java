@@ -0,0 +1,92 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.ratelimit.DistributedRateLimiter;
+import com.quanna.gateway.ratelimit.InMemoryTokenStore;
+import com.quanna.gateway.ratelimit.RedisTokenStore;
+import com.quanna.gateway.ratelimit.TieredRateLimitProperties;
+import com.quanna.gateway.ratelimit.TieredRateLimiter;
+import com.quanna.gateway.ratelimit.TokenStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * Cluster-wide rate limiters, enabled with {@code rate-limit.mode: distributed}.
+ * Replaces the in-memory limiters from {@link GatewayConfig} under the same bean names; the tiered
+ * limiter keeps its local tiers and gains the cluster tier.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rate-limit.mode", havingValue = "distributed")
+public class DistributedRateLimiterConfig {
+
+    @Value("${rate-limit.default.capacity:20}")
+    private long defaultCapacity;
+
+    @Value("${rate-limit.default.refill-duration-seconds:1}")
+    private long defaultRefillDurationSeconds;
+
+    @Value("${rate-limit.demo-client.capacity:50}")
+    private long demoClientCapacity;
+
+    @Value("${rate-limit.demo-client.refill-duration-seconds:1}")
+    private long demoClientRefillDurationSeconds;
+
+    @Value("${rate-limit.distributed.batch-size:5}")
+    private long batchSize;
+
+    @Value("${rate-limit.distributed.lease-duration-millis:200}")
+    private long leaseDurationMillis;
+
+    @Value("${rate-limit.distributed.max-leases:100000}")
+    private long maxLeases;
+
+    /**
+     * Token store dùng Redis (mặc định)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.distributed.store", havingValue = "redis", matchIfMissing = true)
+    public TokenStore redisTokenStore(ReactiveStringRedisTemplate redisTemplate,
+                                      @Value("${rate-limit.distributed.key-prefix:rate-limit:}") String keyPrefix) {
+        return new RedisTokenStore(redisTemplate, keyPrefix);
+    }
+
+    /**
+     * Token store trong bộ nhớ, dùng cho test hoặc chạy một node
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rate-limit.distributed.store", havingValue = "in-memory")
+    public TokenStore inMemoryTokenStore() {
+        return new InMemoryTokenStore();
+    }
+
+    @Bean
+    @Primary
+    public DistributedRateLimiter defaultRateLimiter(TokenStore tokenStore) {
+        return new DistributedRateLimiter("default", defaultCapacity,
+                Duration.ofSeconds(defaultRefillDurationSeconds), tokenStore,
+                batchSize, Duration.ofMillis(leaseDurationMillis), maxLeases);
+    }
+
+    @Bean("demoClientRateLimiter")
+    public DistributedRateLimiter demoClientRateLimiter(TokenStore tokenStore) {
+        return new DistributedRateLimiter("demo-client", demoClientCapacity,
+                Duration.ofSeconds(demoClientRefillDurationSeconds), tokenStore,
+                batchSize, Duration.ofMillis(leaseDurationMillis), maxLeases);
+    }
+
+    /**
+     * Rate limiter nhiều tầng, thêm tầng cluster dùng chung token store
+     */
+    @Bean
+    public TieredRateLimiter tieredRateLimiter(TieredRateLimitProperties properties, TokenStore tokenStore) {
+        TieredRateLimitProperties.Tier cluster = properties.getCluster();
+        return new TieredRateLimiter("tiered", properties,
+                new DistributedRateLimiter("tiered-cluster", cluster.getCapacity(), cluster.getRefillDuration(),
+                        tokenStore, batchSize, Duration.ofMillis(leaseDurationMillis), maxLeases));
+    }
+}
@@ -0,0 +1,30 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.filter.LoadBalancerStatsFilter;
+import com.quanna.gateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import com.quanna.gateway.loadbalancer.LatencyAwareLoadBalancerProperties;
+import com.quanna.gateway.loadbalancer.LoadBalancerStats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Latency-aware load balancing for every {@code lb://} service, enabled by default.
+ * {@code load-balancer.strategy: round-robin} falls back to the Spring Cloud LoadBalancer default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "load-balancer.strategy", havingValue = "latency-aware", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public LoadBalancerStats loadBalancerStats(LatencyAwareLoadBalancerProperties properties) {
+        return new LoadBalancerStats(properties);
+    }
+
+    @Bean
+    public LoadBalancerStatsFilter loadBalancerStatsFilter(LoadBalancerStats stats) {
+        return new LoadBalancerStatsFilter(stats);
+    }
+}
@@ -0,0 +1,68 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.ratelimit.ReloadableRateLimiter;
+import com.quanna.gateway.ratelimit.TieredRateLimitProperties;
+import com.quanna.gateway.ratelimit.TieredRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Applies refreshed {@code rate-limit.*} properties (config bus or {@code /actuator/refresh}) to the
+ * running limiters in place. Limiters are never rebuilt, so buckets keep their tokens.
+ *
+ * Values are bound straight from the environment rather than from the startup {@code @Value}
+ * fields of {@link GatewayConfig}, which are never re-read.
+ */
+@Component
+public class RateLimiterRefreshListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiterRefreshListener.class);
+    private static final String PREFIX = "rate-limit.";
+
+    private final Environment environment;
+    private final ObjectProvider<ReloadableRateLimiter> rateLimiters;
+    private final ObjectProvider<TieredRateLimiter> tieredRateLimiter;
+
+    public RateLimiterRefreshListener(Environment environment,
+                                      ObjectProvider<ReloadableRateLimiter> rateLimiters,
+                                      ObjectProvider<TieredRateLimiter> tieredRateLimiter) {
+        this.environment = environment;
+        this.rateLimiters = rateLimiters;
+        this.tieredRateLimiter = tieredRateLimiter;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().noneMatch(key -> key.startsWith(PREFIX))) {
+            return;
+        }
+        Binder binder = Binder.get(environment);
+
+        rateLimiters.orderedStream().forEach(limiter -> {
+            String prefix = PREFIX + limiter.getName();
+            long capacity = binder.bind(prefix + ".capacity", Long.class)
+                    .orElse(limiter.getCapacity());
+            Duration refillDuration = Duration.ofSeconds(binder.bind(prefix + ".refill-duration-seconds", Long.class)
+                    .orElse(limiter.getRefillDuration().toSeconds()));
+
+            if (capacity != limiter.getCapacity() || !refillDuration.equals(limiter.getRefillDuration())) {
+                limiter.reconfigure(capacity, refillDuration);
+                logger.info("Rate limiter {} reconfigured: capacity {} per {}", limiter.getName(), capacity, refillDuration);
+            }
+        });
+
+        tieredRateLimiter.ifAvailable(limiter -> {
+            limiter.reconfigure(binder.bind(PREFIX + "tiers", TieredRateLimitProperties.class)
+                    .orElseGet(TieredRateLimitProperties::new));
+            logger.info("Tiered rate limiter reconfigured");
+        });
+    }
+}
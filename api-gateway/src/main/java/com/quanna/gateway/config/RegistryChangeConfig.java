@@ -0,0 +1,38 @@
+package com.quanna.gateway.config;
+
+import com.netflix.discovery.EurekaClient;
+import com.quanna.gateway.discovery.RegistryChangeListener;
+import com.quanna.gateway.discovery.RegistryChangeProperties;
+import com.quanna.gateway.discovery.RegistryOverlay;
+import com.quanna.gateway.discovery.RegistryOverlayConfiguration;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Registry changes pushed by eureka-server, applied to every {@code lb://} service through the
+ * {@link RegistryOverlay}. Needs the eureka client, so {@code eureka.client.enabled: false} turns it off too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "registry-changes.enabled", havingValue = "true")
+@ConditionalOnProperty(name = "eureka.client.enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = RegistryOverlayConfiguration.class)
+public class RegistryChangeConfig {
+
+    @Bean
+    public RegistryOverlay registryOverlay(EurekaClientConfigBean clientConfig) {
+        return new RegistryOverlay(clientConfig.shouldFilterOnlyUpInstances());
+    }
+
+    @Bean
+    public RegistryChangeListener registryChangeListener(EurekaClient eurekaClient, EurekaClientConfigBean clientConfig,
+                                                         RegistryOverlay overlay, BeanFactory beanFactory,
+                                                         RegistryChangeProperties properties,
+                                                         WebClient.Builder webClientBuilder) {
+        return new RegistryChangeListener(eurekaClient, clientConfig, overlay, beanFactory, properties, webClientBuilder);
+    }
+}
@@ -0,0 +1,28 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.route.IndexedRoutePredicateHandlerMapping;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Replaces the gateway's route handler mapping with the path-indexed one, enabled by default.
+ * {@code route-index.enabled: false} restores the linear lookup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "route-index.enabled", havingValue = "true", matchIfMissing = true)
+public class RouteIndexConfig {
+
+    @Bean
+    public IndexedRoutePredicateHandlerMapping indexedRoutePredicateHandlerMapping(
+            FilteringWebHandler webHandler, RouteLocator routeLocator, RouteDefinitionLocator routeDefinitionLocator,
+            GlobalCorsProperties globalCorsProperties, Environment environment) {
+        return new IndexedRoutePredicateHandlerMapping(webHandler, routeLocator, routeDefinitionLocator,
+                globalCorsProperties, environment);
+    }
+}
@@ -0,0 +1,53 @@
+package com.quanna.gateway.config;
+
+import com.quanna.gateway.filter.UpstreamRoutingFilter;
+import com.quanna.gateway.upstream.ConnectionChurnCustomizer;
+import com.quanna.gateway.upstream.UpstreamConnectionPools;
+import com.quanna.gateway.upstream.UpstreamPoolProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * Upstream connection management: per-route or per-service pools from {@code upstream.pools}, used
+ * next to the default routing filter, and churn counters on the shared pool when its metrics are on.
+ */
+@Configuration
+public class UpstreamConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.cloud.gateway.server.webflux.httpclient.pool.metrics", havingValue = "true")
+    public ConnectionChurnCustomizer sharedPoolChurnCustomizer(MeterRegistry registry,
+                                                               HttpClientProperties httpClientProperties) {
+        return new ConnectionChurnCustomizer(registry, httpClientProperties.getPool().getName());
+    }
+
+    @Bean
+    public UpstreamConnectionPools upstreamConnectionPools(UpstreamPoolProperties properties,
+                                                           HttpClientProperties httpClientProperties,
+                                                           ServerProperties serverProperties,
+                                                           HttpClientSslConfigurer sslConfigurer,
+                                                           ObjectProvider<HttpClientCustomizer> customizers,
+                                                           MeterRegistry registry) {
+        return new UpstreamConnectionPools(properties, httpClientProperties, serverProperties, sslConfigurer,
+                customizers.orderedStream().toList(), registry);
+    }
+
+    @Bean
+    public UpstreamRoutingFilter upstreamRoutingFilter(HttpClient httpClient,
+                                                       ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                       HttpClientProperties httpClientProperties,
+                                                       UpstreamConnectionPools pools) {
+        return new UpstreamRoutingFilter(httpClient, headersFilters, httpClientProperties, pools);
+    }
+}
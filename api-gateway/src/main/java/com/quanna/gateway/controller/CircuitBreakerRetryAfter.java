@@ -0,0 +1,54 @@
+package com.quanna.gateway.controller;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when each open circuit breaker will allow calls again.
+ *
+ * Resilience4j does not expose the remaining open-state wait, so the deadline is recorded from
+ * the state transition events: transition time plus the configured wait interval.
+ */
+@Component
+public class CircuitBreakerRetryAfter {
+
+    private final Map<String, Long> openUntilMillis = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRetryAfter(ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry) {
+        circuitBreakerRegistry.ifAvailable(registry -> {
+            registry.getEventPublisher().onEntryAdded(event -> track(event.getAddedEntry()));
+            registry.getAllCircuitBreakers().forEach(this::track);
+        });
+    }
+
+    /**
+     * @return whole seconds until the breaker leaves the open state, or -1 when it is not known to be open
+     */
+    public long retryAfterSeconds(String circuitBreakerName) {
+        Long openUntil = openUntilMillis.get(circuitBreakerName);
+        if (openUntil == null) {
+            return -1;
+        }
+        long remainingMillis = openUntil - System.currentTimeMillis();
+        // Past the deadline without automatic transition the next call moves it to half-open
+        return Math.max(1, (remainingMillis + 999) / 1000);
+    }
+
+    private void track(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            if (event.getStateTransition().getToState() == CircuitBreaker.State.OPEN) {
+                long waitMillis = circuitBreaker.getCircuitBreakerConfig()
+                        .getWaitIntervalFunctionInOpenState()
+                        .apply(1);
+                openUntilMillis.put(circuitBreaker.getName(), System.currentTimeMillis() + waitMillis);
+            } else {
+                openUntilMillis.remove(circuitBreaker.getName());
+            }
+        });
+    }
+}
@@ -1,45 +1,121 @@
 package com.quanna.gateway.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+
+/**
+ * Fallback responses for open circuits and shed requests.
+ *
+ * The JSON body of each service is serialized once and kept as bytes around the timestamp, which is
+ * the only per-request part and is itself formatted at most once per millisecond. A request wraps
+ * the cached arrays into DataBuffers without copying them. When the fallback was triggered by an
+ * open circuit breaker, {@code Retry-After} tells the client when calls will be let through again.
+ */
 @RestController
 @RequestMapping("/fallback")
 public class FallbackController {
 
-    @GetMapping("/{service}")
-    public ResponseEntity<Map<String, Object>> fallback(@PathVariable String service) {
-        Map<String, Object> response = new HashMap<>();
-        response.put("timestamp", LocalDateTime.now());
-        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
-        response.put("error", "Service Unavailable");
-        response.put("message", "The " + service + " service is temporarily unavailable. Please try again later.");
-        response.put("service", service);
+    private static final byte[] TIMESTAMP_PREFIX = "{\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_CACHED_SERVICES = 256;
+
+    private final ObjectMapper objectMapper;
+    private final CircuitBreakerRetryAfter retryAfter;
+    private final Cache<String, byte[]> bodies = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_SERVICES)
+            .build();
+    private final byte[] generalBody;
+    private volatile Timestamp timestamp = new Timestamp(-1, null);
+
+    public FallbackController(ObjectMapper objectMapper, CircuitBreakerRetryAfter retryAfter) {
+        this.objectMapper = objectMapper;
+        this.retryAfter = retryAfter;
+        this.generalBody = serialize("The requested service is temporarily unavailable. Please try again later.", null);
+    }
+
+    @RequestMapping("/{service}")
+    public Mono<Void> fallback(@PathVariable String service, ServerWebExchange exchange) {
+        byte[] body = bodies.get(service, key -> serialize(
+                "The " + key + " service is temporarily unavailable. Please try again later.", key));
+        return write(exchange, body);
+    }
 
-        return ResponseEntity
-                .status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(response);
+    @RequestMapping("/general")
+    public Mono<Void> generalFallback(ServerWebExchange exchange) {
+        return write(exchange, generalBody);
     }
 
-    @GetMapping("/general")
-    public ResponseEntity<Map<String, Object>> generalFallback() {
-        Map<String, Object> response = new HashMap<>();
-        response.put("timestamp", LocalDateTime.now());
+    private Mono<Void> write(ServerWebExchange exchange, byte[] body) {
+        byte[] now = timestamp();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+
+        HttpHeaders headers = response.getHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(TIMESTAMP_PREFIX.length + now.length + body.length);
+        if (exchange.getAttribute(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) instanceof CallNotPermittedException open) {
+            long seconds = retryAfter.retryAfterSeconds(open.getCausingCircuitBreakerName());
+            if (seconds > 0) {
+                headers.set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            }
+        }
+
+        return response.writeWith(Mono.just(response.bufferFactory().join(List.of(
+                response.bufferFactory().wrap(TIMESTAMP_PREFIX),
+                response.bufferFactory().wrap(now),
+                response.bufferFactory().wrap(body)))));
+    }
+
+    private byte[] timestamp() {
+        long millis = System.currentTimeMillis();
+        Timestamp current = timestamp;
+        if (current.millis != millis) {
+            String formatted = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).toString();
+            current = new Timestamp(millis, formatted.getBytes(StandardCharsets.UTF_8));
+            timestamp = current;
+        }
+        return current.bytes;
+    }
+
+    /**
+     * Everything after the timestamp value: {@code ","status":503,...}}
+     */
+    private byte[] serialize(String message, String service) {
+        Map<String, Object> response = new LinkedHashMap<>();
         response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
         response.put("error", "Service Unavailable");
-        response.put("message", "The requested service is temporarily unavailable. Please try again later.");
+        response.put("message", message);
+        if (service != null) {
+            response.put("service", service);
+        }
+        try {
+            return ("\"," + objectMapper.writeValueAsString(response).substring(1)).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize fallback response", e);
+        }
+    }
 
-        return ResponseEntity
-                .status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(response);
+    private record Timestamp(long millis, byte[] bytes) {
     }
 }
-
@@ -0,0 +1,63 @@
+package com.quanna.gateway.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads eureka-server's compact registry snapshot ({@code /api/registry/snapshot}) back into
+ * {@link Applications}. The instances carry what routing needs and nothing of their lease:
+ * <pre>
+ * {"version":"1700000000000-42","apps":{"DEMO-CLIENT":[
+ *   {"id":"host:demo-client:8080","host":"host","ip":"10.0.0.5","port":8080,"status":"UP",
+ *    "updated":1700000000000,"metadata":{...}}]}}
+ * </pre>
+ */
+final class CompactRegistryDecoder {
+
+    private CompactRegistryDecoder() {
+    }
+
+    /**
+     * Feed position the snapshot was taken at
+     */
+    static String version(JsonNode snapshot) {
+        return snapshot.path("version").asText(null);
+    }
+
+    static Applications decode(JsonNode snapshot) {
+        Applications applications = new Applications();
+        snapshot.path("apps").fields().forEachRemaining(app -> {
+            Application application = new Application(app.getKey());
+            for (JsonNode instance : app.getValue()) {
+                application.addInstance(instance(app.getKey(), instance));
+            }
+            applications.addApplication(application);
+        });
+        return applications;
+    }
+
+    private static InstanceInfo instance(String appName, JsonNode json) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        json.path("metadata").fields().forEachRemaining(entry -> metadata.put(entry.getKey(), entry.getValue().asText()));
+        return InstanceInfo.Builder.newBuilder()
+                .setInstanceId(json.path("id").asText())
+                .setAppName(appName)
+                .setHostName(json.path("host").asText())
+                .setIPAddr(json.path("ip").asText())
+                .setPort(json.path("port").asInt())
+                .enablePort(InstanceInfo.PortType.UNSECURE, json.has("port"))
+                .setSecurePort(json.path("securePort").asInt())
+                .enablePort(InstanceInfo.PortType.SECURE, json.has("securePort"))
+                .setStatus(InstanceInfo.InstanceStatus.toEnum(json.path("status").asText()))
+                .setVIPAddress(json.path("vip").asText(appName.toLowerCase(Locale.ROOT)))
+                .setMetadata(metadata)
+                .setLastUpdatedTimestamp(json.path("updated").asLong())
+                .build();
+    }
+}
@@ -0,0 +1,241 @@
+package com.quanna.gateway.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cloud.loadbalancer.cache.LoadBalancerCacheManager;
+import org.springframework.cloud.loadbalancer.core.CachingServiceInstanceListSupplier;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the load balancer's instances current from eureka-server's change stream, so the periodic
+ * registry fetch only has to catch what the stream missed and can run far less often.
+ *
+ * Each change goes to the {@link RegistryOverlay} and evicts the load balancer's cached instance list
+ * for that service; a deregistered instance therefore stops getting traffic as soon as eureka-server
+ * knows. The eureka client's own {@link Applications} are not touched, the next fetch would undo it.
+ * The first connection starts from eureka-server's cached compact snapshot and resumes the stream from
+ * its position, so the server doesn't encode the full registry for each gateway that starts. The stream
+ * resumes from the last event id after a disconnect; when that position is gone, or the snapshot
+ * couldn't be loaded, the server starts with a snapshot of its own, which replaces the overlay too.
+ */
+public class RegistryChangeListener implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryChangeListener.class);
+    private static final ParameterizedTypeReference<ServerSentEvent<JsonNode>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final String SNAPSHOT = "SNAPSHOT";
+    private static final String CANCELLED = "CANCELLED";
+
+    private final EurekaClient eurekaClient;
+    private final EurekaClientConfigBean clientConfig;
+    private final RegistryOverlay overlay;
+    private final ObjectProvider<LoadBalancerCacheManager> cacheManager;
+    private final RegistryChangeProperties properties;
+    private final WebClient webClient;
+    private final CodecWrapper codec = CodecWrappers.getCodec(CodecWrappers.JacksonJson.class);
+    private final Map<String, AtomicLong> applied = new ConcurrentHashMap<>();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile String lastEventId;
+    private volatile Disposable subscription;
+
+    /**
+     * The load balancer's cache manager is not an autowire candidate, so it is looked up the way the
+     * load balancer itself does
+     */
+    public RegistryChangeListener(EurekaClient eurekaClient, EurekaClientConfigBean clientConfig,
+                                  RegistryOverlay overlay, BeanFactory beanFactory, RegistryChangeProperties properties,
+                                  WebClient.Builder webClientBuilder) {
+        this.eurekaClient = eurekaClient;
+        this.clientConfig = clientConfig;
+        this.overlay = overlay;
+        this.cacheManager = beanFactory.getBeanProvider(LoadBalancerCacheManager.class);
+        this.properties = properties;
+        this.webClient = webClientBuilder.build();
+        for (String type : List.of(SNAPSHOT, "REGISTERED", CANCELLED, "STATUS_CHANGED")) {
+            applied.put(type, new AtomicLong());
+        }
+    }
+
+    @Override
+    public void start() {
+        String url = serverUrl(properties.getUrl(), "changes");
+        String snapshotUrl = serverUrl(properties.getSnapshotUrl(), "snapshot");
+        subscription = Mono.defer(() -> bootstrap(snapshotUrl))
+                .thenMany(Flux.defer(() -> stream(url)))
+                .doOnNext(this::onEvent)
+                .repeatWhen(completed -> completed.delayElements(properties.getMinBackoff()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getMinBackoff())
+                        .maxBackoff(properties.getMaxBackoff())
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> {
+                            reconnects.incrementAndGet();
+                            logger.debug("Registry change stream failed, reconnecting: {}",
+                                    signal.failure().getMessage());
+                        }))
+                .subscribe();
+        logger.info("Listening to registry changes from {}", url);
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+        subscription = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        applied.forEach((type, count) -> FunctionCounter.builder("gateway.registry.changes.applied", count, AtomicLong::get)
+                .description("Registry changes pushed by eureka-server and applied to the local cache")
+                .tag("type", type.toLowerCase(Locale.ROOT))
+                .register(registry));
+
+        FunctionCounter.builder("gateway.registry.changes.reconnects", reconnects, AtomicLong::get)
+                .description("Reconnections of the registry change stream after an error")
+                .register(registry);
+    }
+
+    private Flux<ServerSentEvent<JsonNode>> stream(String url) {
+        return webClient.get()
+                .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE);
+    }
+
+    /**
+     * Loads the snapshot unless the stream already has a position to resume from
+     */
+    private Mono<Void> bootstrap(String snapshotUrl) {
+        if (lastEventId != null) {
+            return Mono.empty();
+        }
+        return webClient.get()
+                .uri(snapshotUrl)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(snapshot -> {
+                    String version = CompactRegistryDecoder.version(snapshot);
+                    if (version == null) {
+                        throw new IllegalStateException("Registry snapshot without version");
+                    }
+                    replace(CompactRegistryDecoder.decode(snapshot));
+                    applied.get(SNAPSHOT).incrementAndGet();
+                    lastEventId = version;
+                    logger.debug("Loaded registry snapshot {}", version);
+                })
+                .onErrorResume(e -> {
+                    logger.warn("Could not load registry snapshot from {}, streaming from scratch: {}",
+                            snapshotUrl, e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void onEvent(ServerSentEvent<JsonNode> event) {
+        JsonNode change = event.data();
+        if (change == null) {
+            // Heartbeat comment
+            return;
+        }
+        String type = change.path("type").asText();
+        try {
+            String payload = change.path("payload").toString();
+            if (SNAPSHOT.equals(type)) {
+                replace(codec.decode(payload, Applications.class));
+            } else {
+                apply(type, codec.decode(payload, InstanceInfo.class));
+            }
+            applied.computeIfAbsent(type, key -> new AtomicLong()).incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not apply registry change {}: {}", event.id(), e.getMessage());
+        }
+        lastEventId = event.id();
+    }
+
+    private void apply(String type, InstanceInfo instance) {
+        if (CANCELLED.equals(type)) {
+            overlay.remove(instance);
+        } else {
+            overlay.put(instance);
+        }
+        evict(instance.getAppName());
+    }
+
+    private void replace(Applications snapshot) {
+        overlay.reset(snapshot, eurekaClient.getApplications());
+        Cache cache = instanceCache();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Load balancer service ids are the lower-case eureka app names
+     */
+    private void evict(String appName) {
+        Cache cache = instanceCache();
+        if (cache != null) {
+            cache.evict(appName.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private Cache instanceCache() {
+        LoadBalancerCacheManager manager = cacheManager.getIfAvailable();
+        return manager != null ? manager.getCache(CachingServiceInstanceListSupplier.SERVICE_INSTANCE_CACHE_NAME) : null;
+    }
+
+    /**
+     * {@code configured}, or {@code /api/registry/<endpoint>} next to the first eureka service URL
+     */
+    private String serverUrl(String configured, String endpoint) {
+        if (configured != null) {
+            return configured;
+        }
+        String serviceUrl = clientConfig.getEurekaServerServiceUrls(EurekaClientConfigBean.DEFAULT_ZONE).get(0);
+        return serviceUrl.replaceAll("/?eureka/?$", "") + "/api/registry/" + endpoint;
+    }
+}
@@ -0,0 +1,74 @@
+package com.quanna.gateway.discovery;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "registry-changes")
+public class RegistryChangeProperties {
+
+    /**
+     * Apply registry changes pushed by eureka-server as they happen, on top of the periodic fetch
+     */
+    private boolean enabled;
+
+    /**
+     * Change stream; defaults to /api/registry/changes next to the first eureka service URL
+     */
+    private String url;
+
+    /**
+     * Registry snapshot loaded before the stream first connects, which then resumes from the snapshot's
+     * position; defaults to /api/registry/snapshot next to the first eureka service URL
+     */
+    private String snapshotUrl;
+
+    /**
+     * Backoff between reconnection attempts, doubling from min to max
+     */
+    private Duration minBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getSnapshotUrl() {
+        return snapshotUrl;
+    }
+
+    public void setSnapshotUrl(String snapshotUrl) {
+        this.snapshotUrl = snapshotUrl;
+    }
+
+    public Duration getMinBackoff() {
+        return minBackoff;
+    }
+
+    public void setMinBackoff(Duration minBackoff) {
+        this.minBackoff = minBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(Duration maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+}
@@ -0,0 +1,132 @@
+package com.quanna.gateway.discovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry changes pushed by eureka-server, laid over the instances of the periodic fetch.
+ *
+ * The eureka client's own {@link Applications} are left alone: edited in place they no longer match
+ * the server's hash, and the next fetch replaces them with eureka-server's cached, older view. Here
+ * each pushed instance is kept until a fetch has caught up with it, going by the
+ * {@code lastUpdatedTimestamp} eureka-server sets on every registration, cancellation and status
+ * change. A cancelled instance stays hidden until the fetch drops it, or shows it registered again.
+ */
+public class RegistryOverlay {
+
+    private final boolean onlyUp;
+    private final Map<String, Map<String, Pushed>> services = new ConcurrentHashMap<>();
+
+    /**
+     * @param onlyUp whether instances that are not UP are hidden, as the eureka client does
+     */
+    public RegistryOverlay(boolean onlyUp) {
+        this.onlyUp = onlyUp;
+    }
+
+    /**
+     * Registration or status change
+     */
+    public void put(InstanceInfo instance) {
+        service(instance.getAppName()).put(instance.getId(), new Pushed(instance, instance.getLastUpdatedTimestamp()));
+    }
+
+    public void remove(InstanceInfo instance) {
+        service(instance.getAppName()).put(instance.getId(), new Pushed(null, instance.getLastUpdatedTimestamp()));
+    }
+
+    /**
+     * Replaces every pushed change with a snapshot of the registry; fetched instances missing from
+     * it are hidden as cancelled
+     */
+    public void reset(Applications snapshot, Applications fetched) {
+        services.clear();
+        Set<String> present = new HashSet<>();
+        for (Application application : snapshot.getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstancesAsIsFromEureka()) {
+                present.add(instance.getId());
+                put(instance);
+            }
+        }
+        for (Application application : fetched.getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstancesAsIsFromEureka()) {
+                if (!present.contains(instance.getId())) {
+                    remove(instance);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the fetched instances of the service with the pushed changes the fetch hasn't caught up with
+     */
+    public List<ServiceInstance> apply(String serviceId, List<ServiceInstance> fetched) {
+        Map<String, Pushed> pushed = services.get(serviceId.toLowerCase(Locale.ROOT));
+        if (pushed == null || pushed.isEmpty()) {
+            return fetched;
+        }
+        List<ServiceInstance> instances = new ArrayList<>(fetched.size() + 1);
+        Set<String> seen = new HashSet<>();
+        for (ServiceInstance instance : fetched) {
+            InstanceInfo info = instance instanceof EurekaServiceInstance eureka ? eureka.getInstanceInfo() : null;
+            Pushed change = info != null ? pushed.get(info.getId()) : null;
+            if (change == null) {
+                instances.add(instance);
+                continue;
+            }
+            seen.add(info.getId());
+            if (change.caughtUpBy(info)) {
+                pushed.remove(info.getId(), change);
+                instances.add(instance);
+            } else if (visible(change.instance())) {
+                instances.add(new EurekaServiceInstance(change.instance()));
+            }
+        }
+        pushed.forEach((id, change) -> {
+            if (seen.contains(id)) {
+                return;
+            }
+            if (change.instance() == null) {
+                // The fetch has dropped it too
+                pushed.remove(id, change);
+            } else if (visible(change.instance())) {
+                instances.add(new EurekaServiceInstance(change.instance()));
+            }
+        });
+        return instances;
+    }
+
+    private boolean visible(InstanceInfo instance) {
+        return instance != null && (!onlyUp || instance.getStatus() == InstanceInfo.InstanceStatus.UP);
+    }
+
+    private Map<String, Pushed> service(String appName) {
+        return services.computeIfAbsent(appName.toLowerCase(Locale.ROOT), key -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param instance the instance as pushed, null once cancelled
+     */
+    private record Pushed(InstanceInfo instance, long lastUpdated) {
+
+        /**
+         * A cancelled instance is only fetched again once registered anew
+         */
+        boolean caughtUpBy(InstanceInfo fetched) {
+            return instance == null
+                    ? fetched.getLastUpdatedTimestamp() > lastUpdated
+                    : fetched.getLastUpdatedTimestamp() >= lastUpdated;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.quanna.gateway.discovery;
+
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Per-service load balancer client configuration putting the {@link RegistryOverlay} between discovery
+ * and the instance cache, which {@link RegistryChangeListener} evicts on each change. Like the load
+ * balancer's, not a {@code @Configuration}.
+ */
+public class RegistryOverlayConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier registryOverlayServiceInstanceListSupplier(
+            ConfigurableApplicationContext context, RegistryOverlay overlay) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .with((ctx, delegate) -> new RegistryOverlaySupplier(delegate, overlay))
+                .withCaching()
+                .build(context);
+    }
+}
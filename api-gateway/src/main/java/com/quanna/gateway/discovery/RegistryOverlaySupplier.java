@@ -0,0 +1,26 @@
+package com.quanna.gateway.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Applies the {@link RegistryOverlay} to the instances found by discovery
+ */
+public class RegistryOverlaySupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final RegistryOverlay overlay;
+
+    public RegistryOverlaySupplier(ServiceInstanceListSupplier delegate, RegistryOverlay overlay) {
+        super(delegate);
+        this.overlay = overlay;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return delegate.get().map(instances -> overlay.apply(getServiceId(), instances));
+    }
+}
@@ -0,0 +1,242 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.concurrency.AdaptiveConcurrencyLimiter;
+import com.quanna.gateway.concurrency.AimdLimitAlgorithm;
+import com.quanna.gateway.concurrency.GradientLimitAlgorithm;
+import com.quanna.gateway.concurrency.LimitAlgorithm;
+import com.quanna.gateway.concurrency.UpstreamSample;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Adaptive concurrency limit per route.
+ *
+ * Requests above the current limit are shed right away: forwarded to {@code fallbackUri}
+ * (normally {@code forward:/fallback/<service>}) or answered with a bare 503. The limit follows
+ * the upstream's latency and error signal, see {@link GradientLimitAlgorithm} and {@link AimdLimitAlgorithm}.
+ * Only requests that reached the upstream move it, timed from the routing filter through
+ * {@link UpstreamSample}: fallbacks, rate limit rejections and other responses made by the gateway
+ * itself say nothing about the upstream.
+ *
+ * The filter is ordered ahead of the positional route and default filters, so a shed request is
+ * neither retried by {@code Retry} nor recorded as a failure by {@code CircuitBreaker}.
+ */
+@Component
+public class AdaptiveConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private static final int FILTER_ORDER = 0;
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<DispatcherHandler> dispatcherHandler;
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimitGatewayFilterFactory(MeterRegistry meterRegistry,
+                                                         ObjectProvider<DispatcherHandler> dispatcherHandler) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.dispatcherHandler = dispatcherHandler;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("algorithm", "fallbackUri");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        URI fallbackUri = config.getFallbackUri() != null ? URI.create(config.getFallbackUri()) : null;
+        AdaptiveConcurrencyLimiter limiter = limiter(config);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            int inFlight = limiter.tryAcquire();
+            if (inFlight < 0) {
+                return shed(exchange, fallbackUri);
+            }
+
+            UpstreamSample sample = new UpstreamSample();
+            exchange.getAttributes().put(UpstreamSample.ATTRIBUTE, sample);
+            return chain.filter(exchange).doFinally(signal -> {
+                long rttNanos = sample.getRttNanos();
+                if (rttNanos < 0) {
+                    limiter.release();
+                } else {
+                    limiter.release(rttNanos, inFlight, sample.isDropped());
+                }
+            });
+        }, FILTER_ORDER);
+    }
+
+    /**
+     * The route's limiter, kept across route refreshes unless its settings changed
+     */
+    private AdaptiveConcurrencyLimiter limiter(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        Settings settings = Settings.of(config);
+        RouteLimiter routeLimiter = limiters.compute(routeId, (id, existing) -> {
+            if (existing == null) {
+                registerMeters(id);
+            } else if (existing.settings().equals(settings)) {
+                return existing;
+            }
+            return new RouteLimiter(settings, createLimiter(settings));
+        });
+        return routeLimiter.limiter();
+    }
+
+    private Mono<Void> shed(ServerWebExchange exchange, URI fallbackUri) {
+        if (fallbackUri == null) {
+            setResponseStatus(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+        ServerHttpRequest request = exchange.getRequest().mutate().path(fallbackUri.getPath()).build();
+        return dispatcherHandler.getObject().handle(exchange.mutate().request(request).build());
+    }
+
+    private static AdaptiveConcurrencyLimiter createLimiter(Settings settings) {
+        LimitAlgorithm algorithm = "aimd".equalsIgnoreCase(settings.algorithm())
+                ? new AimdLimitAlgorithm(settings.backoffRatio(), settings.maxLatency().toNanos())
+                : new GradientLimitAlgorithm(settings.tolerance(), settings.backoffRatio());
+        return new AdaptiveConcurrencyLimiter(algorithm,
+                settings.initialLimit(), settings.minLimit(), settings.maxLimit());
+    }
+
+    /**
+     * Meters read the route's current limiter, so they survive it being replaced
+     */
+    private void registerMeters(String routeId) {
+        Tags tags = Tags.of("route", routeId);
+        Gauge.builder("gateway.concurrency.limit", limiters, map -> map.get(routeId).limiter().getLimit())
+                .tags(tags)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.inflight", limiters, map -> map.get(routeId).limiter().getInFlight())
+                .tags(tags)
+                .description("Requests currently in flight to the upstream")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.concurrency.rejected", limiters,
+                        map -> map.get(routeId).limiter().getRejected())
+                .tags(tags)
+                .description("Requests shed because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    private record RouteLimiter(Settings settings, AdaptiveConcurrencyLimiter limiter) {
+    }
+
+    private record Settings(String algorithm, int initialLimit, int minLimit, int maxLimit,
+                            double tolerance, double backoffRatio, Duration maxLatency) {
+
+        static Settings of(Config config) {
+            return new Settings(config.getAlgorithm(), config.getInitialLimit(), config.getMinLimit(),
+                    config.getMaxLimit(), config.getTolerance(), config.getBackoffRatio(), config.getMaxLatency());
+        }
+    }
+
+    public static class Config implements HasRouteId {
+        private String routeId;
+        private String algorithm = "gradient";
+        private String fallbackUri;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        private double tolerance = 2.0;
+        private double backoffRatio = 0.9;
+        private Duration maxLatency = Duration.ofSeconds(1);
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public void setAlgorithm(String algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        public String getFallbackUri() {
+            return fallbackUri;
+        }
+
+        public void setFallbackUri(String fallbackUri) {
+            this.fallbackUri = fallbackUri;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getMaxLatency() {
+            return maxLatency;
+        }
+
+        public void setMaxLatency(Duration maxLatency) {
+            this.maxLatency = maxLatency;
+        }
+    }
+}
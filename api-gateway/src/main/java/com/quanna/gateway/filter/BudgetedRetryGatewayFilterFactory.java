@@ -0,0 +1,413 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.budget.TokenBudget;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Retry with a per-route budget, replacing the static default {@code Retry} filter.
+ *
+ * Retries are made like {@code Retry} does (same methods, status series, exceptions and exchange reset)
+ * but each one must be paid from a {@link TokenBudget} that earns {@code budgetRatio} of a retry per
+ * request of the route. During a brownout, when every call wants a retry, the budget runs dry after
+ * {@code budgetBurst} retries and the upstream sees at most {@code 1 + budgetRatio} times the load
+ * instead of {@code 1 + retries}.
+ *
+ * Backoff is exponential with full jitter: a random delay up to {@code firstBackoff * factor^n}, capped
+ * at {@code maxBackoff}. A {@code Retry-After} on the failed response raises the delay; if it asks for
+ * more than {@code maxBackoff} the response is returned as is. No retry is made while the named
+ * {@code circuitBreaker} is open, or when it rejected the call.
+ *
+ * Meters, tagged by route: {@code gateway.retry.attempts} per request (its mean is the retry
+ * amplification) and {@code gateway.retry.skipped} by reason.
+ *
+ * A route keeps its budget across route refreshes, unless the refresh changed {@code budgetRatio} or
+ * {@code budgetBurst}: the route then starts over with a budget built from the new values.
+ */
+@Component
+public class BudgetedRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry;
+    private final Map<String, RouteRetry> routes = new ConcurrentHashMap<>();
+
+    public BudgetedRetryGatewayFilterFactory(MeterRegistry meterRegistry,
+                                             ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("retries");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (!config.getMethods().contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            RouteRetry route = route(routeId(exchange), config);
+            route.budget.deposit();
+
+            int[] attempts = {0};
+            return attempt(exchange, chain, route, config, attempts)
+                    .doFinally(signal -> route.attempts.record(attempts[0]));
+        };
+    }
+
+    private RouteRetry route(String routeId, Config config) {
+        RouteRetry route = routes.get(routeId);
+        if (route != null && route.budgetOf(config)) {
+            return route;
+        }
+        return routes.compute(routeId, (id, existing) -> {
+            if (existing != null && existing.budgetOf(config)) {
+                return existing;
+            }
+            if (existing != null) {
+                meterRegistry.remove(existing.available);
+            }
+            return new RouteRetry(id, config);
+        });
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, RouteRetry route, Config config,
+                               int[] attempts) {
+        int attempt = ++attempts[0];
+        return chain.filter(exchange)
+                .then(Mono.defer(() -> retryableStatus(exchange, config)
+                        ? retryAfterStatus(exchange, route, config, attempt)
+                        : Mono.<Boolean>empty()))
+                .onErrorResume(error -> retryableError(error, config)
+                        ? retry(exchange, route, config, attempt, Duration.ZERO).switchIfEmpty(Mono.error(error))
+                        : Mono.error(error))
+                .flatMap(retried -> attempt(exchange, chain, route, config, attempts));
+    }
+
+    /**
+     * Emits once the next attempt may start; emits nothing to return the response as is
+     */
+    private Mono<Boolean> retryAfterStatus(ServerWebExchange exchange, RouteRetry route, Config config, int attempt) {
+        Duration retryAfter = retryAfter(exchange.getResponse().getHeaders());
+        if (retryAfter != null && retryAfter.compareTo(config.getBackoff().getMaxBackoff()) > 0) {
+            route.skippedRetryAfter.increment();
+            return Mono.empty();
+        }
+        return retry(exchange, route, config, attempt, retryAfter != null ? retryAfter : Duration.ZERO);
+    }
+
+    private Mono<Boolean> retry(ServerWebExchange exchange, RouteRetry route, Config config, int attempt,
+                                Duration minDelay) {
+        if (attempt > config.getRetries() || exchange.getResponse().isCommitted()) {
+            return Mono.empty();
+        }
+        if (circuitOpen(config)) {
+            route.skippedCircuitOpen.increment();
+            return Mono.empty();
+        }
+        if (!route.budget.tryWithdraw()) {
+            route.skippedBudget.increment();
+            return Mono.empty();
+        }
+
+        reset(exchange);
+        Duration delay = config.getBackoff().delay(attempt);
+        if (delay.compareTo(minDelay) < 0) {
+            delay = minDelay;
+        }
+        return Mono.delay(delay).thenReturn(Boolean.TRUE);
+    }
+
+    /**
+     * Same as {@code Retry}: the unread upstream body is dropped and upstream headers are cleared
+     */
+    private static void reset(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+        }
+        ServerWebExchangeUtils.reset(exchange);
+    }
+
+    private boolean circuitOpen(Config config) {
+        if (config.getCircuitBreaker() == null) {
+            return false;
+        }
+        CircuitBreakerRegistry registry = circuitBreakerRegistry.getIfAvailable();
+        if (registry == null) {
+            return false;
+        }
+        return registry.find(config.getCircuitBreaker())
+                .map(CircuitBreaker::getState)
+                .map(state -> state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN)
+                .orElse(false);
+    }
+
+    private static boolean retryableStatus(ServerWebExchange exchange, Config config) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status == null || exchange.getResponse().isCommitted()) {
+            return false;
+        }
+        HttpStatus.Series series = HttpStatus.Series.resolve(status.value());
+        return config.getStatuses().contains(status.value())
+                || (series != null && config.getSeries().contains(series));
+    }
+
+    private static boolean retryableError(Throwable error, Config config) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CallNotPermittedException) {
+                return false;
+            }
+            for (Class<? extends Throwable> exception : config.getExceptions()) {
+                if (exception.isInstance(cause)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the delay asked by a {@code Retry-After} header, in seconds or as an HTTP date, or null
+     */
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+
+    /**
+     * Budget and meters of one route, created on its first request
+     */
+    private final class RouteRetry {
+        private final double budgetRatio;
+        private final int budgetBurst;
+        private final TokenBudget budget;
+        private final Gauge available;
+        private final DistributionSummary attempts;
+        private final Counter skippedBudget;
+        private final Counter skippedCircuitOpen;
+        private final Counter skippedRetryAfter;
+
+        private RouteRetry(String routeId, Config config) {
+            this.budgetRatio = config.getBudgetRatio();
+            this.budgetBurst = config.getBudgetBurst();
+            this.budget = new TokenBudget(budgetRatio, budgetBurst);
+            this.attempts = DistributionSummary.builder("gateway.retry.attempts")
+                    .description("Upstream attempts per request; the mean is the retry amplification")
+                    .tag("routeId", routeId)
+                    .register(meterRegistry);
+            this.skippedBudget = skipped(routeId, "budget");
+            this.skippedCircuitOpen = skipped(routeId, "circuit_open");
+            this.skippedRetryAfter = skipped(routeId, "retry_after");
+            this.available = Gauge.builder("gateway.retry.budget.available", budget, TokenBudget::getAvailable)
+                    .description("Retries the route may currently make")
+                    .tag("routeId", routeId)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Whether the budget was built from the budget settings of {@code config}
+         */
+        private boolean budgetOf(Config config) {
+            return budgetRatio == config.getBudgetRatio() && budgetBurst == config.getBudgetBurst();
+        }
+
+        private Counter skipped(String routeId, String reason) {
+            return Counter.builder("gateway.retry.skipped")
+                    .description("Retryable failures returned without retry")
+                    .tag("routeId", routeId)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+        private int retries = 3;
+        private List<HttpMethod> methods = List.of(HttpMethod.GET);
+        private List<HttpStatus.Series> series = List.of(HttpStatus.Series.SERVER_ERROR);
+        private List<Integer> statuses = List.of();
+        private List<Class<? extends Throwable>> exceptions = List.of(IOException.class, TimeoutException.class);
+        private Backoff backoff = new Backoff();
+
+        /**
+         * Retries earned per request of the route
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * Retries that may be made at once after a quiet period
+         */
+        private int budgetBurst = 10;
+
+        /**
+         * Resilience4j circuit breaker guarding the route; no retries while it is open
+         */
+        private String circuitBreaker;
+
+        public int getRetries() {
+            return retries;
+        }
+
+        public void setRetries(int retries) {
+            this.retries = retries;
+        }
+
+        public List<HttpMethod> getMethods() {
+            return methods;
+        }
+
+        public void setMethods(List<HttpMethod> methods) {
+            this.methods = methods;
+        }
+
+        public List<HttpStatus.Series> getSeries() {
+            return series;
+        }
+
+        public void setSeries(List<HttpStatus.Series> series) {
+            this.series = series;
+        }
+
+        public List<Integer> getStatuses() {
+            return statuses;
+        }
+
+        public void setStatuses(List<Integer> statuses) {
+            this.statuses = statuses;
+        }
+
+        public List<Class<? extends Throwable>> getExceptions() {
+            return exceptions;
+        }
+
+        public void setExceptions(List<Class<? extends Throwable>> exceptions) {
+            this.exceptions = exceptions;
+        }
+
+        public Backoff getBackoff() {
+            return backoff;
+        }
+
+        public void setBackoff(Backoff backoff) {
+            this.backoff = backoff;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public void setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+        }
+
+        public int getBudgetBurst() {
+            return budgetBurst;
+        }
+
+        public void setBudgetBurst(int budgetBurst) {
+            this.budgetBurst = budgetBurst;
+        }
+
+        public String getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public void setCircuitBreaker(String circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+
+    public static class Backoff {
+        private Duration firstBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        private int factor = 2;
+
+        /**
+         * Full jitter: uniformly random up to the exponential delay of the attempt
+         */
+        Duration delay(int attempt) {
+            double ceiling = firstBackoff.toNanos() * Math.pow(factor, attempt - 1);
+            long capped = (long) Math.min(ceiling, maxBackoff.toNanos());
+            return Duration.ofNanos(ThreadLocalRandom.current().nextLong(capped + 1));
+        }
+
+        public Duration getFirstBackoff() {
+            return firstBackoff;
+        }
+
+        public void setFirstBackoff(Duration firstBackoff) {
+            this.firstBackoff = firstBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public int getFactor() {
+            return factor;
+        }
+
+        public void setFactor(int factor) {
+            this.factor = factor;
+        }
+    }
+}
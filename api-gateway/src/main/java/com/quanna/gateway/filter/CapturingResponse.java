@@ -0,0 +1,126 @@
+package com.quanna.gateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+
+/**
+ * Copies the upstream body while it is written to the client and hands it over once complete.
+ *
+ * The decorator only sees the write when installed by a filter ordered before
+ * {@link org.springframework.cloud.gateway.filter.NettyWriteResponseFilter}. Bodies that outgrow
+ * {@code maxBodySize}, streaming responses and aborted exchanges complete with a null body;
+ * {@link #complete} is called exactly once as long as {@link #abandon} is called when the chain ends.
+ */
+abstract class CapturingResponse extends ServerHttpResponseDecorator {
+
+    private final ServerWebExchange exchange;
+    private final long maxBodySize;
+    private boolean completed;
+
+    CapturingResponse(ServerWebExchange exchange, long maxBodySize) {
+        super(exchange.getResponse());
+        this.exchange = exchange;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * @return whether the body should be copied; checked once the upstream status and headers are known
+     */
+    protected abstract boolean shouldCapture(HttpStatusCode status, HttpHeaders upstreamHeaders);
+
+    /**
+     * @param body the complete upstream body, or null when it was not captured
+     */
+    protected abstract void complete(HttpStatusCode status, HttpHeaders upstreamHeaders, byte[] body);
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        HttpHeaders upstreamHeaders = upstreamHeaders();
+        HttpStatusCode status = getStatusCode() != null ? getStatusCode() : HttpStatus.OK;
+        if (!shouldCapture(status, upstreamHeaders)) {
+            completeOnce(status, upstreamHeaders, null);
+            return super.writeWith(body);
+        }
+
+        ByteArrayOutputStream[] captured = {new ByteArrayOutputStream()};
+        Flux<DataBuffer> capturing = Flux.<DataBuffer>from(body).doOnNext(buffer -> {
+            ByteArrayOutputStream out = captured[0];
+            if (out == null) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (out.size() + length > maxBodySize) {
+                captured[0] = null;
+                return;
+            }
+            byte[] bytes = new byte[length];
+            int position = buffer.readPosition();
+            buffer.read(bytes);
+            buffer.readPosition(position);
+            out.write(bytes, 0, length);
+        });
+        return super.writeWith(capturing).doOnSuccess(ignored -> completeOnce(status, upstreamHeaders,
+                captured[0] == null ? null : captured[0].toByteArray()));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        // Streaming responses are not captured
+        completeOnce(getStatusCode(), getHeaders(), null);
+        return super.writeAndFlushWith(body);
+    }
+
+    /**
+     * Whether the response was received from the upstream, rather than made by a gateway filter
+     * (fallback, rate limit rejection, shed request)
+     */
+    protected boolean isFromUpstream() {
+        return exchange.getAttribute(CLIENT_RESPONSE_HEADER_NAMES) != null;
+    }
+
+    /**
+     * Completes with a null body unless the capture already completed
+     */
+    void abandon() {
+        completeOnce(getStatusCode(), getHeaders(), null);
+    }
+
+    /**
+     * Headers received from the upstream, without those added by gateway filters (rate limit, CORS)
+     */
+    private HttpHeaders upstreamHeaders() {
+        Set<String> names = exchange.getAttribute(CLIENT_RESPONSE_HEADER_NAMES);
+        HttpHeaders headers = new HttpHeaders();
+        if (names == null) {
+            headers.putAll(getHeaders());
+        } else {
+            for (String name : names) {
+                List<String> values = getHeaders().get(name);
+                if (values != null) {
+                    headers.put(name, values);
+                }
+            }
+        }
+        return headers;
+    }
+
+    private void completeOnce(HttpStatusCode status, HttpHeaders upstreamHeaders, byte[] body) {
+        if (!completed) {
+            completed = true;
+            complete(status, upstreamHeaders, body);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.hedge.HedgeBudget;
+import com.quanna.gateway.hedge.HedgeDelay;
+import com.quanna.gateway.hedge.HedgeProperties;
+import com.quanna.gateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.quanna.gateway.metrics.RouteTiming;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Sends a second attempt of a GET or HEAD request when the first one is slow.
+ *
+ * If the upstream has not answered after the {@code percentile} of the route's recent latencies,
+ * a hedge goes out through the rest of the chain, load balanced away from the instance serving the
+ * first attempt. The attempt whose upstream answers first writes the response; the other one is
+ * cancelled and its connection closed. Hedges are limited by {@link HedgeBudget} across all routes.
+ *
+ * Each attempt runs on its own copy of the exchange attributes and response status and headers, so
+ * the routing filters of both do not interfere; the winner's are copied to the real exchange. Like
+ * {@link ResponseCacheGatewayFilterFactory} the filter runs before {@link NettyWriteResponseFilter},
+ * so everything after it, including the route's Retry and CircuitBreaker, runs once per attempt.
+ *
+ * An attempt that fails before a hedge was sent fails the request. Once both are running, the
+ * request only fails when both do.
+ *
+ * Only upstream responses race: one the gateway made itself for an attempt (circuit breaker fallback,
+ * rate limit rejection, shed request) is held back while the other attempt is still running, and only
+ * written if that one fails too.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final HedgeBudget budget;
+    private final HedgeProperties properties;
+
+    public HedgeGatewayFilterFactory(HedgeBudget budget, HedgeProperties properties) {
+        super(Config.class);
+        this.budget = budget;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("percentile");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgeDelay delay = new HedgeDelay(properties.getSampleSize(), config.getPercentile(),
+                config.getMinDelay(), config.getInitialDelay());
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+                return chain.filter(exchange);
+            }
+            budget.onRequest();
+            return new HedgedCall(exchange, chain, delay).run();
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    /**
+     * The attempts of one request and which of them answered first
+     */
+    private final class HedgedCall {
+        private final ServerWebExchange exchange;
+        private final GatewayFilterChain chain;
+        private final HedgeDelay delay;
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private Attempt parked;
+
+        private HedgedCall(ServerWebExchange exchange, GatewayFilterChain chain, HedgeDelay delay) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.delay = delay;
+        }
+
+        Mono<Void> run() {
+            Attempt primary = new Attempt(null);
+            Mono<Attempt> hedge = Mono.delay(Duration.ofNanos(delay.getDelayNanos(System.nanoTime())))
+                    .filter(tick -> winner.get() == null && budget.tryHedge())
+                    .flatMap(tick -> attempt(new Attempt(primary)));
+            // next() cancels the losing attempt once the winner has written its response
+            return Flux.merge(attempt(primary), hedge).next().then();
+        }
+
+        private Mono<Attempt> attempt(Attempt attempt) {
+            started.incrementAndGet();
+            return chain.filter(attempt.exchange)
+                    // Nothing was written, e.g. an empty response: completing claims the response
+                    .then(Mono.defer(() -> attempt.whenClaimed(Mono::empty)))
+                    .thenReturn(attempt)
+                    .onErrorResume(error -> {
+                        Attempt resumed;
+                        synchronized (this) {
+                            if (attempt.parked) {
+                                return Mono.empty();
+                            }
+                            if (winner.get() == attempt) {
+                                return Mono.error(error);
+                            }
+                            if (failed.incrementAndGet() < started.get()) {
+                                return Mono.empty();
+                            }
+                            if (parked == null) {
+                                return Mono.error(error);
+                            }
+                            resumed = parked;
+                            parked = null;
+                            resumed.parked = false;
+                        }
+                        // The response held back is better than the error
+                        resumed.resume.tryEmitEmpty();
+                        return Mono.empty();
+                    });
+        }
+
+        /**
+         * Response of one attempt: status and headers stay private until it claims the real response
+         * by writing first. A losing attempt's write never completes and is cancelled with it.
+         */
+        private final class Attempt extends ServerHttpResponseDecorator {
+            private final Attempt primary;
+            private final Map<String, Object> attributes;
+            private final ServerWebExchange exchange;
+            private final RouteTiming timing;
+            private final long startNanos = System.nanoTime();
+            private final HttpHeaders headers = new HttpHeaders();
+            private HttpStatusCode status;
+            private final Sinks.Empty<Void> resume = Sinks.empty();
+            private volatile boolean claimed;
+            private volatile boolean parked;
+            private boolean held;
+
+            private Attempt(Attempt primary) {
+                super(HedgedCall.this.exchange.getResponse());
+                this.primary = primary;
+                this.attributes = new ConcurrentHashMap<>(HedgedCall.this.exchange.getAttributes());
+                RouteTiming routeTiming = RouteTiming.get(HedgedCall.this.exchange);
+                this.timing = routeTiming != null ? new RouteTiming(routeTiming.getStartNanos()) : null;
+                if (timing != null) {
+                    attributes.put(RouteTiming.ATTRIBUTE, timing);
+                }
+                if (primary != null && primary.attributes.get(GATEWAY_LOADBALANCER_RESPONSE_ATTR) instanceof Response<?> chosen
+                        && chosen.getServer() instanceof ServiceInstance instance) {
+                    attributes.put(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_ATTR, instance);
+                }
+                this.exchange = new AttemptExchange(HedgedCall.this.exchange, attributes, this);
+            }
+
+            /**
+             * @return true if this attempt owns the real response, claiming it if still free
+             */
+            boolean claim() {
+                if (claimed) {
+                    return true;
+                }
+                if (parked || !held && !fromUpstream() && park()) {
+                    return false;
+                }
+                if (!winner.compareAndSet(null, this)) {
+                    return false;
+                }
+                long now = System.nanoTime();
+                delay.record(now - startNanos);
+                if (primary != null) {
+                    budget.onHedgeWon();
+                    // The primary was at least this slow; without it the estimate would only see winners
+                    delay.record(now - primary.startNanos);
+                }
+
+                ServerHttpResponse response = getDelegate();
+                if (status != null) {
+                    response.setStatusCode(status);
+                }
+                response.getHeaders().putAll(headers);
+                RouteTiming routeTiming = RouteTiming.get(HedgedCall.this.exchange);
+                attributes.remove(RouteTiming.ATTRIBUTE);
+                attributes.remove(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_ATTR);
+                HedgedCall.this.exchange.getAttributes().putAll(attributes);
+                if (routeTiming != null && timing != null) {
+                    routeTiming.setUpstreamNanos(timing.getUpstreamNanos());
+                }
+                claimed = true;
+                return true;
+            }
+
+            /**
+             * Set by the routing filter once the upstream answered
+             */
+            private boolean fromUpstream() {
+                return attributes.containsKey(CLIENT_RESPONSE_HEADER_NAMES);
+            }
+
+            /**
+             * Holds back a response made by the gateway if another attempt may still get an upstream one.
+             * Counts as a failure of this attempt until the other one fails too.
+             */
+            private boolean park() {
+                synchronized (HedgedCall.this) {
+                    if (winner.get() != null || started.get() - failed.get() <= 1) {
+                        return false;
+                    }
+                    failed.incrementAndGet();
+                    parked = true;
+                    held = true;
+                    HedgedCall.this.parked = this;
+                    return true;
+                }
+            }
+
+            /**
+             * Writes once this attempt owns the response; a parked attempt waits to be resumed
+             */
+            private Mono<Void> whenClaimed(Supplier<Mono<Void>> write) {
+                if (claim()) {
+                    return write.get();
+                }
+                if (!held) {
+                    return Mono.never();
+                }
+                return resume.asMono().then(Mono.defer(() -> claim() ? write.get() : Mono.<Void>never()));
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return claimed ? getDelegate().getHeaders() : headers;
+            }
+
+            @Override
+            public boolean setStatusCode(HttpStatusCode status) {
+                if (claimed) {
+                    return getDelegate().setStatusCode(status);
+                }
+                this.status = status;
+                return true;
+            }
+
+            @Override
+            public HttpStatusCode getStatusCode() {
+                return claimed ? getDelegate().getStatusCode() : status;
+            }
+
+            @Override
+            public boolean isCommitted() {
+                return claimed && getDelegate().isCommitted();
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return whenClaimed(() -> super.writeWith(body));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return whenClaimed(() -> super.writeAndFlushWith(body));
+            }
+
+            @Override
+            public Mono<Void> setComplete() {
+                return whenClaimed(super::setComplete);
+            }
+        }
+    }
+
+    /**
+     * Exchange of one attempt, with its own attributes and response
+     */
+    private static final class AttemptExchange extends ServerWebExchangeDecorator {
+        private final Map<String, Object> attributes;
+        private final ServerHttpResponse response;
+
+        private AttemptExchange(ServerWebExchange delegate, Map<String, Object> attributes, ServerHttpResponse response) {
+            super(delegate);
+            this.attributes = attributes;
+            this.response = response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+    }
+
+    public static class Config {
+        /**
+         * Latency percentile of the route after which a hedge is sent
+         */
+        private double percentile = 95;
+
+        /**
+         * Lower bound of the hedge delay, so that fast routes are not hedged on noise
+         */
+        private Duration minDelay = Duration.ofMillis(10);
+
+        /**
+         * Delay used until enough latencies have been recorded
+         */
+        private Duration initialDelay = Duration.ofMillis(200);
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+    }
+}
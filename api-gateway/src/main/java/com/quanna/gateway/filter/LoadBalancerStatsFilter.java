@@ -0,0 +1,58 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.loadbalancer.InstanceStats;
+import com.quanna.gateway.loadbalancer.LoadBalancerStats;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Reports each call to a load-balanced instance to {@link LoadBalancerStats}.
+ *
+ * Done here rather than through a {@code LoadBalancerLifecycle}, which is not told about cancelled
+ * calls and would leave them counted as in flight. Latency is the time until the upstream answered,
+ * like {@link UpstreamLatencyFilter}.
+ */
+public class LoadBalancerStatsFilter implements GlobalFilter, Ordered {
+
+    private final LoadBalancerStats stats;
+
+    public LoadBalancerStatsFilter(LoadBalancerStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> chosen = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (chosen == null || !chosen.hasServer()) {
+            return chain.filter(exchange);
+        }
+        InstanceStats instance = stats.get(chosen.getServer());
+        stats.start(instance);
+        long startNanos = System.nanoTime();
+
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal == SignalType.CANCEL) {
+                stats.abandon(instance);
+                return;
+            }
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            stats.finish(instance, System.nanoTime() - startNanos, failed);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1; // Once the instance is chosen
+    }
+}
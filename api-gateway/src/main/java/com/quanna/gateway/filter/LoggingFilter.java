@@ -1,10 +1,15 @@
 package com.quanna.gateway.filter;
 
+import com.quanna.gateway.accesslog.AccessLogRecord;
+import com.quanna.gateway.accesslog.AsyncAccessLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
@@ -14,13 +19,30 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.time.Instant;
 
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
 @Component
 public class LoggingFilter implements GlobalFilter, Ordered {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingFilter.class);
 
+    /**
+     * Client closed request, as nginx logs it; there is no response status for a cancelled exchange
+     */
+    private static final int CANCELLED_STATUS = 499;
+
+    private final AsyncAccessLogger accessLogger;
+
+    public LoggingFilter(ObjectProvider<AsyncAccessLogger> accessLogger) {
+        this.accessLogger = accessLogger.getIfAvailable();
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (accessLogger != null) {
+            return filterAsync(exchange, chain);
+        }
+
         ServerHttpRequest request = exchange.getRequest();
         Instant startTime = Instant.now();
 
@@ -29,7 +51,7 @@ public class LoggingFilter implements GlobalFilter, Ordered {
                 request.getURI(),
                 request.getRemoteAddress());
 
-        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+        return chain.filter(exchange).then(Mono.<Void>fromRunnable(() -> {
             ServerHttpResponse response = exchange.getResponse();
             Duration duration = Duration.between(startTime, Instant.now());
 
@@ -38,12 +60,51 @@ public class LoggingFilter implements GlobalFilter, Ordered {
                     request.getURI(),
                     response.getStatusCode(),
                     duration.toMillis());
-        }));
+        })).doOnCancel(() -> logger.info("Cancelled request: {} {} - Status: {} - Duration: {}ms",
+                request.getMethod(),
+                request.getURI(),
+                CANCELLED_STATUS,
+                Duration.between(startTime, Instant.now()).toMillis()));
     }
 
     @Override
     public int getOrder() {
-        return -1; // Execute before other filters
+        return -4; // Execute before other filters, cache hits included
     }
-}
 
+    /**
+     * One sampled record per exchange, handed to the background writer
+     */
+    private Mono<Void> filterAsync(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long startNanos = System.nanoTime();
+
+        return chain.filter(exchange)
+                .doOnError(error -> logExchange(exchange, startNanos, error, false))
+                .doOnSuccess(ignored -> logExchange(exchange, startNanos, null, false))
+                .doOnCancel(() -> logExchange(exchange, startNanos, null, true));
+    }
+
+    private void logExchange(ServerWebExchange exchange, long startNanos, Throwable error, boolean cancelled) {
+        long durationNanos = System.nanoTime() - startNanos;
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = cancelled ? CANCELLED_STATUS
+                : statusCode != null ? statusCode.value() : (error != null ? 500 : 200);
+
+        if (!accessLogger.shouldLog(status, durationNanos, error, cancelled)) {
+            return;
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        accessLogger.log(new AccessLogRecord(
+                System.currentTimeMillis(),
+                request.getMethod().name(),
+                request.getPath().value(),
+                request.getRemoteAddress(),
+                route != null ? route.getId() : "-",
+                status,
+                durationNanos,
+                error,
+                cancelled));
+    }
+}
@@ -0,0 +1,158 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.coalescing.RequestCoalescer;
+import com.quanna.gateway.coalescing.SharedResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Collapses concurrent identical GET and HEAD requests of a route into one upstream call.
+ *
+ * Requests are identical when route, method, path, query and the request headers listed in
+ * {@code headers} match. While the first one is in flight the others wait, then get a copy of its
+ * status, upstream headers and body. Unlike {@link ResponseCacheGatewayFilterFactory} nothing is kept
+ * afterwards. Only 2xx responses received from the upstream are shared, and not those setting cookies,
+ * streaming or larger than {@code request-coalescing.max-body-size}. Otherwise, e.g. after an error,
+ * a 5xx or a fallback, the waiting requests go through the rest of the chain themselves.
+ *
+ * Waiting requests skip the filters after this one, so a rate limiter meant to count them must be
+ * ordered before it, e.g. {@code TieredRequestRateLimiter} with {@code order: -3}.
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private static final List<String> UNSHARED_HEADERS = List.of(HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONNECTION, HttpHeaders.DATE, "Keep-Alive");
+
+    private final RequestCoalescer coalescer;
+
+    public RequestCoalescingGatewayFilterFactory(RequestCoalescer coalescer) {
+        super(Config.class);
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("headers");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Same position as ResponseCache: the decorator has to see the write done by NettyWriteResponseFilter
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+                return chain.filter(exchange);
+            }
+
+            String key = key(exchange, config);
+            Mono<SharedResponse> origin = coalescer.join(key);
+            if (origin != null) {
+                return origin.map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(shared -> shared.isPresent()
+                                ? writeShared(exchange, shared.get())
+                                : chain.filter(exchange));
+            }
+
+            SharingResponse response = new SharingResponse(exchange, key);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.abandon());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static Mono<Void> writeShared(ServerWebExchange exchange, SharedResponse shared) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        if (shared.body().length == 0) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private static String key(ServerWebExchange exchange, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        StringBuilder key = new StringBuilder(128)
+                .append(route != null ? route.getId() : "")
+                .append(' ')
+                .append(request.getMethod().name())
+                .append(' ')
+                .append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : config.getHeaders()) {
+            key.append('\n').append(header).append(':');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Hands the upstream response of the origin request to the requests waiting on its key
+     */
+    private final class SharingResponse extends CapturingResponse {
+        private final String key;
+
+        private SharingResponse(ServerWebExchange exchange, String key) {
+            super(exchange, coalescer.getMaxBodySize());
+            this.key = key;
+        }
+
+        @Override
+        protected boolean shouldCapture(HttpStatusCode status, HttpHeaders upstreamHeaders) {
+            return isFromUpstream() && status.is2xxSuccessful()
+                    && !upstreamHeaders.containsKey(HttpHeaders.SET_COOKIE)
+                    && upstreamHeaders.getContentLength() <= coalescer.getMaxBodySize();
+        }
+
+        @Override
+        protected void complete(HttpStatusCode status, HttpHeaders upstreamHeaders, byte[] body) {
+            if (body == null) {
+                coalescer.complete(key, null);
+                return;
+            }
+            UNSHARED_HEADERS.forEach(upstreamHeaders::remove);
+            coalescer.complete(key, new SharedResponse(status, HttpHeaders.readOnlyHttpHeaders(upstreamHeaders), body));
+        }
+    }
+
+    public static class Config {
+        /**
+         * Request headers that must match for two requests to share a response; X-User-ID is the
+         * identity of userKeyResolver
+         */
+        private List<String> headers = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING,
+                HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, "X-User-ID");
+
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        public void setHeaders(List<String> headers) {
+            this.headers = headers;
+        }
+    }
+}
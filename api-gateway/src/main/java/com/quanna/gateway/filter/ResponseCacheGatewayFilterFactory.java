@@ -0,0 +1,271 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.cache.CachedResponse;
+import com.quanna.gateway.cache.ResponseCache;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Caches successful GET responses of a route in {@link ResponseCache}.
+ *
+ * The key is route, path, query and the request headers listed in {@code varyHeaders}. Upstream
+ * {@code Cache-Control} is honoured: {@code no-store}, {@code no-cache} and {@code private} responses
+ * are not stored, {@code s-maxage}/{@code max-age} override {@code timeToLive}. Responses that vary on
+ * a header outside the key, set cookies or answer an authorized request are not stored either.
+ *
+ * Cached entries carry the upstream ETag, or a weak one computed from the body, and requests with a
+ * matching {@code If-None-Match} get a 304. Concurrent misses for one key share a single upstream call.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final String CACHE_HEADER = "X-Cache";
+    private static final List<String> UNCACHED_HEADERS = List.of(HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONNECTION, HttpHeaders.DATE, HttpHeaders.SET_COOKIE, "Keep-Alive");
+
+    private final ResponseCache cache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache cache) {
+        super(Config.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("timeToLive");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Runs before the other route filters, so hits skip rate limiting and circuit breaking, and
+        // before NettyWriteResponseFilter, whose body write the caching decorator has to see
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+                return chain.filter(exchange);
+            }
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (hasDirective(requestCacheControl, "no-store")) {
+                return chain.filter(exchange);
+            }
+
+            String key = key(exchange, config);
+            if (!hasDirective(requestCacheControl, "no-cache")) {
+                CachedResponse cached = cache.get(key);
+                if (cached != null) {
+                    return writeCached(exchange, cached);
+                }
+            }
+
+            ResponseCache.Fetch fetch = cache.joinInFlight(key, service(exchange));
+            if (!fetch.isLeading()) {
+                return fetch.result().map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(leader -> leader.isPresent()
+                                ? writeCached(exchange, leader.get())
+                                : chain.filter(exchange));
+            }
+
+            CachingResponse response = new CachingResponse(exchange, key, fetch, config);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.abandon());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.setETag(cached.etag());
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.currentTimeMillis())));
+        headers.set(CACHE_HEADER, "HIT");
+
+        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || weakEquals(candidate, etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean weakEquals(String first, String second) {
+        return stripWeak(first).equals(stripWeak(second));
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String key(ServerWebExchange exchange, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        StringBuilder key = new StringBuilder(128)
+                .append(route != null ? route.getId() : "")
+                .append(' ')
+                .append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : config.getVaryHeaders()) {
+            key.append('\n').append(header).append(':');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Host of the route's URI, the service id for {@code lb://} routes
+     */
+    private static String service(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getUri().getHost() : null;
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive) {
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains(directive);
+    }
+
+    /**
+     * @return how long the upstream response may be cached, or null if it may not
+     */
+    private Duration timeToLive(HttpHeaders headers, int status, Config config) {
+        if (status != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.getContentLength() > cache.getMaxEntrySize()) {
+            return null;
+        }
+        for (String vary : headers.getVary()) {
+            if (vary.equals("*") || config.getVaryHeaders().stream().noneMatch(vary::equalsIgnoreCase)) {
+                return null;
+            }
+        }
+
+        Duration timeToLive = config.getTimeToLive();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            long maxAge = -1;
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                    return null;
+                }
+                if (directive.startsWith("s-maxage=")) {
+                    maxAge = parseSeconds(directive.substring(9));
+                } else if (directive.startsWith("max-age=") && maxAge < 0) {
+                    maxAge = parseSeconds(directive.substring(8));
+                }
+            }
+            if (maxAge >= 0) {
+                timeToLive = Duration.ofSeconds(maxAge);
+            }
+        }
+        return timeToLive.isZero() || timeToLive.isNegative() ? null : timeToLive;
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String weakEtag(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return "W/\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length) + "\"";
+    }
+
+    /**
+     * Stores the upstream response under its key once written, if cacheable, and releases waiting requests
+     */
+    private final class CachingResponse extends CapturingResponse {
+        private final String key;
+        private final ResponseCache.Fetch fetch;
+        private final Config config;
+        private final String service;
+        private Duration timeToLive;
+
+        private CachingResponse(ServerWebExchange exchange, String key, ResponseCache.Fetch fetch, Config config) {
+            super(exchange, cache.getMaxEntrySize());
+            this.key = key;
+            this.fetch = fetch;
+            this.config = config;
+            this.service = service(exchange);
+        }
+
+        @Override
+        protected boolean shouldCapture(HttpStatusCode status, HttpHeaders upstreamHeaders) {
+            timeToLive = timeToLive(upstreamHeaders, status.value(), config);
+            return timeToLive != null;
+        }
+
+        @Override
+        protected void complete(HttpStatusCode status, HttpHeaders upstreamHeaders, byte[] body) {
+            cache.complete(key, fetch, body == null ? null : toCachedResponse(upstreamHeaders, body, timeToLive));
+        }
+
+        private CachedResponse toCachedResponse(HttpHeaders upstreamHeaders, byte[] body, Duration timeToLive) {
+            UNCACHED_HEADERS.forEach(upstreamHeaders::remove);
+            String etag = upstreamHeaders.getETag() != null ? upstreamHeaders.getETag() : weakEtag(body);
+            return new CachedResponse(HttpStatus.OK, HttpHeaders.readOnlyHttpHeaders(upstreamHeaders), body, etag,
+                    System.currentTimeMillis(), timeToLive, service, fetch.generation());
+        }
+    }
+
+    public static class Config {
+        private Duration timeToLive = Duration.ofSeconds(60);
+        private List<String> varyHeaders = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public List<String> getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        public void setVaryHeaders(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.metrics.RouteLatencyMetrics;
+import com.quanna.gateway.metrics.RouteTiming;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Records total per-route latency; the upstream share is measured by {@link UpstreamLatencyFilter}.
+ * Exchanges cancelled by a client disconnect or a timeout are recorded as {@code 499}, so they still
+ * show up in the histograms.
+ */
+@Component
+public class RouteLatencyFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Client closed request, as nginx logs it
+     */
+    static final int CANCELLED_STATUS = 499;
+
+    private final RouteLatencyMetrics metrics;
+
+    public RouteLatencyFilter(RouteLatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RouteTiming timing = new RouteTiming(System.nanoTime());
+        exchange.getAttributes().put(RouteTiming.ATTRIBUTE, timing);
+
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, timing, signal));
+    }
+
+    @Override
+    public int getOrder() {
+        return -3; // Wrap NettyWriteResponseFilter and ResponseCache so the body write and cache hits are included
+    }
+
+    private void record(ServerWebExchange exchange, RouteTiming timing, SignalType signal) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return;
+        }
+        metrics.record(route.getId(), status(exchange, signal),
+                System.nanoTime() - timing.getStartNanos(),
+                timing.getUpstreamNanos());
+    }
+
+    /**
+     * A cancelled exchange may already carry the upstream status, but the client never got the full response
+     */
+    private static int status(ServerWebExchange exchange, SignalType signal) {
+        if (signal == SignalType.CANCEL) {
+            return CANCELLED_STATUS;
+        }
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        if (statusCode != null) {
+            return statusCode.value();
+        }
+        return signal == SignalType.ON_ERROR ? 500 : 200;
+    }
+}
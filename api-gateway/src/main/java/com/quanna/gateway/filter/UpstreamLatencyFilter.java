@@ -0,0 +1,50 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.concurrency.UpstreamSample;
+import com.quanna.gateway.metrics.RouteTiming;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Measures time spent in the routing filter, i.e. until the upstream response arrives.
+ * Retried attempts pass through this filter again and are added up.
+ *
+ * Each attempt is also reported to the request's {@link UpstreamSample}, if any; attempts cancelled
+ * before the upstream answered, like a losing hedge, are not.
+ */
+@Component
+public class UpstreamLatencyFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RouteTiming timing = RouteTiming.get(exchange);
+        UpstreamSample sample = UpstreamSample.get(exchange);
+        if (timing == null && sample == null) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
+
+        return chain.filter(exchange).doFinally(signal -> {
+            long elapsed = System.nanoTime() - startNanos;
+            if (timing != null) {
+                long previous = timing.getUpstreamNanos();
+                timing.setUpstreamNanos(previous < 0 ? elapsed : previous + elapsed);
+            }
+            if (sample != null && signal != SignalType.CANCEL) {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                sample.record(elapsed, signal == SignalType.ON_ERROR || status != null && status.is5xxServerError());
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return UpstreamRoutingFilter.ORDER - 1; // Right before the routing filters
+    }
+}
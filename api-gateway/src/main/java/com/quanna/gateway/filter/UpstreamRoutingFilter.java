@@ -0,0 +1,66 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.upstream.UpstreamConnectionPools;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Routes requests of the routes that have their own pool in {@link UpstreamConnectionPools}, right
+ * before the default {@link NettyRoutingFilter}. That one then sees the exchange as already routed;
+ * other routes pass through untouched and keep using the shared pool.
+ */
+public class UpstreamRoutingFilter extends NettyRoutingFilter {
+
+    public static final int ORDER = NettyRoutingFilter.ORDER - 1;
+
+    private final UpstreamConnectionPools pools;
+
+    public UpstreamRoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                 HttpClientProperties properties, UpstreamConnectionPools pools) {
+        super(httpClient, headersFiltersProvider, properties);
+        this.pools = pools;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || pools.get(route) == null) {
+            return chain.filter(exchange);
+        }
+        return super.filter(exchange, chain);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = pools.get(route);
+        if (client == null) {
+            return super.getHttpClient(route, exchange);
+        }
+        // The global connect timeout is already part of the pool's client
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            int millis = connectTimeout instanceof Number number ? number.intValue()
+                    : Integer.parseInt(connectTimeout.toString());
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, millis);
+        }
+        return client;
+    }
+}
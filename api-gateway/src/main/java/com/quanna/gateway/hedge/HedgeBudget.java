@@ -0,0 +1,70 @@
+package com.quanna.gateway.hedge;
+
+import com.quanna.gateway.budget.TokenBudget;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gateway-wide budget of the {@code Hedge} route filter, shared by all hedged routes.
+ *
+ * {@code gateway.hedge.requests} counts by result: {@code sent} hedges that went upstream,
+ * {@code won} hedges answered before the original attempt, {@code denied} hedges the budget did
+ * not allow. {@code won / sent} shows whether the delay percentile is well chosen.
+ */
+@Component
+public class HedgeBudget implements MeterBinder {
+
+    private final TokenBudget budget;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    public HedgeBudget(HedgeProperties properties) {
+        this.budget = new TokenBudget(properties.getBudgetRatio(), properties.getBudgetBurst());
+    }
+
+    /**
+     * Credits one hedgeable request
+     */
+    public void onRequest() {
+        budget.deposit();
+    }
+
+    /**
+     * @return true if a hedge may be sent now
+     */
+    public boolean tryHedge() {
+        if (budget.tryWithdraw()) {
+            sent.increment();
+            return true;
+        }
+        denied.increment();
+        return false;
+    }
+
+    public void onHedgeWon() {
+        won.increment();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, sent, "sent");
+        counter(registry, won, "won");
+        counter(registry, denied, "denied");
+        Gauge.builder("gateway.hedge.budget.available", budget, TokenBudget::getAvailable)
+                .description("Hedges that may currently be sent")
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, LongAdder adder, String result) {
+        FunctionCounter.builder("gateway.hedge.requests", adder, LongAdder::sum)
+                .tag("result", result)
+                .description("Hedged attempts by outcome")
+                .register(registry);
+    }
+}
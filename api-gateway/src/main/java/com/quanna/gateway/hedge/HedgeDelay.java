@@ -0,0 +1,68 @@
+package com.quanna.gateway.hedge;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hedge delay of one route: a percentile of its recent upstream latencies.
+ *
+ * Latencies go into a fixed ring of samples; the percentile is recomputed at most once per second
+ * by whichever request finds it stale, so reading the delay is normally two volatile reads.
+ * Until the ring holds enough samples the configured initial delay is used.
+ */
+public class HedgeDelay {
+
+    private static final long REFRESH_NANOS = Duration.ofSeconds(1).toNanos();
+    private static final int MIN_SAMPLES = 100;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicBoolean computing = new AtomicBoolean();
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long initialDelayNanos;
+    private volatile long delayNanos;
+    private volatile long computedAtNanos;
+
+    public HedgeDelay(int sampleSize, double percentile, Duration minDelay, Duration initialDelay) {
+        this.samples = new AtomicLongArray(sampleSize);
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.initialDelayNanos = initialDelay.toNanos();
+        this.delayNanos = Math.max(minDelayNanos, initialDelayNanos);
+        this.computedAtNanos = System.nanoTime();
+    }
+
+    public void record(long latencyNanos) {
+        samples.lazySet((int) (count.getAndIncrement() % samples.length()), latencyNanos);
+    }
+
+    public long getDelayNanos(long nowNanos) {
+        if (nowNanos - computedAtNanos > REFRESH_NANOS && computing.compareAndSet(false, true)) {
+            try {
+                delayNanos = compute();
+                computedAtNanos = nowNanos;
+            } finally {
+                computing.set(false);
+            }
+        }
+        return delayNanos;
+    }
+
+    private long compute() {
+        int size = (int) Math.min(count.get(), samples.length());
+        if (size < Math.min(MIN_SAMPLES, samples.length())) {
+            return Math.max(minDelayNanos, initialDelayNanos);
+        }
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return Math.max(minDelayNanos, sorted[Math.min(size - 1, Math.max(0, index))]);
+    }
+}
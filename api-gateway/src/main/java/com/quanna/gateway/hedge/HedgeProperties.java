@@ -0,0 +1,48 @@
+package com.quanna.gateway.hedge;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "hedge")
+public class HedgeProperties {
+
+    /**
+     * Hedges allowed per original request of any hedged route, across the gateway
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * Hedges that may be sent at once after a quiet period
+     */
+    private int budgetBurst = 10;
+
+    /**
+     * Recent upstream latencies kept per route to estimate the hedge delay
+     */
+    private int sampleSize = 512;
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getBudgetBurst() {
+        return budgetBurst;
+    }
+
+    public void setBudgetBurst(int budgetBurst) {
+        this.budgetBurst = budgetBurst;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+}
@@ -0,0 +1,66 @@
+package com.quanna.gateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of one upstream instance: calls in flight and a time-decayed average of their latency
+ */
+public final class InstanceStats {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long addedNanos;
+    private double latencyNanos = -1;
+    private long lastSampleNanos;
+
+    InstanceStats(long addedNanos) {
+        this.addedNanos = addedNanos;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return average latency, or -1 before the first sample
+     */
+    public synchronized double getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    synchronized long getLastSampleNanos() {
+        return lastSampleNanos;
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+    }
+
+    void finish() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Samples are weighted by the time since the previous one, so the average tracks the recent past
+     * regardless of request rate, and an idle instance is re-measured by its next call.
+     */
+    synchronized void record(long sampleNanos, long nowNanos, long decayNanos) {
+        if (latencyNanos < 0) {
+            latencyNanos = sampleNanos;
+        } else {
+            double keep = Math.exp(-(double) (nowNanos - lastSampleNanos) / decayNanos);
+            latencyNanos = latencyNanos * keep + sampleNanos * (1 - keep);
+        }
+        lastSampleNanos = nowNanos;
+    }
+
+    /**
+     * @return share of traffic relative to a warm instance, growing linearly over the slow start window
+     */
+    double weight(long nowNanos, long slowStartNanos, double minWeight) {
+        long age = nowNanos - addedNanos;
+        if (age >= slowStartNanos) {
+            return 1;
+        }
+        return Math.max(minWeight, (double) age / slowStartNanos);
+    }
+}
@@ -0,0 +1,162 @@
+package com.quanna.gateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices over latency and load.
+ *
+ * Two distinct instances are drawn at random and the one with the lower {@link LoadBalancerStats#cost}
+ * wins: average latency times calls in flight, divided by the slow start weight. A slow or overloaded
+ * instance therefore loses most draws, while the random pair keeps every instance sampled and avoids
+ * the herding of always picking the global minimum.
+ *
+ * Instances present in the first listing are considered warm; instances joining later start with
+ * {@code slow-start-min-weight} of a full share and ramp up over {@code slow-start}.
+ *
+ * A request whose exchange carries {@link #EXCLUDED_INSTANCE_ATTR} avoids that instance when another
+ * one is available; hedged attempts use it to reach a different instance than the original.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String EXCLUDED_INSTANCE_ATTR = LatencyAwareLoadBalancer.class.getName() + ".excludedInstance";
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final LoadBalancerStats stats;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private volatile boolean initialized;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                    String serviceId, LoadBalancerStats stats) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        ServiceInstance excluded = excluded(request);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances, excluded);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private static ServiceInstance excluded(Request<?> request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getAttributes() != null
+                && context.getClientRequest().getAttributes().get(EXCLUDED_INSTANCE_ATTR) instanceof ServiceInstance instance) {
+            return instance;
+        }
+        return null;
+    }
+
+    /**
+     * Membership is synced from the full listing: an excluded instance is only skipped by the draw,
+     * it keeps its latency history and slow start.
+     */
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, ServiceInstance excluded) {
+        if (instances.isEmpty()) {
+            logger.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        sync(instances);
+        // The excluded instance still serves when it is the only one
+        int skip = excluded != null && instances.size() > 1 ? indexOf(instances, excluded) : -1;
+        int candidates = skip >= 0 ? instances.size() - 1 : instances.size();
+        if (candidates == 1) {
+            return new DefaultResponse(instances.get(index(0, skip)));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates);
+        int second = random.nextInt(candidates - 1);
+        if (second >= first) {
+            second++;
+        }
+        first = index(first, skip);
+        second = index(second, skip);
+        InstanceStats a = stats.get(instances.get(first));
+        InstanceStats b = stats.get(instances.get(second));
+
+        // An instance without samples is assumed as fast as the other one, slow start aside
+        long now = System.nanoTime();
+        double latencyA = stats.latency(a, now);
+        double latencyB = stats.latency(b, now);
+        double costA = stats.cost(a, latencyB >= 0 ? latencyB : 1, now);
+        double costB = stats.cost(b, latencyA >= 0 ? latencyA : 1, now);
+        return new DefaultResponse(instances.get(costA <= costB ? first : second));
+    }
+
+    private static int indexOf(List<ServiceInstance> instances, ServiceInstance excluded) {
+        String key = LoadBalancerStats.key(excluded);
+        for (int i = 0; i < instances.size(); i++) {
+            if (LoadBalancerStats.key(instances.get(i)).equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Position in the listing of the {@code candidate}-th instance drawn, past the skipped one
+     */
+    private static int index(int candidate, int skip) {
+        return skip >= 0 && candidate >= skip ? candidate + 1 : candidate;
+    }
+
+    /**
+     * Tracks membership changes so that new instances get a slow start and departed ones are forgotten.
+     * Only runs when the listing size changes; an instance replaced in place is picked up by
+     * {@link LoadBalancerStats#get} as a new one.
+     */
+    private void sync(List<ServiceInstance> instances) {
+        if (initialized && known.size() == instances.size()) {
+            return;
+        }
+        synchronized (this) {
+            Set<String> current = new HashSet<>();
+            for (ServiceInstance instance : instances) {
+                String key = LoadBalancerStats.key(instance);
+                current.add(key);
+                if (known.add(key)) {
+                    stats.add(key, !initialized);
+                }
+            }
+            known.removeIf(key -> {
+                if (current.contains(key)) {
+                    return false;
+                }
+                stats.remove(key);
+                return true;
+            });
+            initialized = true;
+        }
+    }
+}
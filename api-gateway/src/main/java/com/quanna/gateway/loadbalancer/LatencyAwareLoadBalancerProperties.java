@@ -0,0 +1,77 @@
+package com.quanna.gateway.loadbalancer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "load-balancer")
+public class LatencyAwareLoadBalancerProperties {
+
+    /**
+     * latency-aware or round-robin (Spring Cloud LoadBalancer default)
+     */
+    private String strategy = "latency-aware";
+
+    /**
+     * Time constant of the latency average; a sample taken this long after the previous one
+     * carries about 63% of the weight
+     */
+    private Duration decayTime = Duration.ofSeconds(1);
+
+    /**
+     * Time over which an instance that joined after startup ramps up to a full share of traffic
+     */
+    private Duration slowStart = Duration.ofSeconds(30);
+
+    /**
+     * Share of a fully warmed instance given to one that just joined
+     */
+    private double slowStartMinWeight = 0.1;
+
+    /**
+     * Latency recorded for failed calls and 5xx responses that came back faster than this
+     */
+    private Duration failurePenalty = Duration.ofSeconds(1);
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public Duration getDecayTime() {
+        return decayTime;
+    }
+
+    public void setDecayTime(Duration decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public Duration getSlowStart() {
+        return slowStart;
+    }
+
+    public void setSlowStart(Duration slowStart) {
+        this.slowStart = slowStart;
+    }
+
+    public double getSlowStartMinWeight() {
+        return slowStartMinWeight;
+    }
+
+    public void setSlowStartMinWeight(double slowStartMinWeight) {
+        this.slowStartMinWeight = slowStartMinWeight;
+    }
+
+    public Duration getFailurePenalty() {
+        return failurePenalty;
+    }
+
+    public void setFailurePenalty(Duration failurePenalty) {
+        this.failurePenalty = failurePenalty;
+    }
+}
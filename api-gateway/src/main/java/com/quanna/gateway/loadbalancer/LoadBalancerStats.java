@@ -0,0 +1,91 @@
+package com.quanna.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-instance load shared by the {@link LatencyAwareLoadBalancer} of every service.
+ * Calls are reported by {@code LoadBalancerStatsFilter} around the upstream request.
+ */
+public class LoadBalancerStats {
+
+    private final Map<String, InstanceStats> instances = new ConcurrentHashMap<>();
+    private final long decayNanos;
+    private final long slowStartNanos;
+    private final double slowStartMinWeight;
+    private final long failurePenaltyNanos;
+
+    public LoadBalancerStats(LatencyAwareLoadBalancerProperties properties) {
+        this.decayNanos = properties.getDecayTime().toNanos();
+        this.slowStartNanos = properties.getSlowStart().toNanos();
+        this.slowStartMinWeight = properties.getSlowStartMinWeight();
+        this.failurePenaltyNanos = properties.getFailurePenalty().toNanos();
+    }
+
+    /**
+     * Stats of the instance, created as just joined if unknown
+     */
+    public InstanceStats get(ServiceInstance instance) {
+        return instances.computeIfAbsent(key(instance), key -> new InstanceStats(System.nanoTime()));
+    }
+
+    /**
+     * Registers an instance seen in a service listing; warm ones skip the slow start
+     */
+    void add(String key, boolean warm) {
+        long now = System.nanoTime();
+        instances.putIfAbsent(key, new InstanceStats(warm ? now - slowStartNanos : now));
+    }
+
+    void remove(String key) {
+        instances.remove(key);
+    }
+
+    public void start(InstanceStats stats) {
+        stats.start();
+    }
+
+    /**
+     * @param latencyNanos time until the upstream answered
+     * @param failed       errors and 5xx count as at least {@code failure-penalty}
+     */
+    public void finish(InstanceStats stats, long latencyNanos, boolean failed) {
+        stats.finish();
+        stats.record(failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos, System.nanoTime(), decayNanos);
+    }
+
+    /**
+     * Releases a call that ended without a usable latency, e.g. cancelled by the client
+     */
+    public void abandon(InstanceStats stats) {
+        stats.finish();
+    }
+
+    /**
+     * @return average latency, or -1 when unknown. An average older than ten decay times is dropped:
+     * an instance that lost every draw since would otherwise never be measured again after recovering.
+     */
+    double latency(InstanceStats stats, long nowNanos) {
+        double latency = stats.getLatencyNanos();
+        return latency >= 0 && nowNanos - stats.getLastSampleNanos() <= 10 * decayNanos ? latency : -1;
+    }
+
+    /**
+     * Expected cost of sending one more call: latency times queue length, inflated during slow start.
+     * Instances without a known latency borrow {@code fallbackLatencyNanos}.
+     */
+    double cost(InstanceStats stats, double fallbackLatencyNanos, long nowNanos) {
+        double latency = latency(stats, nowNanos);
+        if (latency < 0) {
+            latency = fallbackLatencyNanos;
+        }
+        return latency * (stats.getInFlight() + 1) / stats.weight(nowNanos, slowStartNanos, slowStartMinWeight);
+    }
+
+    static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,101 @@
+package com.quanna.gateway.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-route latency timers, split by status class.
+ *
+ * Each route gets three timers: total time in the gateway, time spent waiting on the upstream
+ * service and the difference (gateway filter overhead). Timers publish p50/p99/p999 through
+ * Micrometer's HdrHistogram-backed percentiles plus a percentile histogram for Prometheus.
+ * Timers are resolved once per (route, status class) and cached, so recording is a single
+ * map lookup and array read.
+ */
+@Component
+public class RouteLatencyMetrics {
+
+    private static final String[] STATUS_CLASSES = {"UNKNOWN", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final MeterRegistry registry;
+    private final Map<String, RouteTimers> timers = new ConcurrentHashMap<>();
+    private final Function<String, RouteTimers> timersFactory = RouteTimers::new;
+
+    public RouteLatencyMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param upstreamNanos time until the upstream response arrived, or -1 when the request was not proxied
+     */
+    public void record(String routeId, int status, long totalNanos, long upstreamNanos) {
+        int statusClass = status >= 100 && status < 600 ? status / 100 : 0;
+        RouteTimers route = timers.computeIfAbsent(routeId, timersFactory);
+
+        route.total(statusClass).record(totalNanos, TimeUnit.NANOSECONDS);
+        if (upstreamNanos >= 0) {
+            route.upstream(statusClass).record(upstreamNanos, TimeUnit.NANOSECONDS);
+            route.overhead(statusClass).record(Math.max(0, totalNanos - upstreamNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, String description, String routeId, String statusClass) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("routeId", routeId)
+                .tag("status", statusClass)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private final class RouteTimers {
+        private final String routeId;
+        private final Timer[] total = new Timer[STATUS_CLASSES.length];
+        private final Timer[] upstream = new Timer[STATUS_CLASSES.length];
+        private final Timer[] overhead = new Timer[STATUS_CLASSES.length];
+
+        private RouteTimers(String routeId) {
+            this.routeId = routeId;
+        }
+
+        Timer total(int statusClass) {
+            Timer timer = total[statusClass];
+            if (timer == null) {
+                timer = timer("gateway.route.latency", "Total time spent handling a request in the gateway",
+                        routeId, STATUS_CLASSES[statusClass]);
+                total[statusClass] = timer;
+            }
+            return timer;
+        }
+
+        Timer upstream(int statusClass) {
+            Timer timer = upstream[statusClass];
+            if (timer == null) {
+                timer = timer("gateway.route.upstream.latency", "Time until the upstream service responded",
+                        routeId, STATUS_CLASSES[statusClass]);
+                upstream[statusClass] = timer;
+            }
+            return timer;
+        }
+
+        Timer overhead(int statusClass) {
+            Timer timer = overhead[statusClass];
+            if (timer == null) {
+                timer = timer("gateway.route.overhead", "Time spent in gateway filters outside the upstream call",
+                        routeId, STATUS_CLASSES[statusClass]);
+                overhead[statusClass] = timer;
+            }
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.quanna.gateway.metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Mutable timing holder shared by the latency filters of one exchange.
+ */
+public final class RouteTiming {
+
+    public static final String ATTRIBUTE = RouteTiming.class.getName();
+
+    private final long startNanos;
+    // Set by UpstreamLatencyFilter on the thread the upstream response arrives on
+    private volatile long upstreamNanos = -1;
+
+    public RouteTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static RouteTiming get(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getUpstreamNanos() {
+        return upstreamNanos;
+    }
+
+    public void setUpstreamNanos(long upstreamNanos) {
+        this.upstreamNanos = upstreamNanos;
+    }
+}
@@ -0,0 +1,85 @@
+package com.quanna.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, expiring store of per-client buckets.
+ *
+ * A bucket that has not been touched for a full refill period is back at capacity,
+ * which makes it indistinguishable from a freshly created one. Such buckets are
+ * dropped after an additional idle grace period, so evicting them never changes
+ * a rate-limit decision. The total number of entries is capped as well; when the
+ * cap is reached Caffeine's size-based (W-TinyLFU) policy evicts the least valuable keys.
+ */
+public class BucketStore implements MeterBinder {
+
+    private final String name;
+    private final Duration idleTimeout;
+    private final Cache<String, Bucket> cache;
+    private final Function<String, Bucket> loader;
+
+    public BucketStore(String name, long maxBuckets, Duration refillDuration, Duration idleTimeout,
+                       Supplier<Bucket> bucketFactory) {
+        this.name = name;
+        this.idleTimeout = idleTimeout;
+        this.loader = key -> bucketFactory.get();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(refillDuration.plus(idleTimeout))
+                .recordStats()
+                .build();
+    }
+
+    public Bucket get(String key) {
+        return cache.get(key, loader);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Applies a new refill period to the expiry policy and passes every live bucket to {@code update}
+     */
+    public void reconfigure(Duration refillDuration, Consumer<Bucket> update) {
+        cache.policy().expireAfterAccess()
+                .ifPresent(expiration -> expiration.setExpiresAfter(refillDuration.plus(idleTimeout)));
+        cache.asMap().values().forEach(update);
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("limiter", name);
+
+        Gauge.builder("gateway.ratelimit.buckets", cache, Cache::estimatedSize)
+                .tags(tags)
+                .description("Number of client buckets currently held by the rate limiter")
+                .register(registry);
+
+        FunctionCounter.builder("gateway.ratelimit.buckets.evictions", cache, c -> c.stats().evictionCount())
+                .tags(tags)
+                .description("Number of client buckets evicted by expiry or size limit")
+                .register(registry);
+
+        Gauge.builder("gateway.ratelimit.buckets.hit.ratio", cache, c -> c.stats().hitRate())
+                .tags(tags)
+                .description("Ratio of requests that found an existing bucket for their key")
+                .register(registry);
+    }
+}
@@ -0,0 +1,114 @@
+package com.quanna.gateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Rate limit key from the client IP address, without splitting headers on the hot path.
+ *
+ * With {@code trustedProxyHops = N > 0} the client is taken as the N-th {@code X-Forwarded-For}
+ * entry from the right, i.e. the address seen by the outermost of our N proxies; entries further
+ * left can be forged by the client. {@code 0} ignores the header and uses the peer address,
+ * a negative value keeps the historical behaviour of trusting the leftmost entry.
+ *
+ * Resolved keys are kept in small direct-mapped caches, keyed by the raw header value and by the
+ * peer address, together with a ready {@code Mono}. A cache hit allocates nothing.
+ */
+public class ClientIpKeyResolver implements KeyResolver {
+
+    static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final Mono<String> UNKNOWN = Mono.just("unknown");
+
+    private final int trustedProxyHops;
+    private final int mask;
+    private final HeaderEntry[] headerCache;
+    private final AddressEntry[] addressCache;
+
+    public ClientIpKeyResolver(int trustedProxyHops, int cacheSize) {
+        int size = Integer.highestOneBit(Math.max(2, cacheSize - 1)) << 1;
+        this.trustedProxyHops = trustedProxyHops;
+        this.mask = size - 1;
+        this.headerCache = new HeaderEntry[size];
+        this.addressCache = new AddressEntry[size];
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        if (trustedProxyHops != 0) {
+            String forwardedFor = exchange.getRequest().getHeaders().getFirst(FORWARDED_FOR);
+            if (forwardedFor != null && !forwardedFor.isEmpty()) {
+                Mono<String> key = fromHeader(forwardedFor);
+                if (key != null) {
+                    return key;
+                }
+            }
+        }
+        return fromAddress(exchange.getRequest().getRemoteAddress());
+    }
+
+    private Mono<String> fromHeader(String forwardedFor) {
+        int index = forwardedFor.hashCode() & mask;
+        HeaderEntry entry = headerCache[index];
+        if (entry == null || !entry.header.equals(forwardedFor)) {
+            String ip = clientIp(forwardedFor, trustedProxyHops);
+            entry = new HeaderEntry(forwardedFor, ip.isEmpty() ? null : Mono.just(ip));
+            headerCache[index] = entry;
+        }
+        return entry.key;
+    }
+
+    private Mono<String> fromAddress(InetSocketAddress remoteAddress) {
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return UNKNOWN;
+        }
+        InetAddress address = remoteAddress.getAddress();
+        int index = address.hashCode() & mask;
+        AddressEntry entry = addressCache[index];
+        if (entry == null || !entry.address.equals(address)) {
+            entry = new AddressEntry(address, Mono.just(address.getHostAddress()));
+            addressCache[index] = entry;
+        }
+        return entry.key;
+    }
+
+    /**
+     * Picks one entry of a comma separated X-Forwarded-For value by index scanning; only the
+     * returned substring is allocated, and not even that when the header holds a single clean address.
+     */
+    static String clientIp(String forwardedFor, int trustedProxyHops) {
+        int start;
+        int end;
+        if (trustedProxyHops < 0) {
+            start = 0;
+            end = forwardedFor.indexOf(',');
+            if (end < 0) {
+                end = forwardedFor.length();
+            }
+        } else {
+            end = forwardedFor.length();
+            start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+            for (int hop = 1; hop < trustedProxyHops && start > 0; hop++) {
+                end = start - 1;
+                start = forwardedFor.lastIndexOf(',', end - 1) + 1;
+            }
+        }
+
+        while (start < end && Character.isWhitespace(forwardedFor.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(forwardedFor.charAt(end - 1))) {
+            end--;
+        }
+        return start == 0 && end == forwardedFor.length() ? forwardedFor : forwardedFor.substring(start, end);
+    }
+
+    private record HeaderEntry(String header, Mono<String> key) {
+    }
+
+    private record AddressEntry(InetAddress address, Mono<String> key) {
+    }
+}
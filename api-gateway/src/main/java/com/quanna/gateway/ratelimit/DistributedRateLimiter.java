@@ -0,0 +1,182 @@
+package com.quanna.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cluster-wide rate limiter that keeps token state in a shared {@link TokenStore}.
+ *
+ * Tokens are reserved from the store in batches and handed out locally from a short-lived lease,
+ * so most requests are decided without a network round trip. Unused leased tokens are dropped
+ * when the lease expires; a replica can therefore only under-admit, never exceed the shared limit.
+ * Rejections are cached locally until the store reports the next token, so a throttled client
+ * does not turn into a stream of store calls.
+ *
+ * The store receives the limit with every reservation, so {@link #reconfigure} takes effect on the
+ * next batch and the shared token counts carry over.
+ */
+public class DistributedRateLimiter implements RateLimiter<Bucket4jRateLimiter.Config>, ReloadableRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedRateLimiter.class);
+
+    private final String name;
+    private final long configuredBatchSize;
+    private final TokenStore tokenStore;
+    private final Set<String> routeIds = ConcurrentHashMap.newKeySet();
+
+    private volatile long capacity;
+    private volatile Duration refillDuration;
+    private volatile long batchSize;
+    private final Cache<String, Lease> leases;
+    private final Function<String, Lease> leaseFactory = key -> new Lease();
+
+    public DistributedRateLimiter(String name, long capacity, Duration refillDuration, TokenStore tokenStore,
+                                  long batchSize, Duration leaseDuration, long maxLeases) {
+        this.name = name;
+        this.configuredBatchSize = batchSize;
+        applyLimit(capacity, refillDuration);
+        this.tokenStore = tokenStore;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxLeases)
+                .expireAfterWrite(leaseDuration)
+                .build();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        if (!routeIds.contains(routeId)) {
+            routeIds.add(routeId);
+        }
+        Lease lease = leases.get(id, leaseFactory);
+
+        if (lease.tryTake()) {
+            return Mono.just(response(true, lease.remaining(), 0));
+        }
+        long now = System.currentTimeMillis();
+        if (now < lease.deniedUntil) {
+            return Mono.just(response(false, 0, lease.deniedUntil - now));
+        }
+
+        return tokenStore.reserve(name + ":" + id, capacity, refillDuration, batchSize)
+                .map(grant -> {
+                    lease.remoteRemaining = grant.remaining();
+                    if (grant.granted() > 0) {
+                        lease.add(grant.granted() - 1);
+                        return response(true, lease.remaining(), 0);
+                    }
+                    lease.deniedUntil = System.currentTimeMillis() + grant.retryAfterMillis();
+                    return response(false, 0, grant.retryAfterMillis());
+                })
+                .onErrorResume(throwable -> {
+                    // Fail open, the same way the built-in RedisRateLimiter does
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Error reserving tokens for {} from {}", id, tokenStore.getImplementation(), throwable);
+                    }
+                    return Mono.just(new Response(true, Map.of("X-RateLimit-Remaining", "-1")));
+                });
+    }
+
+    /**
+     * Current limit for every route that has used this limiter
+     */
+    @Override
+    public Map<String, Bucket4jRateLimiter.Config> getConfig() {
+        Bucket4jRateLimiter.Config config = new Bucket4jRateLimiter.Config();
+        config.setCapacity(capacity);
+        config.setRefillDuration(refillDuration.toString());
+        config.setImplementation(tokenStore.getImplementation());
+
+        Map<String, Bucket4jRateLimiter.Config> configs = new LinkedHashMap<>();
+        for (String routeId : routeIds) {
+            configs.put(routeId, config);
+        }
+        return configs;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public Duration getRefillDuration() {
+        return refillDuration;
+    }
+
+    @Override
+    public synchronized void reconfigure(long capacity, Duration refillDuration) {
+        applyLimit(capacity, refillDuration);
+    }
+
+    private void applyLimit(long capacity, Duration refillDuration) {
+        this.batchSize = Math.max(1, Math.min(configuredBatchSize, capacity));
+        this.refillDuration = refillDuration;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public Class<Bucket4jRateLimiter.Config> getConfigClass() {
+        return Bucket4jRateLimiter.Config.class;
+    }
+
+    @Override
+    public Bucket4jRateLimiter.Config newConfig() {
+        return new Bucket4jRateLimiter.Config();
+    }
+
+    private Response response(boolean allowed, long remainingTokens, long retryAfterMillis) {
+        long resetTimeSeconds = (System.currentTimeMillis() + retryAfterMillis) / 1000;
+
+        Map<String, String> headers = Map.of(
+            "X-RateLimit-Remaining", String.valueOf(remainingTokens),
+            "X-RateLimit-Limit", String.valueOf(capacity),
+            "X-RateLimit-Reset", String.valueOf(resetTimeSeconds)
+        );
+        return new Response(allowed, headers);
+    }
+
+    /**
+     * Tokens reserved from the shared store and not yet handed out by this replica.
+     */
+    private static final class Lease {
+        private final AtomicLong tokens = new AtomicLong();
+        private volatile long remoteRemaining;
+        private volatile long deniedUntil;
+
+        boolean tryTake() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        void add(long granted) {
+            tokens.addAndGet(granted);
+        }
+
+        long remaining() {
+            return tokens.get() + remoteRemaining;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.quanna.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process {@link TokenStore} with the same semantics as the Redis script.
+ * Intended for tests and single-node development, where running Redis is not worth it.
+ */
+public class InMemoryTokenStore implements TokenStore {
+
+    private final Map<String, State> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier clockMillis;
+
+    public InMemoryTokenStore() {
+        this(System::currentTimeMillis);
+    }
+
+    public InMemoryTokenStore(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public Mono<Grant> reserve(String key, long capacity, Duration refillPeriod, long requested) {
+        long refillMillis = refillPeriod.toMillis();
+        long now = clockMillis.getAsLong();
+        State state = buckets.computeIfAbsent(key, k -> new State(capacity, now));
+
+        synchronized (state) {
+            long elapsed = Math.max(0, now - state.timestamp);
+            state.tokens = Math.min(capacity, state.tokens + (double) elapsed * capacity / refillMillis);
+            state.timestamp = now;
+
+            long granted = Math.min(requested, (long) Math.floor(state.tokens));
+            state.tokens -= granted;
+
+            long wait = 0;
+            if (state.tokens < 1) {
+                wait = (long) Math.ceil((1 - state.tokens) * refillMillis / capacity);
+            }
+            return Mono.just(new Grant(granted, (long) Math.floor(state.tokens), wait));
+        }
+    }
+
+    @Override
+    public String getImplementation() {
+        return "InMemory";
+    }
+
+    private static final class State {
+        private double tokens;
+        private long timestamp;
+
+        private State(double tokens, long timestamp) {
+            this.tokens = tokens;
+            this.timestamp = timestamp;
+        }
+    }
+}
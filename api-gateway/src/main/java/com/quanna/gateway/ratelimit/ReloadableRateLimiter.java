@@ -0,0 +1,17 @@
+package com.quanna.gateway.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Rate limiter whose limit can be replaced at runtime, configured from {@code rate-limit.<name>.*}
+ */
+public interface ReloadableRateLimiter {
+
+    String getName();
+
+    long getCapacity();
+
+    Duration getRefillDuration();
+
+    void reconfigure(long capacity, Duration refillDuration);
+}
@@ -0,0 +1,133 @@
+package com.quanna.gateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "rate-limit.tiers")
+public class TieredRateLimitProperties {
+
+    /**
+     * Per authenticated user, keyed by userKeyResolver
+     */
+    private Tier user = new Tier();
+
+    /**
+     * Per client address, keyed by ipKeyResolver
+     */
+    private Tier ip = new Tier();
+
+    /**
+     * Per route, shared by all clients of the route
+     */
+    private Tier route = new Tier();
+
+    /**
+     * Whole gateway instance
+     */
+    private Tier global = new Tier();
+
+    /**
+     * Per user, or client address when anonymous, across all replicas through the TokenStore;
+     * only used with rate-limit.mode: distributed
+     */
+    private Tier cluster = new Tier();
+
+    private long maxBuckets = 100000;
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    public Tier getUser() {
+        return user;
+    }
+
+    public void setUser(Tier user) {
+        this.user = user;
+    }
+
+    public Tier getIp() {
+        return ip;
+    }
+
+    public void setIp(Tier ip) {
+        this.ip = ip;
+    }
+
+    public Tier getRoute() {
+        return route;
+    }
+
+    public void setRoute(Tier route) {
+        this.route = route;
+    }
+
+    public Tier getGlobal() {
+        return global;
+    }
+
+    public void setGlobal(Tier global) {
+        this.global = global;
+    }
+
+    public Tier getCluster() {
+        return cluster;
+    }
+
+    public void setCluster(Tier cluster) {
+        this.cluster = cluster;
+    }
+
+    public long getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(long maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public static class Tier {
+
+        /**
+         * Bucket size; 0 disables the tier
+         */
+        private long capacity;
+        private Duration refillDuration = Duration.ofSeconds(1);
+
+        public Tier() {
+        }
+
+        public Tier(long capacity, Duration refillDuration) {
+            this.capacity = capacity;
+            this.refillDuration = refillDuration;
+        }
+
+        public boolean isEnabled() {
+            return capacity > 0;
+        }
+
+        public long getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(long capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getRefillDuration() {
+            return refillDuration;
+        }
+
+        public void setRefillDuration(Duration refillDuration) {
+            this.refillDuration = refillDuration;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.quanna.gateway.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.local.SynchronizationStrategy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hierarchical rate limit over user, client IP, route and gateway-wide tiers, decided in one pass.
+ *
+ * A request takes one token from every enabled tier or from none of them. Per-client buckets (user,
+ * IP) are thread-unsafe Bucket4j buckets guarded by their own monitors, which only that client's
+ * requests contend for; a decision locks them in tier order and checks that each has a token. The
+ * route and global buckets are shared by every request, so they are lock-free: their token is taken
+ * with a single compare-and-set and given back if the global tier then rejects. Client tokens are
+ * consumed last, so a request rejected by the route or global tier never drains its user or IP bucket.
+ *
+ * With a {@link DistributedRateLimiter} the cluster tier limits each user, or the client address of
+ * anonymous requests, across all replicas. It is checked first, and its token is not given back when
+ * a local tier rejects: that only costs the same client, the way an expired lease does.
+ *
+ * Allowed responses report the local tier with the fewest remaining tokens. Responses are cached the
+ * same way as in {@link Bucket4jRateLimiter}. Tiers can be changed at runtime with {@link #reconfigure};
+ * bucket stores outlive their tier settings, so tokens carry over.
+ */
+public class TieredRateLimiter implements MeterBinder {
+
+    public static final String TIER_HEADER = "X-RateLimit-Tier";
+
+    private static final int USER = 0;
+    private static final int IP = 1;
+    private static final int ROUTE = 2;
+    private static final int GLOBAL = 3;
+    private static final int CLUSTER = 4;
+    private static final String[] TIER_NAMES = {"user", "ip", "route", "global", "cluster"};
+    private static final Mono<Response> UNLIMITED = Mono.just(new Response(true, Map.of()));
+
+    private final String name;
+    private final long maxBuckets;
+    private final Duration idleTimeout;
+    private final BucketStore[] stores = new BucketStore[TIER_NAMES.length];
+    private final Bandwidth[] limits = new Bandwidth[TIER_NAMES.length];
+    private final LongAdder[] rejected = new LongAdder[TIER_NAMES.length];
+    private final DistributedRateLimiter cluster;
+    private Bucket globalBucket;
+    private MeterRegistry registry;
+
+    /**
+     * Enabled tiers by index, null entries are skipped. Replaced as a whole on reconfiguration
+     */
+    private volatile Tier[] tiers = new Tier[TIER_NAMES.length];
+
+    public TieredRateLimiter(String name, TieredRateLimitProperties properties) {
+        this(name, properties, null);
+    }
+
+    /**
+     * @param cluster shared limiter for the cluster tier, or null to ignore that tier
+     */
+    public TieredRateLimiter(String name, TieredRateLimitProperties properties, DistributedRateLimiter cluster) {
+        this.name = name;
+        this.cluster = cluster;
+        this.maxBuckets = properties.getMaxBuckets();
+        this.idleTimeout = properties.getIdleTimeout();
+        for (int tier = 0; tier < TIER_NAMES.length; tier++) {
+            rejected[tier] = new LongAdder();
+        }
+        reconfigure(properties);
+    }
+
+    /**
+     * @param userKey user key, or null to skip the user tier (anonymous requests)
+     * @param ipKey   client address key, or null to skip the IP tier
+     */
+    public Mono<Response> isAllowed(String routeId, String userKey, String ipKey) {
+        Tier[] tiers = this.tiers;
+        String clusterKey = userKey != null ? "user:" + userKey : ipKey != null ? "ip:" + ipKey : null;
+        if (tiers[CLUSTER] == null || clusterKey == null) {
+            return decideLocally(tiers, routeId, userKey, ipKey);
+        }
+        return cluster.isAllowed(routeId, clusterKey).flatMap(response -> {
+            if (response.isAllowed()) {
+                return decideLocally(tiers, routeId, userKey, ipKey);
+            }
+            rejected[CLUSTER].increment();
+            Map<String, String> headers = new HashMap<>(response.getHeaders());
+            headers.put(TIER_HEADER, TIER_NAMES[CLUSTER]);
+            return Mono.just(new Response(false, headers));
+        });
+    }
+
+    private Mono<Response> decideLocally(Tier[] tiers, String routeId, String userKey, String ipKey) {
+        Bucket[] buckets = new Bucket[GLOBAL + 1];
+        buckets[USER] = bucket(tiers, USER, userKey);
+        buckets[IP] = bucket(tiers, IP, ipKey);
+        buckets[ROUTE] = bucket(tiers, ROUTE, routeId);
+        buckets[GLOBAL] = bucket(tiers, GLOBAL, "");
+        return lockAndDecide(tiers, buckets, USER);
+    }
+
+    /**
+     * Applies new tier limits. Existing buckets keep their tokens, capped at the new capacity;
+     * a disabled tier stops being checked and its buckets expire.
+     */
+    public synchronized void reconfigure(TieredRateLimitProperties properties) {
+        Tier[] updated = new Tier[TIER_NAMES.length];
+        updated[USER] = tier(USER, properties.getUser());
+        updated[IP] = tier(IP, properties.getIp());
+        updated[ROUTE] = tier(ROUTE, properties.getRoute());
+        updated[GLOBAL] = tier(GLOBAL, properties.getGlobal());
+        updated[CLUSTER] = cluster != null ? tier(CLUSTER, properties.getCluster()) : null;
+
+        // Stores of newly enabled tiers must exist before the volatile write publishes them
+        if (updated[GLOBAL] != null && globalBucket == null) {
+            globalBucket = createSharedBucket(updated[GLOBAL].limit);
+        }
+        for (int index = 0; index < GLOBAL; index++) {
+            if (updated[index] != null) {
+                limits[index] = updated[index].limit;
+            }
+            if (updated[index] != null && stores[index] == null) {
+                stores[index] = createStore(index, updated[index].refillDuration);
+            }
+        }
+
+        Tier[] previous = tiers;
+        tiers = updated;
+
+        for (int index = 0; index < updated.length; index++) {
+            Tier tier = updated[index];
+            if (tier == null || tier == previous[index]) {
+                continue;
+            }
+            if (index == CLUSTER) {
+                cluster.reconfigure(tier.capacity, tier.refillDuration);
+                continue;
+            }
+            BucketConfiguration configuration = BucketConfiguration.builder().addLimit(tier.limit).build();
+            if (index == GLOBAL) {
+                replaceConfiguration(globalBucket, configuration);
+            } else {
+                stores[index].reconfigure(tier.refillDuration, bucket -> replaceConfiguration(bucket, configuration));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        for (int tier = 0; tier < TIER_NAMES.length; tier++) {
+            if (stores[tier] != null) {
+                stores[tier].bindTo(registry);
+            }
+            FunctionCounter.builder("gateway.ratelimit.tier.rejected", rejected[tier], LongAdder::sum)
+                    .tag("limiter", name)
+                    .tag("tier", TIER_NAMES[tier])
+                    .description("Requests rejected by one tier of the hierarchical rate limiter")
+                    .register(registry);
+        }
+    }
+
+    private Bucket bucket(Tier[] tiers, int tier, String key) {
+        if (tiers[tier] == null || key == null) {
+            return null;
+        }
+        return tier == GLOBAL ? globalBucket : stores[tier].get(key);
+    }
+
+    private Mono<Response> lockAndDecide(Tier[] tiers, Bucket[] buckets, int tier) {
+        if (tier == ROUTE) {
+            return decide(tiers, buckets);
+        }
+        Bucket bucket = buckets[tier];
+        if (bucket == null) {
+            return lockAndDecide(tiers, buckets, tier + 1);
+        }
+        synchronized (bucket) {
+            return lockAndDecide(tiers, buckets, tier + 1);
+        }
+    }
+
+    /**
+     * Called with the request's user and IP buckets locked
+     */
+    private Mono<Response> decide(Tier[] tiers, Bucket[] buckets) {
+        long remaining = Long.MAX_VALUE;
+        int tightest = -1;
+        for (int tier = USER; tier < ROUTE; tier++) {
+            Bucket bucket = buckets[tier];
+            if (bucket == null) {
+                continue;
+            }
+            long available = bucket.getAvailableTokens();
+            if (available < 1) {
+                return denied(tiers, tier, bucket);
+            }
+            if (available - 1 < remaining) {
+                remaining = available - 1;
+                tightest = tier;
+            }
+        }
+        for (int tier = ROUTE; tier <= GLOBAL; tier++) {
+            Bucket bucket = buckets[tier];
+            if (bucket == null) {
+                continue;
+            }
+            if (!bucket.tryConsume(1)) {
+                if (tier == GLOBAL && buckets[ROUTE] != null) {
+                    buckets[ROUTE].addTokens(1);
+                }
+                return denied(tiers, tier, bucket);
+            }
+            long available = bucket.getAvailableTokens();
+            if (available < remaining) {
+                remaining = available;
+                tightest = tier;
+            }
+        }
+        if (tightest < 0) {
+            return UNLIMITED;
+        }
+        for (int tier = USER; tier < ROUTE; tier++) {
+            if (buckets[tier] != null) {
+                buckets[tier].tryConsume(1);
+            }
+        }
+        return tiers[tightest].allowed(Math.max(0, remaining));
+    }
+
+    private Mono<Response> denied(Tier[] tiers, int tier, Bucket bucket) {
+        rejected[tier].increment();
+        return tiers[tier].denied(bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill());
+    }
+
+    private Tier tier(int index, TieredRateLimitProperties.Tier settings) {
+        if (!settings.isEnabled()) {
+            return null;
+        }
+        Tier current = tiers[index];
+        if (current != null && current.capacity == settings.getCapacity()
+                && current.refillDuration.equals(settings.getRefillDuration())) {
+            return current;
+        }
+        return new Tier(TIER_NAMES[index], settings.getCapacity(), settings.getRefillDuration());
+    }
+
+    private BucketStore createStore(int index, Duration refillDuration) {
+        BucketStore store = new BucketStore(name + "-" + TIER_NAMES[index], maxBuckets, refillDuration, idleTimeout,
+                index == ROUTE ? () -> createSharedBucket(limits[index]) : () -> createBucket(limits[index]));
+        if (registry != null) {
+            store.bindTo(registry);
+        }
+        return store;
+    }
+
+    private static Bucket createBucket(Bandwidth limit) {
+        // Always accessed under the bucket's monitor, see lockAndDecide
+        return Bucket.builder()
+            .addLimit(limit)
+            .withSynchronizationStrategy(SynchronizationStrategy.NONE)
+            .build();
+    }
+
+    private static Bucket createSharedBucket(Bandwidth limit) {
+        return Bucket.builder()
+            .addLimit(limit)
+            .withSynchronizationStrategy(SynchronizationStrategy.LOCK_FREE)
+            .build();
+    }
+
+    private static void replaceConfiguration(Bucket bucket, BucketConfiguration configuration) {
+        synchronized (bucket) {
+            bucket.replaceConfiguration(configuration, TokensInheritanceStrategy.AS_IS);
+        }
+    }
+
+    /**
+     * Limit of one tier and the responses derived from it
+     */
+    private static final class Tier {
+        private final String name;
+        private final long capacity;
+        private final Duration refillDuration;
+        private final Bandwidth limit;
+        private final String limitHeader;
+        private final Mono<Response>[] allowedResponses;
+        private volatile DeniedResponse deniedResponse = new DeniedResponse(-1, null);
+
+        @SuppressWarnings("unchecked")
+        private Tier(String name, long capacity, Duration refillDuration) {
+            this.name = name;
+            this.capacity = capacity;
+            this.refillDuration = refillDuration;
+            this.limit = Bandwidth.builder()
+                .capacity(capacity)
+                .refillGreedy(capacity, refillDuration)
+                .build();
+            this.limitHeader = Bucket4jRateLimiter.number(capacity);
+            this.allowedResponses = new Mono[(int) Math.min(capacity, Bucket4jRateLimiter.CACHED_VALUES)];
+        }
+
+        private Mono<Response> allowed(long remainingTokens) {
+            if (remainingTokens >= allowedResponses.length) {
+                return Mono.just(allowedResponse(remainingTokens));
+            }
+            // Slots are written without synchronization; a lost race only builds an equal response twice
+            Mono<Response> response = allowedResponses[(int) remainingTokens];
+            if (response == null) {
+                response = Mono.just(allowedResponse(remainingTokens));
+                allowedResponses[(int) remainingTokens] = response;
+            }
+            return response;
+        }
+
+        private Response allowedResponse(long remainingTokens) {
+            return new Response(true, Map.of(
+                "X-RateLimit-Remaining", Bucket4jRateLimiter.number(remainingTokens),
+                "X-RateLimit-Limit", limitHeader,
+                TIER_HEADER, name
+            ));
+        }
+
+        private Mono<Response> denied(long nanosToWait) {
+            long resetTimeSeconds = System.currentTimeMillis() / 1000 + nanosToWait / 1_000_000_000;
+            DeniedResponse denied = deniedResponse;
+            if (denied.resetTimeSeconds != resetTimeSeconds) {
+                denied = new DeniedResponse(resetTimeSeconds, Mono.just(new Response(false, Map.of(
+                    "X-RateLimit-Remaining", "0",
+                    "X-RateLimit-Limit", limitHeader,
+                    "X-RateLimit-Reset", Long.toString(resetTimeSeconds),
+                    TIER_HEADER, name
+                ))));
+                deniedResponse = denied;
+            }
+            return denied.response;
+        }
+    }
+
+    private record DeniedResponse(long resetTimeSeconds, Mono<Response> response) {
+    }
+}
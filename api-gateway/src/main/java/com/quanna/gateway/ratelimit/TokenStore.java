@@ -0,0 +1,33 @@
+package com.quanna.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Shared token state for {@link DistributedRateLimiter}.
+ *
+ * Every reservation is a single atomic refill-and-take on the bucket identified by {@code key}.
+ * The bucket holds at most {@code capacity} tokens and refills greedily at
+ * {@code capacity} tokens per {@code refillPeriod}.
+ */
+public interface TokenStore {
+
+    /**
+     * Take up to {@code requested} tokens from the bucket.
+     * The grant may contain fewer tokens than requested, including none.
+     */
+    Mono<Grant> reserve(String key, long capacity, Duration refillPeriod, long requested);
+
+    String getImplementation();
+
+    /**
+     * Result of a reservation.
+     *
+     * @param granted tokens handed to the caller
+     * @param remaining whole tokens left in the shared bucket
+     * @param retryAfterMillis time until the next token is available, 0 if one is available now
+     */
+    record Grant(long granted, long remaining, long retryAfterMillis) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.quanna.gateway.route;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_PATH_CONTAINER_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Route lookup that only evaluates the predicates of routes whose path pattern can match the request.
+ *
+ * The default mapping tests every route in order until one matches, which is linear in the size of
+ * the route table. Here a {@link RouteIndex} narrows the routes down by path prefix first; the
+ * remaining ones are still tested in the original order with their full predicates, so the route
+ * chosen is the same. As there, a predicate that fails is logged and counts as not matching.
+ *
+ * The index is rebuilt after each successful route refresh, reusing the compiled prefixes of routes
+ * whose predicates did not change. Until the first one, lookups fall back to the default.
+ */
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexedRoutePredicateHandlerMapping.class);
+
+    private final RouteLocator routeLocator;
+    private final RouteDefinitionLocator routeDefinitionLocator;
+    private final RouteIndexCompiler compiler;
+    private final AtomicLong refreshes = new AtomicLong();
+    private volatile RouteIndex index;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+                                               RouteDefinitionLocator routeDefinitionLocator,
+                                               GlobalCorsProperties globalCorsProperties, Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.compiler = new RouteIndexCompiler(environment.getProperty("spring.webflux.base-path"));
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (!event.isSuccess()) {
+            return;
+        }
+        long refresh = refreshes.incrementAndGet();
+        Mono.zip(routeLocator.getRoutes().collectList(), routeDefinitionLocator.getRouteDefinitions().collectList())
+                .subscribe(routes -> {
+                    synchronized (compiler) {
+                        // A later refresh has started meanwhile and will publish fresher routes
+                        if (refresh != refreshes.get()) {
+                            return;
+                        }
+                        RouteIndex rebuilt = compiler.compile(routes.getT1(), routes.getT2());
+                        index = rebuilt;
+                        log.info("Route index rebuilt: {} routes, {} indexed by path, {} recompiled",
+                                rebuilt.getRoutes(), rebuilt.getIndexed(), compiler.getRecompiled());
+                    }
+                }, error -> log.warn("Route index not rebuilt, keeping the previous one", error));
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        RouteIndex index = this.index;
+        if (index == null) {
+            return super.lookupRoute(exchange);
+        }
+        return lookup(index, exchange).map(route -> {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Route matched: " + route.getId());
+            }
+            validateRoute(route, exchange);
+            return route;
+        });
+    }
+
+    static Mono<Route> lookup(RouteIndex index, ServerWebExchange exchange) {
+        // Same attribute as the Path predicate, which then reuses the parsed path
+        PathContainer path = (PathContainer) exchange.getAttributes().computeIfAbsent(
+                GATEWAY_PREDICATE_PATH_CONTAINER_ATTR,
+                key -> PathContainer.parsePath(exchange.getRequest().getURI().getRawPath()));
+        return firstMatch(index.candidates(path), exchange);
+    }
+
+    static Mono<Route> firstMatch(Route[] routes, ServerWebExchange exchange) {
+        return Flux.fromArray(routes)
+                .concatMap(route -> Mono.just(route)
+                        .filterWhen(candidate -> {
+                            exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, candidate.getId());
+                            return candidate.getPredicate().apply(exchange);
+                        })
+                        .doOnError(e -> log.error("Error applying predicate for route: {}", route.getId(), e))
+                        .onErrorResume(e -> Mono.empty()))
+                .next();
+    }
+}
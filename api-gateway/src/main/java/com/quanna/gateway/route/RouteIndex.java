@@ -0,0 +1,114 @@
+package com.quanna.gateway.route;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Prefix trie over the literal leading segments of the routes' path patterns.
+ *
+ * Every node holds, in route order, the routes whose pattern starts with the segments leading to it
+ * or to one of its ancestors, plus the routes that could not be indexed. A lookup walks the request
+ * path as far as the trie goes and returns that node's routes: the only ones whose predicate can
+ * match. Immutable once built.
+ */
+final class RouteIndex {
+
+    private final Node root;
+    private final int routes;
+    private final int indexed;
+
+    private RouteIndex(Node root, int routes, int indexed) {
+        this.root = root;
+        this.routes = routes;
+        this.indexed = indexed;
+    }
+
+    /**
+     * @return the routes that may match the path, in route order; not to be modified
+     */
+    Route[] candidates(PathContainer path) {
+        Node node = root;
+        for (PathContainer.Element element : path.elements()) {
+            if (element instanceof PathContainer.PathSegment segment && !segment.valueToMatch().isEmpty()) {
+                Node child = node.children.get(segment.valueToMatch());
+                if (child == null) {
+                    break;
+                }
+                node = child;
+            }
+        }
+        return node.candidates;
+    }
+
+    int getRoutes() {
+        return routes;
+    }
+
+    int getIndexed() {
+        return indexed;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects routes in order; {@link #build()} may only be called once
+     */
+    static final class Builder {
+        private final Node root = new Node();
+        private final List<Route> routes = new ArrayList<>();
+        private final List<Integer> unindexed = new ArrayList<>();
+
+        /**
+         * @param prefixes literal leading segments of each path pattern of the route, or null when
+         *                 the route may match any path
+         */
+        Builder add(Route route, List<List<String>> prefixes) {
+            int position = routes.size();
+            routes.add(route);
+            if (prefixes == null || prefixes.isEmpty()) {
+                unindexed.add(position);
+                return this;
+            }
+            for (List<String> prefix : prefixes) {
+                Node node = root;
+                for (String segment : prefix) {
+                    node = node.children.computeIfAbsent(segment, key -> new Node());
+                }
+                node.own.add(position);
+            }
+            return this;
+        }
+
+        RouteIndex build() {
+            freeze(root, unindexed.stream().mapToInt(Integer::intValue).toArray());
+            return new RouteIndex(root, routes.size(), routes.size() - unindexed.size());
+        }
+
+        private void freeze(Node node, int[] inherited) {
+            int[] positions = IntStream.concat(IntStream.of(inherited), node.own.stream().mapToInt(Integer::intValue))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            node.candidates = new Route[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                node.candidates[i] = routes.get(positions[i]);
+            }
+            node.own = null;
+            node.children.values().forEach(child -> freeze(child, positions));
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private List<Integer> own = new ArrayList<>();
+        private Route[] candidates;
+    }
+}
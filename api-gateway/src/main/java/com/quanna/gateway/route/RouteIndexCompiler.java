@@ -0,0 +1,140 @@
+package com.quanna.gateway.route;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds {@link RouteIndex} instances from the routes and the definitions they were created from.
+ *
+ * Routes are indexed by the patterns of their {@code Path} predicate, cut at the first segment that
+ * is not a plain literal. Routes without a definition (Java DSL), without a {@code Path} predicate or
+ * with SpEL arguments may match anything and are evaluated for every request.
+ *
+ * The prefixes of a route are kept between builds and only recomputed when its predicate definitions
+ * change, so a refresh touching a few routes only recompiles those.
+ */
+final class RouteIndexCompiler {
+
+    private static final String PATH_PREDICATE = "Path";
+    private static final Set<String> FLAG_ARGS = Set.of("matchTrailingSlash", "matchOptionalTrailingSeparator");
+
+    private final String basePath;
+    private Map<String, CompiledRoute> compiled = Map.of();
+    private int recompiled;
+
+    /**
+     * @param basePath {@code spring.webflux.base-path}, which the Path predicate puts in front of its patterns
+     */
+    RouteIndexCompiler(String basePath) {
+        this.basePath = basePath != null ? basePath : "";
+    }
+
+    RouteIndex compile(List<Route> routes, List<RouteDefinition> definitions) {
+        Map<String, RouteDefinition> definitionsById = new HashMap<>();
+        for (RouteDefinition definition : definitions) {
+            definitionsById.put(definition.getId(), definition);
+        }
+
+        Map<String, CompiledRoute> next = new HashMap<>();
+        RouteIndex.Builder builder = RouteIndex.builder();
+        recompiled = 0;
+        for (Route route : routes) {
+            RouteDefinition definition = definitionsById.get(route.getId());
+            List<PredicateDefinition> predicates = definition != null ? definition.getPredicates() : null;
+            CompiledRoute compiledRoute = compiled.get(route.getId());
+            if (compiledRoute == null || !compiledRoute.matches(predicates)) {
+                compiledRoute = new CompiledRoute(copy(predicates), prefixes(predicates));
+                recompiled++;
+            }
+            next.put(route.getId(), compiledRoute);
+            builder.add(route, compiledRoute.prefixes());
+        }
+        compiled = next;
+        return builder.build();
+    }
+
+    /**
+     * @return number of routes whose prefixes were computed by the last {@link #compile}
+     */
+    int getRecompiled() {
+        return recompiled;
+    }
+
+    /**
+     * Rebinding the gateway properties may update definitions in place, so the cache keeps its own copy
+     */
+    private static List<PredicateDefinition> copy(List<PredicateDefinition> predicates) {
+        if (predicates == null) {
+            return null;
+        }
+        List<PredicateDefinition> copy = new ArrayList<>(predicates.size());
+        for (PredicateDefinition predicate : predicates) {
+            PredicateDefinition predicateCopy = new PredicateDefinition();
+            predicateCopy.setName(predicate.getName());
+            predicateCopy.setArgs(new LinkedHashMap<>(predicate.getArgs()));
+            copy.add(predicateCopy);
+        }
+        return copy;
+    }
+
+    private List<List<String>> prefixes(List<PredicateDefinition> predicates) {
+        if (predicates == null) {
+            return null;
+        }
+        // Predicates of a route are and-ed, so one Path predicate is enough to narrow it down
+        for (PredicateDefinition predicate : predicates) {
+            if (!PATH_PREDICATE.equals(predicate.getName())) {
+                continue;
+            }
+            List<List<String>> prefixes = new ArrayList<>();
+            for (Map.Entry<String, String> arg : predicate.getArgs().entrySet()) {
+                if (FLAG_ARGS.contains(arg.getKey())) {
+                    continue;
+                }
+                String value = arg.getValue();
+                // SpEL, or a comma that may sit inside a capture regex rather than between patterns
+                if (value == null || value.contains("#{") || value.contains(",") && value.contains("{")) {
+                    return null;
+                }
+                for (String pattern : value.split(",")) {
+                    prefixes.add(literalPrefix(basePath + "/" + pattern.trim()));
+                }
+            }
+            return prefixes.isEmpty() ? null : prefixes;
+        }
+        return null;
+    }
+
+    /**
+     * Leading segments that a path must contain verbatim to match the pattern
+     */
+    static List<String> literalPrefix(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            // Wildcards, captures, and segments compared in decoded or parameter-stripped form
+            if (segment.chars().anyMatch(c -> c == '*' || c == '?' || c == '{' || c == '%' || c == ';')) {
+                break;
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    private record CompiledRoute(List<PredicateDefinition> predicates, List<List<String>> prefixes) {
+
+        boolean matches(List<PredicateDefinition> predicates) {
+            return this.predicates == null ? predicates == null : this.predicates.equals(predicates);
+        }
+    }
+}
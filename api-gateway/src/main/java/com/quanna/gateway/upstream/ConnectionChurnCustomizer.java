@@ -0,0 +1,41 @@
+package com.quanna.gateway.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Counts upstream connections opened and closed by one pool as {@code gateway.upstream.connections}.
+ *
+ * Reactor Netty's pool gauges show how many connections exist at a point in time; a high rate of
+ * opened connections at a steady count means they are being churned, typically by an idle or life
+ * time shorter than the upstream's keep-alive, or by the upstream closing them.
+ */
+public class ConnectionChurnCustomizer implements HttpClientCustomizer {
+
+    private final Counter opened;
+    private final Counter closed;
+
+    public ConnectionChurnCustomizer(MeterRegistry registry, String pool) {
+        this.opened = counter(registry, pool, "opened");
+        this.closed = counter(registry, pool, "closed");
+    }
+
+    private static Counter counter(MeterRegistry registry, String pool, String event) {
+        return Counter.builder("gateway.upstream.connections")
+                .description("Upstream connections opened and closed")
+                .tag("pool", pool)
+                .tag("event", event)
+                .register(registry);
+    }
+
+    @Override
+    public HttpClient customize(HttpClient httpClient) {
+        // Called once per new connection, not when a pooled one is reused
+        return httpClient.doOnChannelInit((observer, channel, remoteAddress) -> {
+            opened.increment();
+            channel.closeFuture().addListener(future -> closed.increment());
+        });
+    }
+}
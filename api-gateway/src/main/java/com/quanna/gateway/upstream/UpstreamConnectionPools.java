@@ -0,0 +1,125 @@
+package com.quanna.gateway.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.route.Route;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP clients with their own connection pool for the routes and services listed in {@code upstream.pools}.
+ *
+ * Each client is built by the gateway's {@link HttpClientFactory}, so it gets the same timeouts, SSL,
+ * proxy and customizers as the shared one; only the pool, and with h2c the protocol, differ. Pools are
+ * named after their key and export Reactor Netty's {@code reactor.netty.connection.provider.*} gauges
+ * (total, active, idle and pending connections) with that name as tag.
+ *
+ * Pools are created at startup; changing their settings needs a restart.
+ */
+public class UpstreamConnectionPools implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamConnectionPools.class);
+    private static final String LB_SCHEME = "lb";
+
+    private final Map<String, HttpClient> clients = new HashMap<>();
+    private final List<ConnectionProvider> providers = new ArrayList<>();
+
+    public UpstreamConnectionPools(UpstreamPoolProperties properties, HttpClientProperties httpClientProperties,
+                                   ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                                   List<HttpClientCustomizer> customizers, MeterRegistry registry) {
+        properties.getPools().forEach((key, pool) -> {
+            List<HttpClientCustomizer> poolCustomizers = new ArrayList<>();
+            for (HttpClientCustomizer customizer : customizers) {
+                // The shared pool's churn counters would count this pool's connections too
+                if (!(customizer instanceof ConnectionChurnCustomizer)) {
+                    poolCustomizers.add(customizer);
+                }
+            }
+            poolCustomizers.add(new ConnectionChurnCustomizer(registry, key));
+
+            PoolHttpClientFactory factory = new PoolHttpClientFactory(key, pool, httpClientProperties,
+                    serverProperties, sslConfigurer, poolCustomizers);
+            clients.put(key, factory.build());
+            providers.add(factory.provider);
+            logger.info("Upstream pool {}: {}, {} connections, {} pending", key, pool.getProtocol(),
+                    pool.getMaxConnections(), pool.getPendingAcquireMaxCount());
+        });
+    }
+
+    /**
+     * @return the client of the route's own pool, or of its service's, or null to use the shared one
+     */
+    public HttpClient get(Route route) {
+        if (clients.isEmpty()) {
+            return null;
+        }
+        HttpClient client = clients.get(route.getId());
+        if (client == null && LB_SCHEME.equals(route.getUri().getScheme())) {
+            client = clients.get(route.getUri().getHost());
+        }
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+
+    private static final class PoolHttpClientFactory extends HttpClientFactory {
+        private final String name;
+        private final UpstreamPoolProperties.Pool pool;
+        private ConnectionProvider provider;
+
+        private PoolHttpClientFactory(String name, UpstreamPoolProperties.Pool pool, HttpClientProperties properties,
+                                      ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                                      List<HttpClientCustomizer> customizers) {
+            super(properties, serverProperties, sslConfigurer, customizers);
+            this.name = name;
+            this.pool = pool;
+        }
+
+        HttpClient build() {
+            HttpClient client = createInstance();
+            return pool.getProtocol() == UpstreamPoolProperties.Protocol.H2C
+                    ? client.protocol(HttpProtocol.H2C)
+                    : client;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                    .maxConnections(pool.getMaxConnections())
+                    .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                    .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                    .maxIdleTime(pool.getMaxIdleTime())
+                    .evictInBackground(pool.getEvictionInterval())
+                    .metrics(true);
+            if (pool.getMaxLifeTime() != null) {
+                builder.maxLifeTime(pool.getMaxLifeTime());
+            }
+            if (pool.getProtocol() == UpstreamPoolProperties.Protocol.H2C) {
+                // Requests are multiplexed, so few connections carry many concurrent calls
+                builder.allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(pool.getMaxConnections())
+                        .maxConcurrentStreams(pool.getMaxConcurrentStreams())
+                        .build());
+            }
+            provider = builder.build();
+            return provider;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.quanna.gateway.upstream;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "upstream")
+public class UpstreamPoolProperties {
+
+    /**
+     * Dedicated connection pools, keyed by route id or by the service id of {@code lb://} routes.
+     * Routes without one share the pool of {@code spring.cloud.gateway.server.webflux.httpclient.pool}.
+     */
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, Pool> pools) {
+        this.pools = pools;
+    }
+
+    public enum Protocol {
+        HTTP11,
+        /**
+         * Cleartext HTTP/2 with prior knowledge; the upstream must accept it without upgrade
+         */
+        H2C
+    }
+
+    public static class Pool {
+
+        private Protocol protocol = Protocol.HTTP11;
+
+        /**
+         * Connections per upstream address; with h2c, connections each carrying up to
+         * {@code max-concurrent-streams} requests
+         */
+        private int maxConnections = 100;
+
+        /**
+         * Only used with h2c
+         */
+        private long maxConcurrentStreams = 100;
+
+        /**
+         * Requests allowed to wait for a connection once all are busy; further ones fail at once
+         */
+        private int pendingAcquireMaxCount = 200;
+
+        /**
+         * How long a request waits for a connection before failing
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+        /**
+         * Idle connections are closed after this long
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * Connections are closed after this long even when busy, so that they follow DNS and
+         * load balancer changes; unlimited when not set
+         */
+        private Duration maxLifeTime;
+
+        /**
+         * Interval of the background check closing idle and expired connections; 0 checks only
+         * when a connection is acquired or released
+         */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        public void setProtocol(Protocol protocol) {
+            this.protocol = protocol;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public long getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(long maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- Greedy token bucket shared by every gateway replica.
+-- KEYS[1]: bucket hash key
+-- ARGV[1]: capacity, ARGV[2]: refill period in millis, ARGV[3]: requested tokens
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local refill_period = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', key, 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local last = tonumber(state[2])
+if tokens == nil then
+  tokens = capacity
+  last = now
+end
+
+local elapsed = math.max(0, now - last)
+tokens = math.min(capacity, tokens + elapsed * capacity / refill_period)
+
+local granted = math.min(requested, math.floor(tokens))
+tokens = tokens - granted
+
+local wait = 0
+if tokens < 1 then
+  wait = math.ceil((1 - tokens) * refill_period / capacity)
+end
+
+redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', now)
+redis.call('PEXPIRE', key, refill_period * 2)
+
+return { granted, math.floor(tokens), wait }
@@ -0,0 +1,43 @@
+package com.quanna.gateway.budget;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBudgetTests {
+
+    @Test
+    void burstIsSpentThenBudgetRunsDry() {
+        TokenBudget budget = new TokenBudget(0.1, 3);
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+        assertThat(budget.getAvailable()).isZero();
+    }
+
+    @Test
+    void requestsEarnRatioOfAnAttempt() {
+        TokenBudget budget = new TokenBudget(0.1, 1);
+        budget.tryWithdraw();
+
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.tryWithdraw()).isFalse();
+        budget.deposit();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void balanceIsCappedAtMaxTokens() {
+        TokenBudget budget = new TokenBudget(0.5, 2);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.getAvailable()).isEqualTo(2);
+    }
+}
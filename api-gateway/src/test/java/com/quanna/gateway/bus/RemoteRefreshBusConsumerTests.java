@@ -0,0 +1,59 @@
+package com.quanna.gateway.bus;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.bus.BusBridge;
+import org.springframework.cloud.bus.BusProperties;
+import org.springframework.cloud.bus.DefaultBusPathMatcher;
+import org.springframework.cloud.bus.PathServiceMatcher;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.cloud.bus.event.PathDestinationFactory;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RemoteRefreshBusConsumerTests {
+
+    private final List<Object> published = new ArrayList<>();
+    private final Destination.Factory destinations = new PathDestinationFactory();
+    private final RemoteRefreshBusConsumer consumer = new RemoteRefreshBusConsumer(published::add,
+            new PathServiceMatcher(new DefaultBusPathMatcher(new AntPathMatcher(":")), "api-gateway:dev:8080"),
+            new DefaultListableBeanFactory().getBeanProvider(BusBridge.class), new BusProperties(), destinations);
+
+    @Test
+    void reportsRefreshOfAnotherService() {
+        consumer.accept(refresh("demo-client:dev"));
+
+        assertThat(published).singleElement().isInstanceOfSatisfying(RemoteRefreshEvent.class, event -> {
+            assertThat(event.getDestinationService()).isEqualTo("demo-client:dev:**");
+            assertThat(event.isFor("demo-client")).isTrue();
+            assertThat(event.isFor("api-gateway")).isFalse();
+        });
+    }
+
+    @Test
+    void refreshOfTheGatewayIsPublishedAsBefore() {
+        consumer.accept(refresh("api-gateway"));
+
+        assertThat(published).noneMatch(RemoteRefreshEvent.class::isInstance)
+                .anyMatch(RefreshRemoteApplicationEvent.class::isInstance);
+    }
+
+    @Test
+    void wildcardDestinationCoversEveryService() {
+        RemoteRefreshEvent event = new RemoteRefreshEvent(this, "demo-*:**");
+
+        assertThat(event.isFor("demo-client")).isTrue();
+        assertThat(event.isFor("api-gateway")).isFalse();
+        assertThat(new RemoteRefreshEvent(this, "**").isFor("api-gateway")).isTrue();
+    }
+
+    private RefreshRemoteApplicationEvent refresh(String destination) {
+        return new RefreshRemoteApplicationEvent(this, "config-service:native:8888",
+                destinations.getDestination(destination));
+    }
+}
@@ -0,0 +1,132 @@
+package com.quanna.gateway.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void requestsAboveLimitAreShed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+    }
+
+    @Test
+    void releaseWithoutSampleKeepsLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 20, 2, 200);
+        limiter.tryAcquire();
+
+        limiter.release();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void gradientLimitShrinksWhenLatencyGrowsAndRecovers() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 100, 2, 1000);
+        for (int i = 0; i < 50; i++) {
+            complete(limiter, BASELINE, false);
+        }
+        int steady = limiter.getLimit();
+        assertThat(steady).isGreaterThan(100);
+
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, SLOW, false);
+        }
+        int congested = limiter.getLimit();
+        assertThat(congested).isLessThan(steady);
+
+        // The short-term average takes a few requests to come back down before the limit grows again
+        for (int i = 0; i < 50; i++) {
+            complete(limiter, BASELINE, false);
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(congested);
+    }
+
+    @Test
+    void gradientLimitBacksOffOnDrops() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 100, 2, 1000);
+
+        complete(limiter, BASELINE, true);
+
+        assertThat(limiter.getLimit()).isEqualTo(90);
+    }
+
+    @Test
+    void applicationLimitedRequestsLeaveLimitAlone() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 100, 2, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(BASELINE, 10, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void limitStaysWithinBounds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(gradient(), 20, 5, 30);
+
+        for (int i = 0; i < 100; i++) {
+            complete(limiter, BASELINE, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(30);
+
+        for (int i = 0; i < 100; i++) {
+            complete(limiter, BASELINE, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(5);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void aimdLimitGrowsAdditivelyAndBacksOffOnSlowOrDroppedRequests() {
+        AimdLimitAlgorithm aimd = new AimdLimitAlgorithm(0.5, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertThat(aimd.update(10, BASELINE, 5, false)).isEqualTo(10.1);
+        assertThat(aimd.update(10, BASELINE, 4, false)).isEqualTo(10);
+        assertThat(aimd.update(10, SLOW, 10, false)).isEqualTo(5);
+        assertThat(aimd.update(10, BASELINE, 10, true)).isEqualTo(5);
+    }
+
+    @Test
+    void aimdLimitRecoversOneSlotPerLimitOfSuccesses() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AimdLimitAlgorithm(0.5, TimeUnit.MILLISECONDS.toNanos(50)), 10, 2, 100);
+        complete(limiter, SLOW, false);
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        for (int i = 0; i < 6; i++) {
+            complete(limiter, BASELINE, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(6);
+    }
+
+    /**
+     * One request completing while the limit is fully used
+     */
+    private static void complete(AdaptiveConcurrencyLimiter limiter, long rttNanos, boolean dropped) {
+        limiter.tryAcquire();
+        limiter.release(rttNanos, limiter.getLimit(), dropped);
+    }
+
+    private static GradientLimitAlgorithm gradient() {
+        return new GradientLimitAlgorithm(2.0, 0.9);
+    }
+}
@@ -0,0 +1,45 @@
+package com.quanna.gateway.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRegistryDecoderTests {
+
+    private static final String SNAPSHOT = """
+            {"version":"1700000000000-42","apps":{"DEMO-CLIENT":[
+              {"id":"demo-client:9001","host":"host-1","ip":"10.0.0.5","port":9001,"status":"UP",
+               "updated":1700000000123,"metadata":{"zone":"a"}},
+              {"id":"demo-client:9443","host":"host-2","ip":"10.0.0.6","securePort":9443,"status":"DOWN",
+               "vip":"demo","updated":1700000000456}]}}
+            """;
+
+    @Test
+    void decodesWhatRoutingNeeds() throws Exception {
+        JsonNode snapshot = new ObjectMapper().readTree(SNAPSHOT);
+
+        Applications applications = CompactRegistryDecoder.decode(snapshot);
+
+        assertThat(CompactRegistryDecoder.version(snapshot)).isEqualTo("1700000000000-42");
+        InstanceInfo plain = applications.getRegisteredApplications("DEMO-CLIENT").getByInstanceId("demo-client:9001");
+        assertThat(plain.getIPAddr()).isEqualTo("10.0.0.5");
+        assertThat(plain.getPort()).isEqualTo(9001);
+        assertThat(plain.isPortEnabled(InstanceInfo.PortType.UNSECURE)).isTrue();
+        assertThat(plain.isPortEnabled(InstanceInfo.PortType.SECURE)).isFalse();
+        assertThat(plain.getStatus()).isEqualTo(InstanceInfo.InstanceStatus.UP);
+        assertThat(plain.getVIPAddress()).isEqualTo("demo-client");
+        assertThat(plain.getMetadata()).containsEntry("zone", "a");
+        assertThat(plain.getLastUpdatedTimestamp()).isEqualTo(1700000000123L);
+
+        InstanceInfo secure = applications.getRegisteredApplications("DEMO-CLIENT").getByInstanceId("demo-client:9443");
+        assertThat(secure.isPortEnabled(InstanceInfo.PortType.UNSECURE)).isFalse();
+        assertThat(secure.isPortEnabled(InstanceInfo.PortType.SECURE)).isTrue();
+        assertThat(secure.getSecurePort()).isEqualTo(9443);
+        assertThat(secure.getStatus()).isEqualTo(InstanceInfo.InstanceStatus.DOWN);
+        assertThat(secure.getVIPAddress()).isEqualTo("demo");
+    }
+}
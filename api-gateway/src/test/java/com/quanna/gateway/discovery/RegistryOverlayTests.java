@@ -0,0 +1,129 @@
+package com.quanna.gateway.discovery;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistryOverlayTests {
+
+    private static final String SERVICE = "demo-client";
+
+    private final RegistryOverlay overlay = new RegistryOverlay(true);
+
+    @Test
+    void registrationShowsUntilFetchCatchesUp() {
+        overlay.put(instance(9002, InstanceStatus.UP, 20));
+
+        assertThat(ports(overlay.apply(SERVICE, fetched(instance(9001, InstanceStatus.UP, 10)))))
+                .containsExactly(9001, 9002);
+        // A stale fetch doesn't undo it
+        assertThat(ports(overlay.apply(SERVICE, fetched(instance(9001, InstanceStatus.UP, 10)))))
+                .containsExactly(9001, 9002);
+
+        List<ServiceInstance> caughtUp = fetched(instance(9001, InstanceStatus.UP, 10), instance(9002, InstanceStatus.UP, 20));
+        assertThat(ports(overlay.apply(SERVICE, caughtUp))).containsExactly(9001, 9002);
+        assertThat(overlay.apply(SERVICE, caughtUp)).isSameAs(caughtUp);
+    }
+
+    @Test
+    void cancellationHidesInstanceUntilFetchDropsIt() {
+        overlay.remove(instance(9002, InstanceStatus.UP, 20));
+        List<ServiceInstance> stale = fetched(instance(9001, InstanceStatus.UP, 10), instance(9002, InstanceStatus.UP, 15));
+
+        assertThat(ports(overlay.apply(SERVICE, stale))).containsExactly(9001);
+        assertThat(ports(overlay.apply(SERVICE, stale))).containsExactly(9001);
+
+        List<ServiceInstance> dropped = fetched(instance(9001, InstanceStatus.UP, 10));
+        assertThat(ports(overlay.apply(SERVICE, dropped))).containsExactly(9001);
+        assertThat(overlay.apply(SERVICE, dropped)).isSameAs(dropped);
+    }
+
+    @Test
+    void cancelledInstanceRegisteredAgainIsFetched() {
+        overlay.remove(instance(9002, InstanceStatus.UP, 20));
+
+        List<ServiceInstance> reregistered = fetched(instance(9002, InstanceStatus.UP, 30));
+        assertThat(ports(overlay.apply(SERVICE, reregistered))).containsExactly(9002);
+        assertThat(overlay.apply(SERVICE, reregistered)).isSameAs(reregistered);
+    }
+
+    @Test
+    void statusChangeOverridesStaleFetch() {
+        overlay.put(instance(9001, InstanceStatus.OUT_OF_SERVICE, 20));
+        List<ServiceInstance> stale = fetched(instance(9001, InstanceStatus.UP, 10), instance(9002, InstanceStatus.UP, 10));
+
+        assertThat(ports(overlay.apply(SERVICE, stale))).containsExactly(9002);
+
+        overlay.put(instance(9001, InstanceStatus.UP, 30));
+        List<ServiceInstance> instances = overlay.apply(SERVICE, stale);
+        assertThat(ports(instances)).containsExactly(9001, 9002);
+        assertThat(((EurekaServiceInstance) instances.get(0)).getInstanceInfo().getLastUpdatedTimestamp()).isEqualTo(30);
+    }
+
+    @Test
+    void statusIsIgnoredWhenNotFilteringOnlyUp() {
+        RegistryOverlay all = new RegistryOverlay(false);
+        all.put(instance(9002, InstanceStatus.DOWN, 20));
+
+        assertThat(ports(all.apply(SERVICE, fetched(instance(9001, InstanceStatus.UP, 10))))).containsExactly(9001, 9002);
+    }
+
+    @Test
+    void snapshotReplacesChangesAndHidesInstancesItLacks() {
+        overlay.put(instance(9003, InstanceStatus.UP, 20));
+        Applications fetched = applications(instance(9001, InstanceStatus.UP, 10), instance(9002, InstanceStatus.UP, 10));
+        Applications snapshot = applications(instance(9001, InstanceStatus.UP, 10), instance(9004, InstanceStatus.UP, 25));
+
+        overlay.reset(snapshot, fetched);
+
+        assertThat(ports(overlay.apply(SERVICE,
+                fetched(instance(9001, InstanceStatus.UP, 10), instance(9002, InstanceStatus.UP, 10)))))
+                .containsExactly(9001, 9004);
+    }
+
+    @Test
+    void otherServicesAreUntouched() {
+        overlay.remove(instance(9001, InstanceStatus.UP, 20));
+        List<ServiceInstance> fetched = fetched(instance(9001, InstanceStatus.UP, 10));
+
+        assertThat(overlay.apply("other", fetched)).isSameAs(fetched);
+    }
+
+    private static List<ServiceInstance> fetched(InstanceInfo... instances) {
+        return Arrays.stream(instances).<ServiceInstance>map(EurekaServiceInstance::new).toList();
+    }
+
+    private static Applications applications(InstanceInfo... instances) {
+        Application application = new Application(SERVICE.toUpperCase());
+        for (InstanceInfo instance : instances) {
+            application.addInstance(instance);
+        }
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        return applications;
+    }
+
+    private static List<Integer> ports(List<ServiceInstance> instances) {
+        return instances.stream().map(ServiceInstance::getPort).toList();
+    }
+
+    private static InstanceInfo instance(int port, InstanceStatus status, long lastUpdated) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(SERVICE.toUpperCase())
+                .setInstanceId(SERVICE + ":" + port)
+                .setHostName("localhost")
+                .setPort(port)
+                .setStatus(status)
+                .setLastUpdatedTimestamp(lastUpdated)
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.concurrency.UpstreamSample;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.DispatcherHandler;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AdaptiveConcurrencyLimitGatewayFilterFactoryTests {
+
+    private static final String ROUTE = "orders";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    @SuppressWarnings("unchecked")
+    private final AdaptiveConcurrencyLimitGatewayFilterFactory factory = new AdaptiveConcurrencyLimitGatewayFilterFactory(
+            registry, mock(ObjectProvider.class));
+
+    @Test
+    void requestAboveLimitIsShed() {
+        GatewayFilter filter = factory.apply(config(1));
+        Disposable pending = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+
+        MockServerWebExchange shed = exchange();
+        filter.filter(shed, exchange -> Mono.error(new AssertionError("must not reach the upstream"))).block();
+
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(registry.get("gateway.concurrency.rejected").tag("route", ROUTE).functionCounter().count())
+                .isEqualTo(1);
+        pending.dispose();
+    }
+
+    @Test
+    void failedRequestReleasesItsSlot() {
+        GatewayFilter filter = factory.apply(config(1));
+
+        filter.filter(exchange(), exchange -> Mono.error(new IllegalStateException("connection reset")))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertThat(inFlight()).isZero();
+        assertThat(limit()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledRequestReleasesItsSlot() {
+        GatewayFilter filter = factory.apply(config(1));
+        Disposable request = filter.filter(exchange(), exchange -> Mono.never()).subscribe();
+        assertThat(inFlight()).isEqualTo(1);
+
+        // e.g. the client disconnected or a timeout fired upstream of the filter
+        request.dispose();
+
+        assertThat(inFlight()).isZero();
+        MockServerWebExchange next = exchange();
+        filter.filter(next, exchange -> Mono.empty()).block();
+        assertThat(next.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void droppedUpstreamRequestLowersLimit() {
+        GatewayFilter filter = factory.apply(config(20));
+
+        filter.filter(exchange(), exchange -> {
+            UpstreamSample.get(exchange).record(TimeUnit.MILLISECONDS.toNanos(10), true);
+            return Mono.error(new IllegalStateException("upstream failed"));
+        }).onErrorResume(e -> Mono.empty()).block();
+
+        assertThat(inFlight()).isZero();
+        assertThat(limit()).isEqualTo(18);
+    }
+
+    private double inFlight() {
+        return registry.get("gateway.concurrency.inflight").tag("route", ROUTE).gauge().value();
+    }
+
+    private double limit() {
+        return registry.get("gateway.concurrency.limit").tag("route", ROUTE).gauge().value();
+    }
+
+    private static AdaptiveConcurrencyLimitGatewayFilterFactory.Config config(int initialLimit) {
+        AdaptiveConcurrencyLimitGatewayFilterFactory.Config config = new AdaptiveConcurrencyLimitGatewayFilterFactory.Config();
+        config.setRouteId(ROUTE);
+        config.setInitialLimit(initialLimit);
+        config.setMinLimit(1);
+        return config;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/orders").build());
+    }
+}
@@ -0,0 +1,116 @@
+package com.quanna.gateway.filter;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class BudgetedRetryGatewayFilterFactoryTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final GatewayFilterChain unavailable = exchange -> {
+        calls.incrementAndGet();
+        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        return Mono.empty();
+    };
+
+    @Test
+    void retriesStopWhenBudgetIsExhausted() {
+        GatewayFilter filter = filter(3, 2);
+
+        MockServerWebExchange first = exchange();
+        filter.filter(first, unavailable).block();
+        // Burst of two retries, then the budget is dry
+        assertThat(calls).hasValue(3);
+        assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        filter.filter(exchange(), unavailable).block();
+        assertThat(calls).hasValue(4);
+        assertThat(meterRegistry.get("gateway.retry.skipped").tag("reason", "budget").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("gateway.retry.budget.available").gauge().value()).isZero();
+    }
+
+    @Test
+    void requestsRefillBudget() {
+        GatewayFilter filter = filter(1, 1);
+
+        filter.filter(exchange(), unavailable).block();
+        assertThat(calls).hasValue(2);
+        // 0.1 retry per request: the tenth request after the burst was spent earns the next retry
+        for (int i = 0; i < 9; i++) {
+            filter.filter(exchange(), unavailable).block();
+        }
+        assertThat(calls).hasValue(11);
+        filter.filter(exchange(), unavailable).block();
+        assertThat(calls).hasValue(13);
+    }
+
+    @Test
+    void retriesAreLimitedWhileBudgetLasts() {
+        GatewayFilter filter = filter(2, 10);
+
+        filter.filter(exchange(), unavailable).block();
+
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.get("gateway.retry.attempts").summary().mean()).isEqualTo(3);
+    }
+
+    @Test
+    void refreshedBudgetSettingsReplaceBudget() {
+        BudgetedRetryGatewayFilterFactory factory = factory();
+        factory.apply(config(3, 1)).filter(exchange(), unavailable).block();
+        assertThat(calls).hasValue(2);
+
+        // Route refresh with a larger burst: the route starts over with a full budget of the new size
+        factory.apply(config(3, 5)).filter(exchange(), unavailable).block();
+
+        assertThat(calls).hasValue(6);
+        assertThat(meterRegistry.find("gateway.retry.budget.available").gauges()).hasSize(1);
+        assertThat(meterRegistry.get("gateway.retry.budget.available").gauge().value()).isEqualTo(2.0, within(0.01));
+    }
+
+    @Test
+    void refreshWithSameBudgetSettingsKeepsBudget() {
+        BudgetedRetryGatewayFilterFactory factory = factory();
+        factory.apply(config(3, 1)).filter(exchange(), unavailable).block();
+
+        factory.apply(config(3, 1)).filter(exchange(), unavailable).block();
+
+        assertThat(calls).hasValue(3);
+    }
+
+    private GatewayFilter filter(int retries, int budgetBurst) {
+        return factory().apply(config(retries, budgetBurst));
+    }
+
+    private BudgetedRetryGatewayFilterFactory factory() {
+        return new BudgetedRetryGatewayFilterFactory(meterRegistry,
+                new DefaultListableBeanFactory().getBeanProvider(CircuitBreakerRegistry.class));
+    }
+
+    private static BudgetedRetryGatewayFilterFactory.Config config(int retries, int budgetBurst) {
+        BudgetedRetryGatewayFilterFactory.Config config = new BudgetedRetryGatewayFilterFactory.Config();
+        config.setRetries(retries);
+        config.setBudgetBurst(budgetBurst);
+        config.getBackoff().setFirstBackoff(Duration.ZERO);
+        return config;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/items"));
+    }
+}
@@ -0,0 +1,150 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.hedge.HedgeBudget;
+import com.quanna.gateway.hedge.HedgeProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+
+class HedgeGatewayFilterFactoryTests {
+
+    private final HedgeGatewayFilterFactory factory = new HedgeGatewayFilterFactory(
+            new HedgeBudget(new HedgeProperties()), new HedgeProperties());
+
+    @Test
+    void hedgeWinsWhenPrimaryIsSlow() {
+        Upstream upstream = new Upstream();
+        MockServerWebExchange exchange = exchange();
+
+        CompletableFuture<Void> result = hedged(Duration.ofMillis(20)).filter(exchange, upstream).toFuture();
+        upstream.awaitAttempts(2);
+        upstream.answer(1, HttpStatus.OK, true);
+
+        result.join();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("attempt-1");
+        assertThat(upstream.attempts.get(0).cancelled).isTrue();
+    }
+
+    @Test
+    void localRejectionDoesNotBeatUpstreamResponse() {
+        Upstream upstream = new Upstream();
+        MockServerWebExchange exchange = exchange();
+
+        CompletableFuture<Void> result = hedged(Duration.ofMillis(20)).filter(exchange, upstream).toFuture();
+        upstream.awaitAttempts(2);
+        // e.g. the circuit breaker fallback of the hedge
+        upstream.answer(1, HttpStatus.SERVICE_UNAVAILABLE, false);
+        assertThat(result).isNotDone();
+        upstream.answer(0, HttpStatus.OK, true);
+
+        result.join();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("attempt-0");
+    }
+
+    @Test
+    void localRejectionIsWrittenWhenNoOtherAttemptIsLeft() {
+        Upstream upstream = new Upstream();
+        MockServerWebExchange exchange = exchange();
+
+        CompletableFuture<Void> result = hedged(Duration.ofMillis(20)).filter(exchange, upstream).toFuture();
+        upstream.awaitAttempts(2);
+        upstream.answer(0, HttpStatus.SERVICE_UNAVAILABLE, false);
+        upstream.fail(1);
+
+        result.join();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void localRejectionBeforeHedgeIsFinal() {
+        Upstream upstream = new Upstream();
+        MockServerWebExchange exchange = exchange();
+
+        CompletableFuture<Void> result = hedged(Duration.ofSeconds(10)).filter(exchange, upstream).toFuture();
+        upstream.awaitAttempts(1);
+        // e.g. a rate limit rejection
+        upstream.answer(0, HttpStatus.TOO_MANY_REQUESTS, false);
+
+        result.join();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(upstream.attempts).hasSize(1);
+    }
+
+    private GatewayFilter hedged(Duration delay) {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setInitialDelay(delay);
+        config.setMinDelay(delay);
+        return factory.apply(config);
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/items"));
+    }
+
+    /**
+     * Rest of the chain; each attempt waits until the test answers it
+     */
+    private static final class Upstream implements GatewayFilterChain {
+        private final List<Attempt> attempts = new CopyOnWriteArrayList<>();
+
+        void awaitAttempts(int count) {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (attempts.size() < count && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertThat(attempts).hasSize(count);
+        }
+
+        void answer(int attempt, HttpStatus status, boolean fromUpstream) {
+            attempts.get(attempt).answer.tryEmitValue(new Answer(status, fromUpstream));
+        }
+
+        void fail(int attempt) {
+            attempts.get(attempt).answer.tryEmitError(new IllegalStateException("connection reset"));
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            Attempt attempt = new Attempt();
+            int index = attempts.size();
+            attempts.add(attempt);
+            return attempt.answer.asMono().flatMap(answer -> {
+                ServerHttpResponse response = exchange.getResponse();
+                if (answer.fromUpstream()) {
+                    exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES, Set.of(HttpHeaders.CONTENT_TYPE));
+                }
+                response.setStatusCode(answer.status());
+                byte[] body = ("attempt-" + index).getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            }).doOnCancel(() -> attempt.cancelled = true);
+        }
+    }
+
+    private static final class Attempt {
+        private final Sinks.One<Answer> answer = Sinks.one();
+        private volatile boolean cancelled;
+    }
+
+    private record Answer(HttpStatus status, boolean fromUpstream) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.coalescing.RequestCoalescer;
+import com.quanna.gateway.coalescing.RequestCoalescingProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+
+class RequestCoalescingGatewayFilterFactoryTests {
+
+    private final GatewayFilter filter = new RequestCoalescingGatewayFilterFactory(
+            new RequestCoalescer(new RequestCoalescingProperties()))
+            .apply(new RequestCoalescingGatewayFilterFactory.Config());
+
+    @Test
+    void waiterGetsCopyOfLeaderResponse() {
+        Upstream upstream = new Upstream(HttpStatus.OK, true);
+        MockServerWebExchange leader = exchange("alice");
+        MockServerWebExchange waiter = exchange("alice");
+
+        CompletableFuture<Void> first = filter.filter(leader, upstream).toFuture();
+        CompletableFuture<Void> second = filter.filter(waiter, upstream).toFuture();
+        upstream.release();
+
+        first.join();
+        second.join();
+        assertThat(upstream.calls).hasValue(1);
+        assertThat(waiter.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(waiter.getResponse().getHeaders().getContentType()).hasToString("text/plain");
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo("items");
+    }
+
+    @Test
+    void serverErrorIsNotShared() {
+        Upstream upstream = new Upstream(HttpStatus.SERVICE_UNAVAILABLE, true);
+
+        assertWaiterCallsUpstream(upstream);
+    }
+
+    @Test
+    void localResponseIsNotShared() {
+        // e.g. a fallback or rejection written by a gateway filter without reaching the upstream
+        Upstream upstream = new Upstream(HttpStatus.OK, false);
+
+        assertWaiterCallsUpstream(upstream);
+    }
+
+    @Test
+    void leaderErrorReleasesWaiters() {
+        Upstream upstream = new Upstream(HttpStatus.OK, true);
+        upstream.fail = true;
+        MockServerWebExchange waiter = exchange("alice");
+
+        CompletableFuture<Void> first = filter.filter(exchange("alice"), upstream).toFuture();
+        CompletableFuture<Void> second = filter.filter(waiter, upstream).toFuture();
+        upstream.fail = false;
+        upstream.release();
+
+        assertThat(first).isCompletedExceptionally();
+        second.join();
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo("items");
+    }
+
+    @Test
+    void differentUsersAreNotCoalesced() {
+        Upstream upstream = new Upstream(HttpStatus.OK, true);
+
+        CompletableFuture<Void> first = filter.filter(exchange("alice"), upstream).toFuture();
+        CompletableFuture<Void> second = filter.filter(exchange("bob"), upstream).toFuture();
+        upstream.release();
+
+        first.join();
+        second.join();
+        assertThat(upstream.calls).hasValue(2);
+    }
+
+    private void assertWaiterCallsUpstream(Upstream upstream) {
+        MockServerWebExchange waiter = exchange("alice");
+
+        CompletableFuture<Void> first = filter.filter(exchange("alice"), upstream).toFuture();
+        CompletableFuture<Void> second = filter.filter(waiter, upstream).toFuture();
+        upstream.release();
+
+        first.join();
+        second.join();
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(waiter.getResponse().getStatusCode()).isEqualTo(upstream.status);
+    }
+
+    private static MockServerWebExchange exchange(String user) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/items").header("X-User-ID", user));
+    }
+
+    /**
+     * Routing and response writing of the rest of the chain, held back until {@link #release}
+     */
+    private static final class Upstream implements GatewayFilterChain {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Sinks.Empty<Void> released = Sinks.empty();
+        private final HttpStatus status;
+        private final boolean fromUpstream;
+        private boolean fail;
+
+        private Upstream(HttpStatus status, boolean fromUpstream) {
+            this.status = status;
+            this.fromUpstream = fromUpstream;
+        }
+
+        void release() {
+            released.tryEmitEmpty();
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            calls.incrementAndGet();
+            if (fail) {
+                return released.asMono().then(Mono.error(new IllegalStateException("connection reset")));
+            }
+            return released.asMono().then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                if (fromUpstream) {
+                    exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES, Set.of(HttpHeaders.CONTENT_TYPE));
+                }
+                response.setStatusCode(status);
+                response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "text/plain");
+                byte[] body = "items".getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            }));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.bus.RemoteRefreshEvent;
+import com.quanna.gateway.cache.ResponseCache;
+import com.quanna.gateway.cache.ResponseCacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class ResponseCacheGatewayFilterFactoryTests {
+
+    private static final Route ROUTE = route("demo-client");
+
+    private final ResponseCache cache = new ResponseCache(new ResponseCacheProperties());
+    private final GatewayFilter filter = new ResponseCacheGatewayFilterFactory(cache)
+            .apply(new ResponseCacheGatewayFilterFactory.Config());
+
+    @Test
+    void missIsStoredAndServedAsHit() {
+        Upstream upstream = new Upstream();
+
+        MockServerWebExchange miss = get(ROUTE);
+        filter.filter(miss, upstream).block();
+        MockServerWebExchange hit = get(ROUTE);
+        filter.filter(hit, upstream).block();
+
+        assertThat(upstream.calls).hasValue(1);
+        assertThat(miss.getResponse().getHeaders().getFirst("X-Cache")).isNull();
+        assertThat(hit.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(hit.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(hit.getResponse().getBodyAsString().block()).isEqualTo("payload-1");
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModified() {
+        Upstream upstream = new Upstream();
+        filter.filter(get(ROUTE), upstream).block();
+        String etag = get(ROUTE, filter, upstream).getResponse().getHeaders().getETag();
+
+        MockServerWebExchange revalidation = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/demo-client/api/config").ifNoneMatch(etag));
+        revalidation.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        filter.filter(revalidation, upstream).block();
+
+        assertThat(etag).isNotNull();
+        assertThat(revalidation.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidation.getResponse().getBodyAsString().block()).isEmpty();
+        assertThat(upstream.calls).hasValue(1);
+    }
+
+    @Test
+    void noStoreAndPrivateResponsesAreNotStored() {
+        for (String cacheControl : new String[]{"no-store", "private, max-age=60"}) {
+            Upstream upstream = new Upstream(headers -> headers.setCacheControl(cacheControl));
+
+            filter.filter(get(route(cacheControl)), upstream).block();
+            filter.filter(get(route(cacheControl)), upstream).block();
+
+            assertThat(upstream.calls).as(cacheControl).hasValue(2);
+        }
+    }
+
+    @Test
+    void varyOutsideKeyIsNotStored() {
+        Upstream upstream = new Upstream(headers -> headers.setVary(List.of("X-Tenant")));
+
+        filter.filter(get(ROUTE), upstream).block();
+        filter.filter(get(ROUTE), upstream).block();
+
+        assertThat(upstream.calls).hasValue(2);
+    }
+
+    @Test
+    void varyHeadersArePartOfKey() {
+        Upstream upstream = new Upstream(headers -> headers.setVary(List.of(HttpHeaders.ACCEPT)));
+
+        filter.filter(get(ROUTE, "application/json"), upstream).block();
+        filter.filter(get(ROUTE, "text/plain"), upstream).block();
+        MockServerWebExchange hit = get(ROUTE, "application/json");
+        filter.filter(hit, upstream).block();
+
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(hit.getResponse().getBodyAsString().block()).isEqualTo("payload-1");
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() {
+        Upstream upstream = new Upstream().held();
+        MockServerWebExchange waiter = get(ROUTE);
+
+        CompletableFuture<Void> leader = filter.filter(get(ROUTE), upstream).toFuture();
+        CompletableFuture<Void> waiting = filter.filter(waiter, upstream).toFuture();
+        upstream.release();
+
+        leader.join();
+        waiting.join();
+        assertThat(upstream.calls).hasValue(1);
+        assertThat(waiter.getResponse().getBodyAsString().block()).isEqualTo("payload-1");
+    }
+
+    @Test
+    void fetchStartedBeforeRefreshIsNeitherStoredNorJoined() {
+        Upstream upstream = new Upstream().held();
+
+        CompletableFuture<Void> stale = filter.filter(get(ROUTE), upstream).toFuture();
+        cache.invalidateAll();
+        MockServerWebExchange fresh = get(ROUTE);
+        CompletableFuture<Void> afterRefresh = filter.filter(fresh, upstream).toFuture();
+        upstream.release();
+        stale.join();
+        afterRefresh.join();
+
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(fresh.getResponse().getBodyAsString().block()).isEqualTo("payload-2");
+        MockServerWebExchange hit = get(ROUTE);
+        filter.filter(hit, upstream).block();
+        assertThat(hit.getResponse().getBodyAsString().block()).isEqualTo("payload-2");
+    }
+
+    @Test
+    void busRefreshOfServiceDropsOnlyItsFetchesAndEntries() {
+        Upstream upstream = new Upstream().held();
+        Route other = route("other-service");
+        CompletableFuture<Void> stale = filter.filter(get(ROUTE), upstream).toFuture();
+        CompletableFuture<Void> unaffected = filter.filter(get(other), upstream).toFuture();
+
+        cache.invalidate(new RemoteRefreshEvent(this, "demo-client:dev:**"));
+        upstream.release();
+        stale.join();
+        unaffected.join();
+        filter.filter(get(ROUTE), upstream).block();
+        filter.filter(get(other), upstream).block();
+
+        assertThat(upstream.calls).hasValue(3);
+    }
+
+    private static MockServerWebExchange get(Route route) {
+        return get(route, null);
+    }
+
+    private static MockServerWebExchange get(Route route, String accept) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/demo-client/api/config");
+        if (accept != null) {
+            request.header(HttpHeaders.ACCEPT, accept);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+    private static MockServerWebExchange get(Route route, GatewayFilter filter, Upstream upstream) {
+        MockServerWebExchange exchange = get(route);
+        filter.filter(exchange, upstream).block();
+        return exchange;
+    }
+
+    private static Route route(String service) {
+        return Route.async()
+                .id(service.replaceAll("[^a-z-]", ""))
+                .uri("lb://" + service.replaceAll("[^a-z-]", ""))
+                .predicate(exchange -> true)
+                .build();
+    }
+
+    /**
+     * Routing and response writing of the rest of the chain; each call answers with the next payload
+     */
+    private static final class Upstream implements GatewayFilterChain {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Consumer<HttpHeaders> headers;
+        private Sinks.Empty<Void> released;
+
+        private Upstream() {
+            this(headers -> {
+            });
+        }
+
+        private Upstream(Consumer<HttpHeaders> headers) {
+            this.headers = headers;
+        }
+
+        /**
+         * Holds responses back until {@link #release}
+         */
+        Upstream held() {
+            released = Sinks.empty();
+            return this;
+        }
+
+        void release() {
+            released.tryEmitEmpty();
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            int call = calls.incrementAndGet();
+            Mono<Void> wait = released != null ? released.asMono() : Mono.empty();
+            return wait.then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                response.getHeaders().set(HttpHeaders.CONTENT_TYPE, "text/plain");
+                headers.accept(response.getHeaders());
+                exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES, response.getHeaders().keySet());
+                byte[] body = ("payload-" + call).getBytes(StandardCharsets.UTF_8);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            }));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.quanna.gateway.filter;
+
+import com.quanna.gateway.metrics.RouteLatencyMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RouteLatencyFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RouteLatencyFilter filter = new RouteLatencyFilter(new RouteLatencyMetrics(registry));
+
+    @Test
+    void completedExchangeIsRecordedOnceWithItsStatus() {
+        MockServerWebExchange exchange = exchange();
+
+        filter.filter(exchange, ex -> {
+            ex.getResponse().setStatusCode(HttpStatus.CREATED);
+            return Mono.empty();
+        }).block();
+
+        assertThat(timer("2xx").count()).isEqualTo(1);
+        assertThat(registry.find("gateway.route.latency").timers()).hasSize(1);
+    }
+
+    @Test
+    void failedExchangeWithoutStatusIsRecordedAsServerError() {
+        MockServerWebExchange exchange = exchange();
+
+        filter.filter(exchange, ex -> Mono.error(new IllegalStateException("boom")))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertThat(timer("5xx").count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledExchangeIsRecordedAsClientClosedRequest() {
+        MockServerWebExchange exchange = exchange();
+
+        // Upstream already answered, but the client went away before the body was written
+        Disposable subscription = filter.filter(exchange, ex -> {
+            ex.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.never();
+        }).subscribe();
+        subscription.dispose();
+
+        assertThat(timer("4xx").count()).isEqualTo(1);
+        assertThat(registry.find("gateway.route.latency").tag("status", "2xx").timer()).isNull();
+    }
+
+    private Timer timer(String statusClass) {
+        return registry.get("gateway.route.latency").tag("routeId", "orders").tag("status", statusClass).timer();
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/orders").build());
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async()
+                .id("orders")
+                .uri("http://orders")
+                .predicate(ex -> true)
+                .build());
+        return exchange;
+    }
+}
@@ -0,0 +1,95 @@
+package com.quanna.gateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareLoadBalancerTests {
+
+    private final ServiceInstance a = instance("a");
+    private final ServiceInstance b = instance("b");
+    private final ServiceInstance c = instance("c");
+    private final LoadBalancerStats stats = new LoadBalancerStats(new LatencyAwareLoadBalancerProperties());
+
+    @Test
+    void excludedInstanceKeepsItsStats() {
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(a, b, c);
+        choose(loadBalancer, null);
+        InstanceStats measured = stats.get(a);
+        stats.start(measured);
+        stats.finish(measured, 5_000_000, false);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(choose(loadBalancer, a)).isNotEqualTo(a);
+        }
+
+        assertThat(stats.get(a)).isSameAs(measured);
+        assertThat(measured.getLatencyNanos()).isEqualTo(5_000_000);
+        assertThat(measured.weight(System.nanoTime(), 30_000_000_000L, 0.1)).isEqualTo(1);
+    }
+
+    @Test
+    void excludedInstanceIsAvoidedWhenAnotherOneIsLeft() {
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(a, b);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(choose(loadBalancer, a)).isEqualTo(b);
+            assertThat(choose(loadBalancer, b)).isEqualTo(a);
+        }
+    }
+
+    @Test
+    void excludedInstanceStillServesWhenAlone() {
+        assertThat(choose(loadBalancer(a), a)).isEqualTo(a);
+    }
+
+    private LatencyAwareLoadBalancer loadBalancer(ServiceInstance... instances) {
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "demo-client";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(List.of(instances));
+            }
+        };
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("supplier", supplier);
+        return new LatencyAwareLoadBalancer(beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+                "demo-client", stats);
+    }
+
+    private static ServiceInstance choose(LatencyAwareLoadBalancer loadBalancer, ServiceInstance excluded) {
+        Map<String, Object> attributes = new HashMap<>();
+        if (excluded != null) {
+            attributes.put(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_ATTR, excluded);
+        }
+        Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext(new RequestData(
+                HttpMethod.GET, URI.create("http://demo-client/"), new HttpHeaders(), new LinkedMultiValueMap<>(),
+                attributes)));
+        return loadBalancer.choose(request).block().getServer();
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "demo-client", id + ".local", 8080, false);
+    }
+}
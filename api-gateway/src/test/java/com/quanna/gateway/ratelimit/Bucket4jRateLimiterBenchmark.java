@@ -0,0 +1,72 @@
+package com.quanna.gateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Bucket4jRateLimiter#isAllowed} when clients rotate through 1M distinct keys.
+ *
+ * Run with:
+ * <pre>
+ * ./mvnw -pl api-gateway -Pbenchmark test-compile exec:exec -Dbenchmark=Bucket4jRateLimiterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Bucket4jRateLimiterBenchmark {
+
+    @Param({"1000000"})
+    private int distinctKeys;
+
+    @Param({"100000", "2000000"})
+    private long maxBuckets;
+
+    private String[] keys;
+    private Bucket4jRateLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[distinctKeys];
+        for (int i = 0; i < distinctKeys; i++) {
+            keys[i] = "10." + ((i >>> 16) & 0xff) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff);
+        }
+        limiter = new Bucket4jRateLimiter("benchmark", 50, Duration.ofSeconds(1),
+                maxBuckets, Duration.ofSeconds(60));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public RateLimiter.Response isAllowed() {
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return limiter.isAllowed("benchmark-route", key).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Bucket4jRateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
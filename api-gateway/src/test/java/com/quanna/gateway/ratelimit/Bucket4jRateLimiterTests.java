@@ -0,0 +1,32 @@
+package com.quanna.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bucket4jRateLimiterTests {
+
+    @Test
+    void reconfigureKeepsTokens() {
+        Bucket4jRateLimiter limiter = new Bucket4jRateLimiter("test", 5, Duration.ofHours(1),
+                1000, Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) {
+            limiter.isAllowed("route", "client").block();
+        }
+
+        limiter.reconfigure(10, Duration.ofHours(1));
+
+        Response response = limiter.isAllowed("route", "client").block();
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders())
+                .containsEntry("X-RateLimit-Remaining", "1")
+                .containsEntry("X-RateLimit-Limit", "10");
+        assertThat(limiter.isAllowed("route", "fresh").block().getHeaders())
+                .containsEntry("X-RateLimit-Remaining", "9");
+        assertThat(limiter.getConfig()).containsOnlyKeys("route");
+        assertThat(limiter.getConfig().get("route").getCapacity()).isEqualTo(10);
+    }
+}
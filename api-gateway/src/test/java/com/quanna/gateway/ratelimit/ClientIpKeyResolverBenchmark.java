@@ -0,0 +1,98 @@
+package com.quanna.gateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientIpKeyResolver} against the original split-based ipKeyResolver.
+ *
+ * Run with:
+ * <pre>
+ * ./mvnw -pl api-gateway -Pbenchmark test-compile exec:exec "-Dbenchmark=ClientIpKeyResolverBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientIpKeyResolverBenchmark {
+
+    private static final int CLIENTS = 256;
+
+    /**
+     * header: requests arrive through two proxies; direct: no X-Forwarded-For, peer address only.
+     */
+    @Param({"header", "direct"})
+    private String scenario;
+
+    private MockServerWebExchange[] exchanges;
+    private int next;
+    private KeyResolver baseline;
+    private KeyResolver current;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        exchanges = new MockServerWebExchange[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/demo-client/api/config")
+                    .remoteAddress(new InetSocketAddress("10.0.0." + i, 40000));
+            if ("header".equals(scenario)) {
+                request.header("X-Forwarded-For", "198.51.100." + i + ", 10.1.0.1, 10.2.0.1");
+            }
+            exchanges[i] = MockServerWebExchange.from(request);
+        }
+
+        baseline = exchange -> {
+            String ip = Optional.ofNullable(exchange.getRequest().getHeaders().getFirst("X-Forwarded-For"))
+                    .map(val -> val.split(",")[0].trim())
+                    .orElseGet(() -> exchange.getRequest().getRemoteAddress().getAddress().getHostAddress());
+            return Mono.just(ip);
+        };
+        current = new ClientIpKeyResolver(-1, 4096);
+    }
+
+    @Benchmark
+    public Mono<String> baseline() {
+        return baseline.resolve(nextExchange());
+    }
+
+    @Benchmark
+    public Mono<String> current() {
+        return current.resolve(nextExchange());
+    }
+
+    private MockServerWebExchange nextExchange() {
+        next = (next + 1) & (CLIENTS - 1);
+        return exchanges[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ClientIpKeyResolverBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,46 @@
+package com.quanna.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientIpKeyResolverTests {
+
+    @Test
+    void leftmostEntryWhenHopsNegative() {
+        assertThat(ClientIpKeyResolver.clientIp("203.0.113.7, 10.0.0.1, 10.0.0.2", -1)).isEqualTo("203.0.113.7");
+        assertThat(ClientIpKeyResolver.clientIp(" 203.0.113.7 ", -1)).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void countsTrustedHopsFromTheRight() {
+        String header = "198.51.100.1, 203.0.113.7, 10.0.0.1";
+
+        assertThat(ClientIpKeyResolver.clientIp(header, 1)).isEqualTo("10.0.0.1");
+        assertThat(ClientIpKeyResolver.clientIp(header, 2)).isEqualTo("203.0.113.7");
+        assertThat(ClientIpKeyResolver.clientIp(header, 3)).isEqualTo("198.51.100.1");
+        assertThat(ClientIpKeyResolver.clientIp(header, 5)).isEqualTo("198.51.100.1");
+    }
+
+    @Test
+    void singleAddressIsReturnedWithoutCopy() {
+        String header = "203.0.113.7";
+
+        assertThat(ClientIpKeyResolver.clientIp(header, 1)).isSameAs(header);
+    }
+
+    @Test
+    void fallsBackToPeerAddress() {
+        ClientIpKeyResolver resolver = new ClientIpKeyResolver(0, 16);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+                .header("X-Forwarded-For", "198.51.100.1")
+                .remoteAddress(new InetSocketAddress("192.0.2.10", 40000)));
+
+        assertThat(resolver.resolve(exchange).block()).isEqualTo("192.0.2.10");
+        assertThat(resolver.resolve(exchange)).isSameAs(resolver.resolve(exchange));
+    }
+}
@@ -0,0 +1,64 @@
+package com.quanna.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DistributedRateLimiterTests {
+
+    @Test
+    void replicasShareOneBucket() {
+        InMemoryTokenStore store = new InMemoryTokenStore(() -> 0L);
+        DistributedRateLimiter first = limiter(store);
+        DistributedRateLimiter second = limiter(store);
+
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (first.isAllowed("route", "client").block().isAllowed()) {
+                allowed++;
+            }
+            if (second.isAllowed("route", "client").block().isAllowed()) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(10);
+    }
+
+    @Test
+    void reservesTokensInBatches() {
+        AtomicInteger calls = new AtomicInteger();
+        InMemoryTokenStore delegate = new InMemoryTokenStore(() -> 0L);
+        TokenStore store = new TokenStore() {
+            @Override
+            public Mono<Grant> reserve(String key, long capacity, Duration refillPeriod, long requested) {
+                calls.incrementAndGet();
+                return delegate.reserve(key, capacity, refillPeriod, requested);
+            }
+
+            @Override
+            public String getImplementation() {
+                return delegate.getImplementation();
+            }
+        };
+        DistributedRateLimiter limiter = limiter(store);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.isAllowed("route", "client").block().isAllowed()).isTrue();
+        }
+        assertThat(limiter.isAllowed("route", "client").block().isAllowed()).isFalse();
+        assertThat(limiter.isAllowed("route", "client").block().isAllowed()).isFalse();
+
+        // Two batches of 5, then one rejected reservation; the second rejection is answered locally
+        assertThat(calls).hasValue(3);
+    }
+
+    private static DistributedRateLimiter limiter(TokenStore store) {
+        return new DistributedRateLimiter("test", 10, Duration.ofSeconds(1), store,
+                5, Duration.ofMinutes(1), 1000);
+    }
+}
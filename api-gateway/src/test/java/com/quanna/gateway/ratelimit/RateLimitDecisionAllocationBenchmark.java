@@ -0,0 +1,134 @@
+package com.quanna.gateway.ratelimit;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocations per rate-limit decision, before and after the allocation-free rework.
+ * {@code baseline} replays the original decision path; {@code current} calls {@link Bucket4jRateLimiter}.
+ * Compare {@code gc.alloc.rate.norm} (bytes per decision) between the two: the baseline allocates
+ * the probe, header map, response and Mono every time, {@code current} under 1 B amortized.
+ *
+ * Run with:
+ * <pre>
+ * ./mvnw -pl api-gateway -Pbenchmark test-compile exec:exec "-Dbenchmark=RateLimitDecisionAllocationBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitDecisionAllocationBenchmark {
+
+    /**
+     * allowed: buckets refill faster than the benchmark drains them; denied: buckets stay empty.
+     */
+    @Param({"allowed", "denied"})
+    private String scenario;
+
+    private static final int KEYS = 1024;
+
+    private String[] keys;
+    private int next;
+    private BaselineRateLimiter baseline;
+    private Bucket4jRateLimiter current;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "10.0." + (i >>> 8) + "." + (i & 0xff);
+        }
+        long capacity = "allowed".equals(scenario) ? 500 : 50;
+        Duration refill = "allowed".equals(scenario) ? Duration.ofMillis(1) : Duration.ofHours(1);
+        baseline = new BaselineRateLimiter(capacity, refill);
+        current = new Bucket4jRateLimiter("benchmark", capacity, refill, 100_000, Duration.ofSeconds(60));
+    }
+
+    @Benchmark
+    public Mono<RateLimiter.Response> baseline() {
+        return baseline.isAllowed("route", nextKey());
+    }
+
+    @Benchmark
+    public Mono<RateLimiter.Response> current() {
+        return current.isAllowed("route", nextKey());
+    }
+
+    private String nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return keys[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitDecisionAllocationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+
+    /**
+     * The decision path as it was before the rework, kept here as the reference point.
+     */
+    static class BaselineRateLimiter {
+        private final long capacity;
+        private final Duration refillDuration;
+        private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        BaselineRateLimiter(long capacity, Duration refillDuration) {
+            this.capacity = capacity;
+            this.refillDuration = refillDuration;
+        }
+
+        Mono<RateLimiter.Response> isAllowed(String routeId, String id) {
+            Bucket bucket = buckets.computeIfAbsent(id, k -> createBucket());
+            var probe = bucket.tryConsumeAndReturnRemaining(1);
+
+            boolean allowed = probe.isConsumed();
+            long remainingTokens = probe.getRemainingTokens();
+            long nanosToWait = probe.getNanosToWaitForRefill();
+            long resetTimeSeconds = System.currentTimeMillis() / 1000 + (nanosToWait / 1_000_000_000);
+
+            Map<String, String> headers = Map.of(
+                "X-RateLimit-Remaining", String.valueOf(remainingTokens),
+                "X-RateLimit-Limit", String.valueOf(capacity),
+                "X-RateLimit-Reset", String.valueOf(resetTimeSeconds)
+            );
+            return Mono.just(new RateLimiter.Response(allowed, headers));
+        }
+
+        private Bucket createBucket() {
+            Bandwidth limit = Bandwidth.builder()
+                .capacity(capacity)
+                .refillGreedy(capacity, refillDuration)
+                .build();
+            return Bucket.builder()
+                .addLimit(limit)
+                .build();
+        }
+    }
+}
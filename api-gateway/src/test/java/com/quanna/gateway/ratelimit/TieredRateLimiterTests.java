@@ -0,0 +1,139 @@
+package com.quanna.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredRateLimiterTests {
+
+    @Test
+    void rejectionDoesNotConsumeOtherTiers() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setUser(new TieredRateLimitProperties.Tier(3, Duration.ofHours(1)));
+        properties.setRoute(new TieredRateLimitProperties.Tier(2, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+
+        assertThat(limiter.isAllowed("first", "alice", null).block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("first", "alice", null).block().isAllowed()).isTrue();
+        for (int i = 0; i < 3; i++) {
+            Response denied = limiter.isAllowed("first", "alice", null).block();
+            assertThat(denied.isAllowed()).isFalse();
+            assertThat(denied.getHeaders()).containsEntry(TieredRateLimiter.TIER_HEADER, "route");
+        }
+
+        // The rejected requests left alice's last user token in place
+        Response response = limiter.isAllowed("second", "alice", null).block();
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders())
+                .containsEntry(TieredRateLimiter.TIER_HEADER, "user")
+                .containsEntry("X-RateLimit-Remaining", "0");
+    }
+
+    @Test
+    void reportsTightestTier() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setIp(new TieredRateLimitProperties.Tier(10, Duration.ofHours(1)));
+        properties.setRoute(new TieredRateLimitProperties.Tier(4, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+
+        Response response = limiter.isAllowed("route", null, "203.0.113.7").block();
+
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders())
+                .containsEntry(TieredRateLimiter.TIER_HEADER, "route")
+                .containsEntry("X-RateLimit-Remaining", "3")
+                .containsEntry("X-RateLimit-Limit", "4");
+    }
+
+    @Test
+    void skipsTiersWithoutKey() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setUser(new TieredRateLimitProperties.Tier(1, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.isAllowed("route", null, "203.0.113.7").block().isAllowed()).isTrue();
+        }
+    }
+
+    @Test
+    void reconfigureKeepsTokensAndTogglesTiers() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setUser(new TieredRateLimitProperties.Tier(2, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+        limiter.isAllowed("route", "alice", null).block();
+
+        properties.setUser(new TieredRateLimitProperties.Tier(4, Duration.ofHours(1)));
+        properties.setGlobal(new TieredRateLimitProperties.Tier(100, Duration.ofHours(1)));
+        limiter.reconfigure(properties);
+
+        assertThat(limiter.isAllowed("route", "alice", null).block().getHeaders())
+                .containsEntry(TieredRateLimiter.TIER_HEADER, "user")
+                .containsEntry("X-RateLimit-Remaining", "0")
+                .containsEntry("X-RateLimit-Limit", "4");
+        assertThat(limiter.isAllowed("route", "alice", null).block().isAllowed()).isFalse();
+        assertThat(limiter.isAllowed("route", null, null).block().getHeaders())
+                .containsEntry(TieredRateLimiter.TIER_HEADER, "global");
+    }
+
+    @Test
+    void globalRejectionReturnsRouteToken() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setRoute(new TieredRateLimitProperties.Tier(5, Duration.ofHours(1)));
+        properties.setGlobal(new TieredRateLimitProperties.Tier(1, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+
+        assertThat(limiter.isAllowed("first", null, null).block().isAllowed()).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.isAllowed("second", null, null).block().getHeaders())
+                    .containsEntry(TieredRateLimiter.TIER_HEADER, "global");
+        }
+
+        properties.setGlobal(new TieredRateLimitProperties.Tier(0, Duration.ofHours(1)));
+        limiter.reconfigure(properties);
+        assertThat(limiter.isAllowed("second", null, null).block().getHeaders())
+                .containsEntry(TieredRateLimiter.TIER_HEADER, "route")
+                .containsEntry("X-RateLimit-Remaining", "4");
+    }
+
+    @Test
+    void clusterTierIsSharedByReplicas() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setUser(new TieredRateLimitProperties.Tier(10, Duration.ofHours(1)));
+        properties.setCluster(new TieredRateLimitProperties.Tier(3, Duration.ofHours(1)));
+        InMemoryTokenStore store = new InMemoryTokenStore();
+        TieredRateLimiter first = new TieredRateLimiter("test", properties, cluster(properties, store));
+        TieredRateLimiter second = new TieredRateLimiter("test", properties, cluster(properties, store));
+
+        assertThat(first.isAllowed("route", "alice", null).block().isAllowed()).isTrue();
+        assertThat(second.isAllowed("route", "alice", null).block().isAllowed()).isTrue();
+        assertThat(first.isAllowed("route", "alice", null).block().isAllowed()).isTrue();
+        Response denied = second.isAllowed("route", "alice", null).block();
+
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getHeaders()).containsEntry(TieredRateLimiter.TIER_HEADER, "cluster");
+        // Other clients have their own cluster bucket
+        assertThat(second.isAllowed("route", "bob", null).block().isAllowed()).isTrue();
+    }
+
+    @Test
+    void clusterTierIgnoredWithoutDistributedLimiter() {
+        TieredRateLimitProperties properties = new TieredRateLimitProperties();
+        properties.setCluster(new TieredRateLimitProperties.Tier(1, Duration.ofHours(1)));
+        TieredRateLimiter limiter = new TieredRateLimiter("test", properties);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.isAllowed("route", "alice", null).block().isAllowed()).isTrue();
+        }
+    }
+
+    private static DistributedRateLimiter cluster(TieredRateLimitProperties properties, TokenStore store) {
+        TieredRateLimitProperties.Tier cluster = properties.getCluster();
+        // Batches of one, so each replica reserves exactly what it admits
+        return new DistributedRateLimiter("cluster", cluster.getCapacity(), cluster.getRefillDuration(), store,
+                1, Duration.ofMinutes(1), 1000);
+    }
+}
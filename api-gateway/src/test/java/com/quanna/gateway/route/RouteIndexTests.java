@@ -0,0 +1,192 @@
+package com.quanna.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.toAsyncPredicate;
+
+class RouteIndexTests {
+
+    private static final List<String> PATHS = List.of("/", "/orders", "/orders/", "/orders/42",
+            "/orders/admin/users", "/orders/admin", "/users/7", "/users/7/orders", "/acme/orders/1",
+            "/acme/invoices/1", "/api/v2/items", "/api/v2", "/reports/2024/q1", "/metrics/jvm",
+            "/unknown/path", "/orders%2Fadmin/x", "/orders;v=1/42", "//orders/42");
+
+    private final List<Route> routes = new ArrayList<>();
+    private final List<RouteDefinition> definitions = new ArrayList<>();
+
+    @Test
+    void indexedLookupMatchesLinearScan() {
+        path("orders", "/orders/**");
+        // Shadowed by the route above, as in the linear scan
+        path("orders-admin", "/orders/admin/**");
+        path("users", "/users/{id}", "/users/{id}/orders");
+        path("tenant-orders", "/{tenant}/orders/**");
+        path("versioned", "/api/v{version}/**");
+        path("reports", "/reports/*/q1");
+        methodOnly("any-post", HttpMethod.POST);
+        javaDsl("metrics", "/metrics/**");
+        path("fallback", "/**");
+
+        RouteIndex index = new RouteIndexCompiler(null).compile(routes, definitions);
+
+        assertThat(index.getRoutes()).isEqualTo(9);
+        assertThat(index.getIndexed()).isEqualTo(7);
+        Route[] all = routes.toArray(Route[]::new);
+        for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.POST)) {
+            for (String path : PATHS) {
+                assertThat(matched(IndexedRoutePredicateHandlerMapping.lookup(index, exchange(method, path))))
+                        .as("%s %s", method, path)
+                        .isEqualTo(matched(IndexedRoutePredicateHandlerMapping.firstMatch(all, exchange(method, path))));
+            }
+        }
+    }
+
+    @Test
+    void failingPredicateFallsThroughAsInLinearScan() {
+        path("orders", "/orders/**");
+        routes.add(0, route("broken", exchange -> {
+            throw new IllegalStateException("broken predicate");
+        }));
+        definitions.add(0, definition("broken", new PredicateDefinition("Path=/orders/**")));
+        routes.add(1, route("broken-async", exchange -> Mono.error(new IllegalStateException("broken predicate"))));
+        definitions.add(1, definition("broken-async", new PredicateDefinition("Path=/orders/**")));
+
+        RouteIndex index = new RouteIndexCompiler(null).compile(routes, definitions);
+
+        assertThat(ids(index, "/orders/42")).containsExactly("broken", "broken-async", "orders");
+        assertThat(matched(IndexedRoutePredicateHandlerMapping.lookup(index, exchange(HttpMethod.GET, "/orders/42"))))
+                .isEqualTo("orders")
+                .isEqualTo(matched(linearScan(exchange(HttpMethod.GET, "/orders/42"))));
+    }
+
+    @Test
+    void candidatesKeepRouteOrder() {
+        path("fallback", "/**");
+        path("orders", "/orders/**");
+        path("orders-admin", "/orders/admin/**");
+
+        RouteIndex index = new RouteIndexCompiler(null).compile(routes, definitions);
+
+        assertThat(ids(index, "/orders/admin/users")).containsExactly("fallback", "orders", "orders-admin");
+        assertThat(ids(index, "/orders/42")).containsExactly("fallback", "orders");
+        assertThat(ids(index, "/users")).containsExactly("fallback");
+    }
+
+    @Test
+    void basePathIsPrependedToPatterns() {
+        path("orders", "/orders/**");
+
+        RouteIndex index = new RouteIndexCompiler("/gw").compile(routes, definitions);
+
+        assertThat(ids(index, "/gw/orders/1")).containsExactly("orders");
+        assertThat(ids(index, "/orders/1")).isEmpty();
+    }
+
+    @Test
+    void onlyChangedRoutesAreRecompiled() {
+        path("orders", "/orders/**");
+        path("users", "/users/**");
+        RouteIndexCompiler compiler = new RouteIndexCompiler(null);
+        compiler.compile(routes, definitions);
+        assertThat(compiler.getRecompiled()).isEqualTo(2);
+
+        // Definitions may be rebound in place
+        definitions.get(1).getPredicates().get(0).getArgs().put("_genkey_0", "/accounts/**");
+        RouteIndex index = compiler.compile(routes, definitions);
+
+        assertThat(compiler.getRecompiled()).isEqualTo(1);
+        assertThat(ids(index, "/accounts/1")).containsExactly("users");
+        assertThat(ids(index, "/orders/1")).containsExactly("orders");
+    }
+
+    @Test
+    void literalPrefixStopsAtFirstNonLiteralSegment() {
+        assertThat(RouteIndexCompiler.literalPrefix("/orders/admin/**")).containsExactly("orders", "admin");
+        assertThat(RouteIndexCompiler.literalPrefix("/api/v{version}/items")).containsExactly("api");
+        assertThat(RouteIndexCompiler.literalPrefix("/a%20b/c")).isEmpty();
+        assertThat(RouteIndexCompiler.literalPrefix("/orders;v=1/**")).isEmpty();
+        assertThat(RouteIndexCompiler.literalPrefix("/**")).isEmpty();
+    }
+
+    private void path(String id, String... patterns) {
+        AsyncPredicate<ServerWebExchange> predicate = toAsyncPredicate(new PathRoutePredicateFactory()
+                .apply(new PathRoutePredicateFactory.Config().setPatterns(List.of(patterns))));
+        routes.add(route(id, predicate));
+        definitions.add(definition(id, new PredicateDefinition("Path=" + String.join(",", patterns))));
+    }
+
+    private void methodOnly(String id, HttpMethod method) {
+        MethodRoutePredicateFactory.Config config = new MethodRoutePredicateFactory.Config();
+        config.setMethods(method);
+        routes.add(route(id, toAsyncPredicate(new MethodRoutePredicateFactory().apply(config))));
+        definitions.add(definition(id, new PredicateDefinition("Method=" + method.name())));
+    }
+
+    /**
+     * A route built in code has no definition, whatever its predicate
+     */
+    private void javaDsl(String id, String pattern) {
+        routes.add(route(id, toAsyncPredicate(new PathRoutePredicateFactory()
+                .apply(new PathRoutePredicateFactory.Config().setPatterns(List.of(pattern))))));
+    }
+
+    private static Route route(String id, AsyncPredicate<ServerWebExchange> predicate) {
+        return Route.async().id(id).uri("http://localhost").asyncPredicate(predicate).build();
+    }
+
+    private static RouteDefinition definition(String id, PredicateDefinition predicate) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setPredicates(new ArrayList<>(List.of(predicate)));
+        return definition;
+    }
+
+    private static List<String> ids(RouteIndex index, String path) {
+        return Arrays.stream(index.candidates(PathContainer.parsePath(path)))
+                .map(Route::getId)
+                .toList();
+    }
+
+    /**
+     * The gateway's own lookup over the whole route table
+     */
+    private Mono<Route> linearScan(ServerWebExchange exchange) {
+        RouteLocator locator = () -> Flux.fromIterable(routes);
+        return new RoutePredicateHandlerMapping(null, locator, new GlobalCorsProperties(), new MockEnvironment()) {
+            Mono<Route> scan() {
+                return lookupRoute(exchange);
+            }
+        }.scan();
+    }
+
+    private static String matched(Mono<Route> route) {
+        Route matched = route.block();
+        return matched != null ? matched.getId() : null;
+    }
+
+    private static MockServerWebExchange exchange(HttpMethod method, String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+    }
+}
@@ -0,0 +1,112 @@
+package com.quanna.gateway.route;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.toAsyncPredicate;
+
+/**
+ * Route lookup through {@link RouteIndex} against the default linear scan over all routes.
+ *
+ * Each route is {@code Path=/service-N/**}, like a discovery-generated table; requests are spread
+ * evenly over the routes, so the linear scan tests half of them on average.
+ *
+ * Run with:
+ * <pre>
+ * ./mvnw -pl api-gateway -Pbenchmark test-compile exec:exec "-Dbenchmark=RouteLookupBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteLookupBenchmark {
+
+    private static final int REQUESTS = 256;
+
+    @Param({"10", "100", "1000"})
+    private int routes;
+
+    private MockServerWebExchange[] exchanges;
+    private int next;
+    private Route[] all;
+    private RouteIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PathRoutePredicateFactory factory = new PathRoutePredicateFactory();
+        List<Route> routeList = new ArrayList<>(routes);
+        List<RouteDefinition> definitions = new ArrayList<>(routes);
+        for (int i = 0; i < routes; i++) {
+            String pattern = "/service-" + i + "/**";
+            routeList.add(Route.async()
+                    .id("route-" + i)
+                    .uri("lb://service-" + i)
+                    .asyncPredicate(toAsyncPredicate(factory.apply(new PathRoutePredicateFactory.Config()
+                            .setPatterns(List.of(pattern)))))
+                    .build());
+
+            RouteDefinition definition = new RouteDefinition();
+            definition.setId("route-" + i);
+            definition.setPredicates(List.of(new PredicateDefinition("Path=" + pattern)));
+            definitions.add(definition);
+        }
+        all = routeList.toArray(Route[]::new);
+        index = new RouteIndexCompiler(null).compile(routeList, definitions);
+
+        exchanges = new MockServerWebExchange[REQUESTS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < REQUESTS; i++) {
+            exchanges[i] = MockServerWebExchange.from(MockServerHttpRequest
+                    .get("/service-" + random.nextInt(routes) + "/api/orders/" + i));
+        }
+    }
+
+    @Benchmark
+    public Route linear() {
+        return IndexedRoutePredicateHandlerMapping.firstMatch(all, nextExchange()).block();
+    }
+
+    @Benchmark
+    public Route indexed() {
+        return IndexedRoutePredicateHandlerMapping.lookup(index, nextExchange()).block();
+    }
+
+    private MockServerWebExchange nextExchange() {
+        next = (next + 1) & (REQUESTS - 1);
+        return exchanges[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteLookupBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
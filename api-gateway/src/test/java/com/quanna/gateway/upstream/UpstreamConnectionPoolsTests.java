@@ -0,0 +1,137 @@
+package com.quanna.gateway.upstream;
+
+import com.quanna.gateway.filter.UpstreamRoutingFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class UpstreamConnectionPoolsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamPoolProperties properties = new UpstreamPoolProperties();
+    private final HttpClientProperties httpClientProperties = new HttpClientProperties();
+    private DisposableServer server;
+    private UpstreamConnectionPools pools;
+
+    @BeforeEach
+    void startUpstream() {
+        // Prior knowledge only: an HTTP/1.1 request would fail
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C)
+                .handle((request, response) -> response.header("X-Protocol", request.protocol()).send())
+                .bindNow();
+    }
+
+    @AfterEach
+    void stop() {
+        if (pools != null) {
+            pools.destroy();
+        }
+        server.disposeNow();
+    }
+
+    @Test
+    void h2cPoolSpeaksHttp2WithPriorKnowledge() {
+        UpstreamPoolProperties.Pool pool = new UpstreamPoolProperties.Pool();
+        pool.setProtocol(UpstreamPoolProperties.Protocol.H2C);
+        pool.setMaxConnections(1);
+        properties.getPools().put("demo-client", pool);
+        pools = pools();
+        MockServerWebExchange exchange = exchange(route("demo-route", "lb://demo-client"));
+        AtomicInteger next = new AtomicInteger();
+
+        filter().filter(exchange, routed -> {
+            assertThat(ServerWebExchangeUtils.isAlreadyRouted(routed)).isTrue();
+            next.incrementAndGet();
+            return Mono.empty();
+        }).block();
+
+        assertThat(next).hasValue(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Protocol")).isEqualTo("HTTP/2.0");
+        assertThat(registry.get("gateway.upstream.connections").tag("pool", "demo-client").tag("event", "opened")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void routesWithoutPoolAreLeftToDefaultRoutingFilter() {
+        properties.getPools().put("demo-client", new UpstreamPoolProperties.Pool());
+        pools = pools();
+        MockServerWebExchange exchange = exchange(route("other-route", "lb://other-service"));
+        AtomicInteger next = new AtomicInteger();
+
+        filter().filter(exchange, passed -> {
+            assertThat(ServerWebExchangeUtils.isAlreadyRouted(passed)).isFalse();
+            next.incrementAndGet();
+            return Mono.empty();
+        }).block();
+
+        assertThat(next).hasValue(1);
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void poolIsFoundByRouteIdThenByService() {
+        properties.getPools().put("demo-client", new UpstreamPoolProperties.Pool());
+        properties.getPools().put("static-route", new UpstreamPoolProperties.Pool());
+        pools = pools();
+
+        assertThat(pools.get(route("static-route", "http://localhost:8080"))).isNotNull();
+        assertThat(pools.get(route("demo-route", "lb://demo-client"))).isNotNull();
+        assertThat(pools.get(route("direct-route", "http://demo-client:8080"))).isNull();
+        assertThat(pools.get(route("other-route", "lb://other-service"))).isNull();
+    }
+
+    private UpstreamConnectionPools pools() {
+        ServerProperties serverProperties = new ServerProperties();
+        return new UpstreamConnectionPools(properties, httpClientProperties, serverProperties,
+                new HttpClientSslConfigurer(httpClientProperties.getSsl(), serverProperties, null), List.of(), registry);
+    }
+
+    private UpstreamRoutingFilter filter() {
+        return new UpstreamRoutingFilter(HttpClient.create(),
+                new DefaultListableBeanFactory().getBeanProvider(
+                        ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)),
+                httpClientProperties, pools);
+    }
+
+    private MockServerWebExchange exchange(Route route) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/items"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        // As resolved by the load balancer
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://localhost:" + server.port() + "/api/items"));
+        return exchange;
+    }
+
+    private static Route route(String id, String uri) {
+        return Route.async().id(id).uri(uri).predicate(exchange -> true).build();
+    }
+}
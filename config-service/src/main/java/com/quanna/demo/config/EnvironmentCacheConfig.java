@@ -0,0 +1,89 @@
+package com.quanna.demo.config;
+
+import com.quanna.demo.environment.CachingEnvironmentRepository;
+import com.quanna.demo.environment.ConfigChangeDetector;
+import com.quanna.demo.environment.ConfigChangeProperties;
+import com.quanna.demo.environment.ConfigRepositoryWatcher;
+import com.quanna.demo.environment.EnvironmentCache;
+import com.quanna.demo.environment.EnvironmentCacheProperties;
+import com.quanna.demo.environment.EnvironmentResponseFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cloud.bus.BusProperties;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.cloud.config.server.environment.NativeEnvironmentRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Caches the native repository: environments per (application, profile, label) and the JSON served
+ * from them, both cleared whenever the content of a file under the search locations changes. Clients
+ * whose resolved properties changed with it are sent a bus refresh.
+ */
+@Configuration
+@Profile("native")
+@ConditionalOnProperty(prefix = "environment-cache", name = "enabled", matchIfMissing = true)
+public class EnvironmentCacheConfig {
+
+    @Bean
+    public ConfigRepositoryWatcher configRepositoryWatcher(NativeConfigProps nativeConfigProps) {
+        return new ConfigRepositoryWatcher(nativeConfigProps.getSearchLocations());
+    }
+
+    @Bean
+    public EnvironmentCache environmentCache(ConfigRepositoryWatcher watcher, EnvironmentCacheProperties properties,
+                                             MeterRegistry meterRegistry) {
+        return new EnvironmentCache(watcher::isWatching, properties.getMaxEntries(), meterRegistry);
+    }
+
+    @Bean
+    public ConfigChangeDetector configChangeDetector(ConfigRepositoryWatcher watcher, EnvironmentCache cache,
+                                                     ConfigChangeProperties properties,
+                                                     EnvironmentCacheProperties cacheProperties,
+                                                     ObjectProvider<BusProperties> bus,
+                                                     ObjectProvider<Destination.Factory> destinations,
+                                                     MeterRegistry meterRegistry) {
+        BusProperties busProperties = properties.isRefreshEvents() ? bus.getIfAvailable() : null;
+        ConfigChangeDetector detector = new ConfigChangeDetector(cache, properties, cacheProperties.getMaxEntries(),
+                busProperties != null ? busProperties.getId() : null, destinations.getIfAvailable(), meterRegistry);
+        watcher.addListener(detector::changed);
+        cache.onResolved(detector::resolved);
+        return detector;
+    }
+
+    /**
+     * Wraps the native repository where Spring Cloud Config defines it, so the composite repository and
+     * the controller in front of it need no changes
+     */
+    @Bean
+    public static BeanPostProcessor cachingEnvironmentRepositoryPostProcessor(ObjectProvider<EnvironmentCache> cache,
+                                                                              ObjectProvider<ConfigChangeDetector> detector) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof NativeEnvironmentRepository repository) {
+                    CachingEnvironmentRepository caching = new CachingEnvironmentRepository(repository, cache.getObject());
+                    detector.getObject().setRepository(caching);
+                    return caching;
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<EnvironmentResponseFilter> environmentResponseFilter(
+            EnvironmentCache cache, @Value("${management.endpoints.web.base-path:/actuator}") String managementBasePath) {
+        FilterRegistrationBean<EnvironmentResponseFilter> registration =
+                new FilterRegistrationBean<>(new EnvironmentResponseFilter(cache, managementBasePath));
+        // After Spring Security, so cache hits are authenticated too
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+}
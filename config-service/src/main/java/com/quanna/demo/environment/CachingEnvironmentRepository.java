@@ -0,0 +1,43 @@
+package com.quanna.demo.environment;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.NativeEnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+import org.springframework.core.Ordered;
+
+/**
+ * Native repository behind an {@link EnvironmentCache}: the search locations are walked and their
+ * files parsed once per (application, profile, label) until one of them changes.
+ */
+public class CachingEnvironmentRepository implements EnvironmentRepository, SearchPathLocator, Ordered {
+
+    private final NativeEnvironmentRepository delegate;
+    private final EnvironmentCache cache;
+
+    public CachingEnvironmentRepository(NativeEnvironmentRepository delegate, EnvironmentCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        return findOne(application, profile, label, false);
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label, boolean includeOrigin) {
+        EnvironmentCache.Key key = new EnvironmentCache.Key(application, profile, label, includeOrigin);
+        return cache.environment(key, () -> delegate.findOne(application, profile, label, includeOrigin));
+    }
+
+    @Override
+    public Locations getLocations(String application, String profile, String label) {
+        return delegate.getLocations(application, profile, label);
+    }
+
+    @Override
+    public int getOrder() {
+        return delegate.getOrder();
+    }
+}
@@ -0,0 +1,371 @@
+package com.quanna.demo.environment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.bus.event.Destination;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.environment.PropertyValueDescriptor;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Turns file events of the {@link ConfigRepositoryWatcher} into cache invalidations and targeted bus
+ * refreshes.
+ *
+ * Events are collected until {@code debounce} passes without one (or {@code max-delay} after the
+ * first), then the reported files are hashed. Files whose content didn't change, such as an editor's
+ * temporary copy or a save without edits, are ignored. Otherwise the {@link EnvironmentCache} is
+ * cleared and every (application, profile, label) fetched so far whose search locations hold a
+ * changed file is resolved again, which also warms the cache. Only those whose resolved properties
+ * differ get a {@link RefreshRemoteApplicationEvent}, addressed to {@code application:profile:**}.
+ *
+ * Bus ids don't carry the label, so other labels of the same application and profile refresh too.
+ * Past {@code environment-cache.max-entries} fetched keys new ones aren't tracked, and a change then
+ * refreshes every client.
+ */
+public class ConfigChangeDetector implements SmartLifecycle, ApplicationEventPublisherAware {
+
+    public record Target(String application, String profile, String label) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigChangeDetector.class);
+
+    private final EnvironmentCache cache;
+    private final long debounce;
+    private final long maxDelay;
+    private final int maxTargets;
+    private final String busId;
+    private final Destination.Factory destinations;
+    private final ConcurrentMap<Target, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<Path, String> hashes = new HashMap<>();
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private final Timer scans;
+    private final Counter refreshEvents;
+    private volatile boolean untracked;
+    private volatile CachingEnvironmentRepository repository;
+    private ApplicationEventPublisher publisher;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> scheduled;
+    private long firstPending;
+    private boolean hashed;
+
+    /**
+     * {@code busId} and {@code destinations} are null when refresh events are not published
+     */
+    public ConfigChangeDetector(EnvironmentCache cache, ConfigChangeProperties properties, int maxTargets,
+                                String busId, Destination.Factory destinations, MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.debounce = properties.getDebounce().toNanos();
+        this.maxDelay = properties.getMaxDelay().toNanos();
+        this.maxTargets = maxTargets;
+        this.busId = busId;
+        this.destinations = destinations;
+        this.scans = Timer.builder("config.changes.scans")
+                .description("Processing of each debounced burst of config repository file events")
+                .register(meterRegistry);
+        this.refreshEvents = Counter.builder("config.changes.refresh.events")
+                .description("Refresh events published for clients whose resolved properties changed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The repository fetched environments are resolved again from
+     */
+    public void setRepository(CachingEnvironmentRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Paths reported by the watcher
+     */
+    public synchronized void changed(Set<Path> paths) {
+        pending.addAll(paths);
+        if (scheduler == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (scheduled == null) {
+            firstPending = now;
+        } else {
+            scheduled.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(debounce, maxDelay - (now - firstPending)));
+        scheduled = scheduler.schedule(this::process, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Environment resolved on a cache miss; its properties are what the client now has
+     */
+    public void resolved(EnvironmentCache.Key key, Environment environment) {
+        Target target = new Target(key.application(), key.profile(), key.label());
+        if (fingerprints.containsKey(target)) {
+            return;
+        }
+        if (fingerprints.size() >= maxTargets) {
+            untracked = true;
+            return;
+        }
+        fingerprints.putIfAbsent(target, fingerprint(environment));
+    }
+
+    @Override
+    public synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "config-change-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!pending.isEmpty()) {
+            changed(Set.of());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        scheduler = null;
+        scheduled = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Started before the watcher, which reports its roots when it starts, and stopped after it
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+
+    private void process() {
+        Set<Path> paths;
+        synchronized (this) {
+            paths = new LinkedHashSet<>(pending);
+            pending.clear();
+            scheduled = null;
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+        try {
+            scans.record(() -> scan(paths));
+        } catch (RuntimeException e) {
+            logger.error("Failed to process config repository changes {}", paths, e);
+        }
+    }
+
+    private void scan(Set<Path> paths) {
+        boolean initial = !hashed;
+        hashed = true;
+        Set<Path> files = rehash(paths);
+        if (files.isEmpty()) {
+            logger.debug("No content changed in {}", paths);
+            return;
+        }
+        cache.invalidate();
+        if (initial) {
+            logger.debug("Hashed {} config files", hashes.size());
+            return;
+        }
+        logger.info("Config files changed: {}", files);
+        refresh(changedTargets(files));
+    }
+
+    /**
+     * Updates the hashes of the files at or below {@code paths}, returning those added, changed or removed
+     */
+    private Set<Path> rehash(Set<Path> paths) {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (Path path : paths) {
+            Set<Path> present = new HashSet<>();
+            if (Files.exists(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).forEach(present::add);
+                } catch (IOException | UncheckedIOException e) {
+                    logger.debug("Can't list {}", path, e);
+                }
+            }
+            hashes.keySet().removeIf(file -> {
+                boolean removed = file.startsWith(path) && !present.contains(file);
+                if (removed) {
+                    changed.add(file);
+                }
+                return removed;
+            });
+            for (Path file : present) {
+                String hash = hash(file);
+                if (hash == null) {
+                    if (hashes.remove(file) != null) {
+                        changed.add(file);
+                    }
+                } else if (!hash.equals(hashes.put(file, hash))) {
+                    changed.add(file);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private List<Target> changedTargets(Set<Path> files) {
+        List<Target> changed = new ArrayList<>();
+        CachingEnvironmentRepository repository = this.repository;
+        if (repository == null) {
+            return changed;
+        }
+        for (Map.Entry<Target, String> entry : fingerprints.entrySet()) {
+            Target target = entry.getKey();
+            if (!affected(repository, target, files)) {
+                continue;
+            }
+            String fingerprint;
+            try {
+                // Clients fetch with origins, so this is the key they hit next
+                fingerprint = fingerprint(
+                        repository.findOne(target.application(), target.profile(), target.label(), true));
+            } catch (RuntimeException e) {
+                logger.warn("Can't resolve {} after config change, not refreshing it", target, e);
+                continue;
+            }
+            if (!fingerprint.equals(entry.getValue())) {
+                fingerprints.put(target, fingerprint);
+                changed.add(target);
+            }
+        }
+        return changed;
+    }
+
+    private void refresh(List<Target> targets) {
+        Set<String> destinations = new LinkedHashSet<>();
+        if (untracked) {
+            destinations.add("**");
+        } else {
+            for (Target target : targets) {
+                destinations.add(destination(target));
+            }
+        }
+        if (destinations.isEmpty()) {
+            logger.info("No resolved properties changed, nothing to refresh");
+            return;
+        }
+        for (String destination : destinations) {
+            if (busId == null || publisher == null) {
+                logger.info("Properties changed for {}, bus refresh events are off", destination);
+                continue;
+            }
+            logger.info("Properties changed, refreshing {}", destination);
+            try {
+                publisher.publishEvent(new RefreshRemoteApplicationEvent(this, busId,
+                        this.destinations.getDestination(destination)));
+                refreshEvents.increment();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to publish refresh event for {}", destination, e);
+            }
+        }
+    }
+
+    private static boolean affected(SearchPathLocator locator, Target target, Set<Path> files) {
+        String[] locations;
+        try {
+            locations = locator.getLocations(target.application(), target.profile(), target.label()).getLocations();
+        } catch (RuntimeException e) {
+            return true;
+        }
+        for (String location : locations) {
+            Path directory = ConfigRepositoryWatcher.path(location);
+            if (directory != null && files.stream().anyMatch(file -> file.startsWith(directory))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bus ids are {@code application:profiles:instance}, without profiles when none is active
+     */
+    private static String destination(Target target) {
+        String profile = target.profile();
+        if (profile == null || profile.isEmpty() || profile.equals("default")) {
+            return target.application() + ":**";
+        }
+        return target.application() + ":" + profile + ":**";
+    }
+
+    /**
+     * Hash of the properties as a client resolves them: the first source holding a key wins
+     */
+    static String fingerprint(Environment environment) {
+        Map<String, Object> resolved = new TreeMap<>();
+        for (PropertySource source : environment.getPropertySources()) {
+            for (Map.Entry<?, ?> entry : source.getSource().entrySet()) {
+                Object value = entry.getValue() instanceof PropertyValueDescriptor descriptor
+                        ? descriptor.getValue() : entry.getValue();
+                resolved.putIfAbsent(String.valueOf(entry.getKey()), value);
+            }
+        }
+        MessageDigest digest = sha256();
+        resolved.forEach((key, value) ->
+                digest.update((key + '\0' + value + '\0').getBytes(StandardCharsets.UTF_8)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String hash(Path file) {
+        try {
+            return HexFormat.of().formatHex(sha256().digest(Files.readAllBytes(file)));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.debug("Can't read {}", file, e);
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.quanna.demo.environment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "config-changes")
+public class ConfigChangeProperties {
+
+    /**
+     * Quiet time after the last file event before the changes are processed
+     */
+    private Duration debounce = Duration.ofMillis(500);
+
+    /**
+     * Longest a continuous burst of file events may delay processing
+     */
+    private Duration maxDelay = Duration.ofSeconds(5);
+
+    /**
+     * Publish bus refresh events to the clients whose resolved properties changed
+     */
+    private boolean refreshEvents = true;
+
+    public Duration getDebounce() {
+        return debounce;
+    }
+
+    public void setDebounce(Duration debounce) {
+        this.debounce = debounce;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public boolean isRefreshEvents() {
+        return refreshEvents;
+    }
+
+    public void setRefreshEvents(boolean refreshEvents) {
+        this.refreshEvents = refreshEvents;
+    }
+}
@@ -0,0 +1,232 @@
+package com.quanna.demo.environment;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches the directory trees of the native {@code file:} search locations and tells its listeners
+ * which paths changed. A location is watched from its part before the first placeholder, or from its
+ * nearest existing parent, so directories created later for a label or profile are picked up too.
+ *
+ * Listeners get every path reported in one wake-up of the watch service; after an overflow, or when
+ * watching (re)starts, they get the roots, meaning anything below may have changed.
+ */
+public class ConfigRepositoryWatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigRepositoryWatcher.class);
+
+    private final List<Path> roots;
+    private final List<Consumer<Set<Path>>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private volatile boolean watching;
+
+    public ConfigRepositoryWatcher(List<String> searchLocations) {
+        this.roots = roots(searchLocations);
+    }
+
+    public void addListener(Consumer<Set<Path>> listener) {
+        listeners.add(listener);
+    }
+
+    public List<Path> roots() {
+        return roots;
+    }
+
+    /**
+     * Whether changes below the roots are being reported; caches must not be used otherwise
+     */
+    public boolean isWatching() {
+        return watching;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (watchService != null) {
+            return;
+        }
+        if (roots.isEmpty()) {
+            logger.info("No file search locations to watch, environments won't be cached");
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path root : roots) {
+                register(root, null);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Can't watch config repository {}, environments won't be cached", roots, e);
+            close();
+            return;
+        }
+        Thread thread = new Thread(() -> run(watchService), "config-repository-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        watching = true;
+        logger.info("Watching config repository {} ({} directories)", roots, directories.size());
+        notifyListeners(new LinkedHashSet<>(roots));
+    }
+
+    @Override
+    public synchronized void stop() {
+        watching = false;
+        close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return watchService != null;
+    }
+
+    private void run(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                do {
+                    collect(key, changed);
+                } while ((key = watchService.poll()) != null);
+                if (!changed.isEmpty()) {
+                    notifyListeners(changed);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.debug("Stopped watching config repository");
+        } catch (RuntimeException e) {
+            logger.error("Config repository watcher failed, environments won't be cached any more", e);
+            watching = false;
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                changed.addAll(roots);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            changed.add(path);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    register(path, changed);
+                } catch (IOException | UncheckedIOException e) {
+                    logger.warn("Can't watch {}, reporting all of {} as changed", path, roots, e);
+                    changed.addAll(roots);
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Registers {@code root} and every directory below it, adding the files found to {@code found}
+     * when given: they may have been written before their directory was watched.
+     */
+    private void register(Path root, Set<Path> found) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    directories.put(key, path);
+                } else if (found != null) {
+                    found.add(path);
+                }
+            }
+        }
+    }
+
+    private void notifyListeners(Set<Path> changed) {
+        logger.debug("Config repository changed: {}", changed);
+        for (Consumer<Set<Path>> listener : listeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException e) {
+                logger.warn("Config repository listener failed", e);
+            }
+        }
+    }
+
+    private void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close config repository watcher", e);
+            }
+            watchService = null;
+        }
+        directories.clear();
+    }
+
+    /**
+     * Directories to watch for {@code searchLocations}: the existing directory each {@code file:}
+     * location starts from, without those nested in another. Other locations (classpath) can't change.
+     */
+    static List<Path> roots(List<String> searchLocations) {
+        List<Path> candidates = new ArrayList<>();
+        if (searchLocations != null) {
+            for (String location : searchLocations) {
+                Path root = path(location);
+                while (root != null && !Files.isDirectory(root)) {
+                    root = root.getParent();
+                }
+                if (root != null) {
+                    candidates.add(root);
+                }
+            }
+        }
+        List<Path> roots = new ArrayList<>();
+        for (Path candidate : candidates) {
+            boolean nested = candidates.stream()
+                    .anyMatch(other -> !other.equals(candidate) && candidate.startsWith(other));
+            if (!nested && !roots.contains(candidate)) {
+                roots.add(candidate);
+            }
+        }
+        return List.copyOf(roots);
+    }
+
+    /**
+     * The path of a {@code file:} location up to its first placeholder, null for other locations
+     */
+    static Path path(String location) {
+        if (!location.startsWith("file:")) {
+            return null;
+        }
+        String path = location.substring("file:".length());
+        if (path.startsWith("//")) {
+            path = path.substring(2);
+        }
+        int placeholder = path.indexOf('{');
+        if (placeholder >= 0) {
+            path = path.substring(0, placeholder);
+        }
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+}
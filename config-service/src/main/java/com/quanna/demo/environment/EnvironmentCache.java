@@ -0,0 +1,182 @@
+package com.quanna.demo.environment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.config.environment.Environment;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Environments resolved by the native repository, per (application, profile, label), and the JSON
+ * responses built from them, kept until {@link #invalidate()}. Only used while {@code active} holds,
+ * i.e. while the config repository is watched; otherwise every call goes through.
+ *
+ * Concurrent misses of one key resolve it once, the others wait for that result. A response is only
+ * served in the generation its request started in, so one built from files that just changed is never
+ * returned, not even while it is being stored.
+ */
+public class EnvironmentCache {
+
+    public record Key(String application, String profile, String label, boolean includeOrigin) {
+    }
+
+    /**
+     * A response body as the controller wrote it; the array is never modified after construction
+     */
+    public record Response(String contentType, byte[] body) {
+    }
+
+    private final BooleanSupplier active;
+    private final int maxEntries;
+    private final ConcurrentMap<Key, CompletableFuture<Environment>> environments = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stored> responses = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter[] environmentRequests;
+    private final Counter[] responseRequests;
+    private final Counter invalidations;
+    private volatile BiConsumer<Key, Environment> resolveListener = (key, environment) -> {
+    };
+
+    public EnvironmentCache(BooleanSupplier active, int maxEntries, MeterRegistry meterRegistry) {
+        this.active = active;
+        this.maxEntries = maxEntries;
+        this.environmentRequests = counters(meterRegistry, "environment");
+        this.responseRequests = counters(meterRegistry, "response");
+        this.invalidations = Counter.builder("config.environment.cache.invalidations")
+                .description("Times the cache was cleared because the config repository changed")
+                .register(meterRegistry);
+        gauge(meterRegistry, "environment", environments);
+        gauge(meterRegistry, "response", responses);
+    }
+
+    /**
+     * Called with every environment resolved on a miss while the cache is active
+     */
+    public void onResolved(BiConsumer<Key, Environment> listener) {
+        this.resolveListener = listener;
+    }
+
+    public boolean isActive() {
+        return active.getAsBoolean();
+    }
+
+    /**
+     * The environment of {@code key}, resolved on the first call. Callers get their own copy of it; the
+     * property sources are shared and must not be modified.
+     */
+    public Environment environment(Key key, Supplier<Environment> resolve) {
+        if (!isActive()) {
+            return resolve.get();
+        }
+        CompletableFuture<Environment> cached = environments.get(key);
+        if (cached == null) {
+            if (environments.size() >= maxEntries) {
+                environmentRequests[1].increment();
+                return resolved(key, resolve.get());
+            }
+            CompletableFuture<Environment> created = new CompletableFuture<>();
+            cached = environments.putIfAbsent(key, created);
+            if (cached == null) {
+                environmentRequests[1].increment();
+                try {
+                    Environment environment = resolve.get();
+                    created.complete(environment);
+                    return copy(resolved(key, environment));
+                } catch (RuntimeException e) {
+                    environments.remove(key, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        environmentRequests[0].increment();
+        try {
+            return copy(cached.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public Response response(String key) {
+        if (!isActive()) {
+            return null;
+        }
+        Stored stored = responses.get(key);
+        if (stored != null && stored.generation() != generation.get()) {
+            responses.remove(key, stored);
+            stored = null;
+        }
+        responseRequests[stored != null ? 0 : 1].increment();
+        return stored != null ? stored.response() : null;
+    }
+
+    /**
+     * Current generation, to be passed to {@link #store} by a request about to build a response
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void store(String key, long generation, Response response) {
+        if (!isActive() || generation != this.generation.get() || responses.size() >= maxEntries) {
+            return;
+        }
+        Stored stored = new Stored(generation, response);
+        responses.put(key, stored);
+        if (generation != this.generation.get()) {
+            responses.remove(key, stored);
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        environments.clear();
+        responses.clear();
+        invalidations.increment();
+    }
+
+    private record Stored(long generation, Response response) {
+    }
+
+    private Environment resolved(Key key, Environment environment) {
+        resolveListener.accept(key, environment);
+        return environment;
+    }
+
+    private static Environment copy(Environment environment) {
+        Environment copy = new Environment(environment);
+        copy.addAll(environment.getPropertySources());
+        return copy;
+    }
+
+    private static Counter[] counters(MeterRegistry meterRegistry, String cache) {
+        Counter[] counters = new Counter[2];
+        for (int i = 0; i < 2; i++) {
+            counters[i] = Counter.builder("config.environment.cache.requests")
+                    .description("Lookups in the environment cache")
+                    .tag("cache", cache)
+                    .tag("result", i == 0 ? "hit" : "miss")
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+
+    private static void gauge(MeterRegistry meterRegistry, String cache, Map<?, ?> entries) {
+        Gauge.builder("config.environment.cache.size", entries, Map::size)
+                .description("Entries held by the environment cache")
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+}
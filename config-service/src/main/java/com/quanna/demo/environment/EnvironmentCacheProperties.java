@@ -0,0 +1,35 @@
+package com.quanna.demo.environment;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "environment-cache")
+public class EnvironmentCacheProperties {
+
+    /**
+     * Cache environments of the native repository and the JSON served from them until a file changes
+     */
+    private boolean enabled = true;
+
+    /**
+     * Most keys kept per cache; further keys are served uncached until the next change clears it
+     */
+    private int maxEntries = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
@@ -0,0 +1,87 @@
+package com.quanna.demo.environment;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Serves environment fetches ({@code /{application}/{profile}[/{label}]}) from JSON the controller
+ * wrote for the same path and Accept header, so a hit skips the repository and serialization.
+ *
+ * Runs after Spring Security, so hits are authenticated like any other request. Only successful
+ * JSON responses are kept; actuator paths are never cached.
+ */
+public class EnvironmentResponseFilter extends OncePerRequestFilter {
+
+    private final EnvironmentCache cache;
+    private final String managementBasePath;
+
+    public EnvironmentResponseFilter(EnvironmentCache cache, String managementBasePath) {
+        this.cache = cache;
+        this.managementBasePath = managementBasePath;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = key(request);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        EnvironmentCache.Response cached = cache.response(key);
+        if (cached != null) {
+            response.setContentType(cached.contentType());
+            response.setContentLength(cached.body().length);
+            response.getOutputStream().write(cached.body());
+            return;
+        }
+
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.getStatus() == HttpStatus.OK.value() && isJson(wrapper.getContentType())) {
+                cache.store(key, generation,
+                        new EnvironmentCache.Response(wrapper.getContentType(), wrapper.getContentAsByteArray()));
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private String key(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || !cache.isActive()) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals(managementBasePath) || path.startsWith(managementBasePath + "/")
+                || path.indexOf('/', 1) < 0) {
+            return null;
+        }
+        String query = request.getQueryString();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return path + (query != null ? "?" + query : "") + "\n" + (accept != null ? accept : "");
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            String subtype = MediaType.parseMediaType(contentType).getSubtype();
+            return subtype.equals("json") || subtype.endsWith("+json");
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+}
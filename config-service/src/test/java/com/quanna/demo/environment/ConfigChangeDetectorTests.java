@@ -0,0 +1,183 @@
+package com.quanna.demo.environment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.bus.event.PathDestinationFactory;
+import org.springframework.cloud.bus.event.RefreshRemoteApplicationEvent;
+import org.springframework.cloud.config.server.environment.NativeEnvironmentProperties;
+import org.springframework.cloud.config.server.environment.NativeEnvironmentRepository;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigChangeDetectorTests {
+
+    private static final Duration DEBOUNCE = Duration.ofMillis(200);
+    private static final Duration MAX_DELAY = Duration.ofMillis(600);
+
+    @TempDir
+    Path repository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> refreshed = new CopyOnWriteArrayList<>();
+    private EnvironmentCache cache;
+    private CachingEnvironmentRepository environments;
+    private ConfigChangeDetector detector;
+    private Path demoClient;
+    private Path other;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = repository.toRealPath();
+        demoClient = write("demo-client/application-dev.yml", "greeting: hello\n");
+        other = write("other/application.yml", "greeting: hi\n");
+
+        NativeEnvironmentProperties properties = new NativeEnvironmentProperties();
+        properties.setSearchLocations(new String[]{"file:" + repository + "/{application}/"});
+        cache = new EnvironmentCache(() -> true, 100, meterRegistry);
+        environments = new CachingEnvironmentRepository(
+                new NativeEnvironmentRepository(new StandardEnvironment(), properties, ObservationRegistry.NOOP), cache);
+
+        ConfigChangeProperties changeProperties = new ConfigChangeProperties();
+        changeProperties.setDebounce(DEBOUNCE);
+        changeProperties.setMaxDelay(MAX_DELAY);
+        detector = new ConfigChangeDetector(cache, changeProperties, 100, "config-service:8888:test",
+                new PathDestinationFactory(), meterRegistry);
+        detector.setRepository(environments);
+        detector.setApplicationEventPublisher(event -> {
+            if (event instanceof RefreshRemoteApplicationEvent refresh) {
+                refreshed.add(refresh.getDestinationService());
+            }
+        });
+        cache.onResolved(detector::resolved);
+        detector.start();
+
+        // The watcher reports its roots when it starts, which only hashes the files
+        detector.changed(Set.of(repository));
+        awaitScans(1);
+        environments.findOne("demo-client", "dev", null, true);
+        environments.findOne("other", "default", null, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.stop();
+    }
+
+    @Test
+    void changedPropertiesRefreshOnlyTheirClients() throws IOException {
+        Files.writeString(demoClient, "greeting: bonjour\n");
+
+        detector.changed(Set.of(demoClient));
+        awaitScans(2);
+
+        assertThat(refreshed).containsExactly("demo-client:dev:**");
+        assertThat(environments.findOne("demo-client", "dev", null).getPropertySources().get(0).getSource()
+                .get("greeting")).isEqualTo("bonjour");
+    }
+
+    @Test
+    void defaultProfileIsAddressedWithoutProfile() throws IOException {
+        Files.writeString(other, "greeting: salut\n");
+
+        detector.changed(Set.of(other));
+        awaitScans(2);
+
+        assertThat(refreshed).containsExactly("other:**");
+    }
+
+    @Test
+    void unchangedContentNeitherInvalidatesNorRefreshes() throws IOException {
+        Files.writeString(demoClient, "greeting: hello\n");
+
+        detector.changed(Set.of(demoClient));
+        awaitScans(2);
+
+        assertThat(invalidations()).isEqualTo(1);
+        assertThat(refreshed).isEmpty();
+    }
+
+    @Test
+    void changedFileWithSameResolvedPropertiesInvalidatesWithoutRefresh() throws IOException {
+        Files.writeString(demoClient, "# reworded\ngreeting: hello\n");
+
+        detector.changed(Set.of(demoClient));
+        awaitScans(2);
+
+        assertThat(invalidations()).isEqualTo(2);
+        assertThat(refreshed).isEmpty();
+    }
+
+    @Test
+    void burstOfEventsIsProcessedOnceAfterQuietTime() throws Exception {
+        Files.writeString(demoClient, "greeting: bonjour\n");
+        for (int i = 0; i < 5; i++) {
+            detector.changed(Set.of(demoClient));
+            Thread.sleep(DEBOUNCE.toMillis() / 4);
+        }
+        assertThat(scans()).isEqualTo(1);
+
+        awaitScans(2);
+        Thread.sleep(DEBOUNCE.toMillis() * 2);
+
+        assertThat(scans()).isEqualTo(2);
+        assertThat(refreshed).containsExactly("demo-client:dev:**");
+    }
+
+    @Test
+    void continuousEventsAreProcessedAfterMaxDelay() throws Exception {
+        Files.writeString(demoClient, "greeting: bonjour\n");
+        long end = System.nanoTime() + MAX_DELAY.multipliedBy(2).toNanos();
+        while (System.nanoTime() < end) {
+            detector.changed(Set.of(demoClient));
+            Thread.sleep(DEBOUNCE.toMillis() / 4);
+        }
+
+        assertThat(scans()).isGreaterThanOrEqualTo(2);
+        assertThat(refreshed).containsExactly("demo-client:dev:**");
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = repository.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private long scans() {
+        return meterRegistry.get("config.changes.scans").timer().count();
+    }
+
+    private double invalidations() {
+        return meterRegistry.get("config.environment.cache.invalidations").counter().count();
+    }
+
+    private void awaitScans(long count) {
+        await(() -> scans() >= count);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
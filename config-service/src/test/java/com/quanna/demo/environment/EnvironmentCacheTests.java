@@ -0,0 +1,168 @@
+package com.quanna.demo.environment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.config.environment.Environment;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EnvironmentCacheTests {
+
+    private static final EnvironmentCache.Key KEY = new EnvironmentCache.Key("demo-client", "dev", "main", true);
+
+    private final AtomicBoolean active = new AtomicBoolean(true);
+    private final EnvironmentCache cache = new EnvironmentCache(active::get, 100, new SimpleMeterRegistry());
+
+    @Test
+    void responseStoredInCurrentGenerationIsServed() {
+        cache.store("a", cache.generation(), response(0));
+
+        assertThat(generation(cache.response("a"))).isZero();
+    }
+
+    @Test
+    void responseBuiltBeforeInvalidationIsNotStored() {
+        long generation = cache.generation();
+        cache.invalidate();
+
+        cache.store("a", generation, response(1));
+
+        assertThat(cache.response("a")).isNull();
+    }
+
+    @Test
+    void invalidationDropsStoredResponses() {
+        cache.store("a", cache.generation(), response(1));
+
+        cache.invalidate();
+
+        assertThat(cache.response("a")).isNull();
+    }
+
+    @Test
+    void inactiveCacheKeepsNothing() {
+        active.set(false);
+        AtomicInteger resolutions = new AtomicInteger();
+
+        cache.store("a", cache.generation(), response(1));
+        cache.environment(KEY, () -> environment(resolutions.incrementAndGet()));
+        cache.environment(KEY, () -> environment(resolutions.incrementAndGet()));
+        active.set(true);
+
+        assertThat(cache.response("a")).isNull();
+        assertThat(resolutions).hasValue(2);
+    }
+
+    @Test
+    void concurrentMissesResolveOnce() throws Exception {
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger resolutions = new AtomicInteger();
+
+        CompletableFuture<Environment> first = CompletableFuture.supplyAsync(() -> cache.environment(KEY, () -> {
+            resolving.countDown();
+            await(release);
+            return environment(resolutions.incrementAndGet());
+        }));
+        assertThat(resolving.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Environment> second = CompletableFuture.supplyAsync(
+                () -> cache.environment(KEY, () -> environment(resolutions.incrementAndGet())));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getVersion()).isEqualTo("1");
+        assertThat(second.get(5, TimeUnit.SECONDS).getVersion()).isEqualTo("1");
+        assertThat(resolutions).hasValue(1);
+    }
+
+    @Test
+    void resolutionInFlightDuringInvalidationIsNotCached() throws Exception {
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Environment> stale = CompletableFuture.supplyAsync(() -> cache.environment(KEY, () -> {
+            resolving.countDown();
+            await(release);
+            return environment(1);
+        }));
+        assertThat(resolving.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.invalidate();
+        release.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS).getVersion()).isEqualTo("1");
+
+        assertThat(cache.environment(KEY, () -> environment(2)).getVersion()).isEqualTo("2");
+        assertThat(cache.environment(KEY, () -> environment(3)).getVersion()).isEqualTo("2");
+    }
+
+    @Test
+    void failedResolutionIsNotCached() {
+        assertThatThrownBy(() -> cache.environment(KEY, () -> {
+            throw new IllegalStateException("broken");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.environment(KEY, () -> environment(2)).getVersion()).isEqualTo("2");
+    }
+
+    /**
+     * Writers store responses tagged with the generation they started in while invalidations run;
+     * once an invalidation returned, no response from an earlier generation may be served
+     */
+    @Test
+    void responseOfEarlierGenerationIsNeverServedAfterInvalidation() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> violation = new AtomicReference<>();
+        Runnable writer = () -> {
+            while (!done.get()) {
+                long generation = cache.generation();
+                cache.store("a", generation, response(generation));
+            }
+        };
+        CompletableFuture<Void> writers = CompletableFuture.allOf(
+                CompletableFuture.runAsync(writer), CompletableFuture.runAsync(writer));
+        try {
+            for (int i = 0; i < 20_000 && violation.get() == null; i++) {
+                cache.invalidate();
+                long invalidated = cache.generation();
+                EnvironmentCache.Response response = cache.response("a");
+                if (response != null && generation(response) < invalidated) {
+                    violation.set("generation " + generation(response) + " served after invalidation " + invalidated);
+                }
+            }
+        } finally {
+            done.set(true);
+        }
+        writers.get(5, TimeUnit.SECONDS);
+
+        assertThat(violation.get()).isNull();
+    }
+
+    private static EnvironmentCache.Response response(long generation) {
+        return new EnvironmentCache.Response("application/json", ByteBuffer.allocate(Long.BYTES).putLong(generation).array());
+    }
+
+    private static long generation(EnvironmentCache.Response response) {
+        return ByteBuffer.wrap(response.body()).getLong();
+    }
+
+    private static Environment environment(int version) {
+        Environment environment = new Environment("demo-client", "dev");
+        environment.setVersion(String.valueOf(version));
+        return environment;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.quanna.democlient.config;
+
+import com.netflix.discovery.shared.transport.jersey.TransportClientFactories;
+import com.quanna.democlient.lease.HeartbeatRoutingTransportClientFactories;
+import com.quanna.democlient.lease.LeaseAgent;
+import com.quanna.democlient.lease.LeaseAgentClient;
+import com.quanna.democlient.lease.LeaseAgentProperties;
+import com.quanna.democlient.lease.RemoteLeaseAgentClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Host agent mode, see {@link LeaseAgent}. Wraps the eureka client transport so heartbeats go to the
+ * agent: the agent's own through {@link LeaseAgent} in-process, a member's over HTTP.
+ */
+@Configuration
+@ConditionalOnExpression("'${lease-agent.role:none}'.toLowerCase() != 'none'")
+public class LeaseAgentConfig {
+
+    @Bean
+    public static BeanPostProcessor heartbeatRoutingTransportClientFactories(ObjectProvider<LeaseAgentClient> agent) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TransportClientFactories<?> factories) {
+                    return new HeartbeatRoutingTransportClientFactories<>(factories, agent::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "lease-agent.role", havingValue = "agent")
+    public LeaseAgent leaseAgent(LeaseAgentProperties properties, EurekaClientConfigBean clientConfig,
+                                 RestClient.Builder restClientBuilder) {
+        return new LeaseAgent(properties, clientConfig, restClientBuilder);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "lease-agent.role", havingValue = "member")
+    public RemoteLeaseAgentClient remoteLeaseAgentClient(RestClient.Builder restClientBuilder,
+                                                         LeaseAgentProperties properties) {
+        return new RemoteLeaseAgentClient(restClientBuilder, properties);
+    }
+}
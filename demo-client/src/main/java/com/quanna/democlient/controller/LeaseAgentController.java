@@ -0,0 +1,30 @@
+package com.quanna.democlient.controller;
+
+import com.quanna.democlient.lease.LeaseAgent;
+import com.quanna.democlient.lease.LeaseRenewal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Heartbeats of the instances on this host, when it runs as their lease agent.
+ */
+@RestController
+@RequestMapping("/lease-agent")
+@ConditionalOnProperty(name = "lease-agent.role", havingValue = "agent")
+public class LeaseAgentController {
+
+    private final LeaseAgent agent;
+
+    public LeaseAgentController(LeaseAgent agent) {
+        this.agent = agent;
+    }
+
+    @PostMapping("/heartbeats")
+    public ResponseEntity<Void> heartbeat(@RequestBody LeaseRenewal renewal) {
+        return ResponseEntity.status(agent.heartbeat(renewal)).build();
+    }
+}
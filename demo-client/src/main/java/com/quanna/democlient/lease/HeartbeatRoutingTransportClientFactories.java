@@ -0,0 +1,146 @@
+package com.quanna.democlient.lease;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.resolver.EurekaEndpoint;
+import com.netflix.discovery.shared.transport.EurekaHttpClient;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.discovery.shared.transport.TransportClientFactory;
+import com.netflix.discovery.shared.transport.jersey.TransportClientFactories;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Eureka client transport sending heartbeats to a {@link LeaseAgentClient}, and everything else,
+ * registration and registry fetches included, to eureka-server through the regular transport.
+ *
+ * A heartbeat the agent doesn't answer with 200 or 404 goes to eureka-server directly, so the lease
+ * is renewed whether the agent is up or not.
+ *
+ * Wraps whichever transport the eureka client is configured with (RestTemplate, RestClient or
+ * WebClient). The agent is looked up when the first client is created, as the transport factories
+ * are built before it.
+ */
+public class HeartbeatRoutingTransportClientFactories<F> implements TransportClientFactories<F> {
+
+    private final TransportClientFactories<F> delegate;
+    private final Supplier<LeaseAgentClient> agent;
+
+    public HeartbeatRoutingTransportClientFactories(TransportClientFactories<F> delegate,
+                                                    Supplier<LeaseAgentClient> agent) {
+        this.delegate = delegate;
+        this.agent = agent;
+    }
+
+    @Override
+    public TransportClientFactory newTransportClientFactory(EurekaClientConfig clientConfig,
+                                                            Collection<F> additionalFilters,
+                                                            InstanceInfo myInstanceInfo) {
+        return routing(delegate.newTransportClientFactory(clientConfig, additionalFilters, myInstanceInfo));
+    }
+
+    @Override
+    public TransportClientFactory newTransportClientFactory(EurekaClientConfig clientConfig,
+                                                            Collection<F> additionalFilters,
+                                                            InstanceInfo myInstanceInfo,
+                                                            Optional<SSLContext> sslContext,
+                                                            Optional<HostnameVerifier> hostnameVerifier) {
+        return routing(delegate.newTransportClientFactory(clientConfig, additionalFilters, myInstanceInfo,
+                sslContext, hostnameVerifier));
+    }
+
+    private TransportClientFactory routing(TransportClientFactory factory) {
+        return new TransportClientFactory() {
+            @Override
+            public EurekaHttpClient newClient(EurekaEndpoint serviceUrl) {
+                return new HeartbeatRoutingClient(factory.newClient(serviceUrl), agent.get());
+            }
+
+            @Override
+            public void shutdown() {
+                factory.shutdown();
+            }
+        };
+    }
+
+    private record HeartbeatRoutingClient(EurekaHttpClient eureka, LeaseAgentClient agent) implements EurekaHttpClient {
+
+        @Override
+        public EurekaHttpResponse<InstanceInfo> sendHeartBeat(String appName, String id, InstanceInfo info,
+                                                              InstanceStatus overriddenStatus) {
+            int status = agent.heartbeat(new LeaseRenewal(appName, id, info.getLastDirtyTimestamp()));
+            if (status == 200 || status == 404) {
+                return EurekaHttpResponse.anEurekaHttpResponse(status, InstanceInfo.class).build();
+            }
+            return eureka.sendHeartBeat(appName, id, info, overriddenStatus);
+        }
+
+        @Override
+        public EurekaHttpResponse<Void> register(InstanceInfo info) {
+            return eureka.register(info);
+        }
+
+        @Override
+        public EurekaHttpResponse<Void> cancel(String appName, String id) {
+            return eureka.cancel(appName, id);
+        }
+
+        @Override
+        public EurekaHttpResponse<Void> statusUpdate(String appName, String id, InstanceStatus newStatus,
+                                                     InstanceInfo info) {
+            return eureka.statusUpdate(appName, id, newStatus, info);
+        }
+
+        @Override
+        public EurekaHttpResponse<Void> deleteStatusOverride(String appName, String id, InstanceInfo info) {
+            return eureka.deleteStatusOverride(appName, id, info);
+        }
+
+        @Override
+        public EurekaHttpResponse<Applications> getApplications(String... regions) {
+            return eureka.getApplications(regions);
+        }
+
+        @Override
+        public EurekaHttpResponse<Applications> getDelta(String... regions) {
+            return eureka.getDelta(regions);
+        }
+
+        @Override
+        public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
+            return eureka.getVip(vipAddress, regions);
+        }
+
+        @Override
+        public EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions) {
+            return eureka.getSecureVip(secureVipAddress, regions);
+        }
+
+        @Override
+        public EurekaHttpResponse<Application> getApplication(String appName) {
+            return eureka.getApplication(appName);
+        }
+
+        @Override
+        public EurekaHttpResponse<InstanceInfo> getInstance(String appName, String id) {
+            return eureka.getInstance(appName, id);
+        }
+
+        @Override
+        public EurekaHttpResponse<InstanceInfo> getInstance(String id) {
+            return eureka.getInstance(id);
+        }
+
+        @Override
+        public void shutdown() {
+            eureka.shutdown();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.quanna.democlient.lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host agent: takes the heartbeats of the instances on its host and renews their leases with one
+ * request per flush interval instead of one per instance and heartbeat.
+ *
+ * Only instances that sent a heartbeat since the last flush are renewed, so an instance that stops
+ * is evicted after its own lease expires, as without the agent. Leases eureka no longer knows are
+ * answered with 404 on the instance's next heartbeat, which makes it register again. While batches
+ * fail the agent answers 503, and instances send their heartbeats to eureka themselves; empty batches
+ * then check when eureka is back.
+ */
+public class LeaseAgent implements LeaseAgentClient, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaseAgent.class);
+
+    private final LeaseAgentProperties properties;
+    private final EurekaClientConfigBean clientConfig;
+    private final RestClient restClient;
+    private final Map<String, LeaseRenewal> pending = new ConcurrentHashMap<>();
+    private final Set<String> notFound = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean available = true;
+    private volatile ScheduledExecutorService scheduler;
+
+    public LeaseAgent(LeaseAgentProperties properties, EurekaClientConfigBean clientConfig,
+                      RestClient.Builder restClientBuilder) {
+        this.properties = properties;
+        this.clientConfig = clientConfig;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getTimeout());
+        requestFactory.setReadTimeout(properties.getTimeout());
+        this.restClient = restClientBuilder.clone().requestFactory(requestFactory).build();
+    }
+
+    @Override
+    public int heartbeat(LeaseRenewal renewal) {
+        if (notFound.remove(renewal.key())) {
+            return 404;
+        }
+        if (!available) {
+            return 503;
+        }
+        pending.put(renewal.key(), renewal);
+        return 200;
+    }
+
+    @Override
+    public void start() {
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-agent");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Lease agent renewing through {} every {}", renewalsUrl(), properties.getFlushInterval());
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    void flush() {
+        List<LeaseRenewal> batch = new ArrayList<>(pending.size());
+        for (String key : pending.keySet()) {
+            LeaseRenewal renewal = pending.remove(key);
+            if (renewal != null) {
+                batch.add(renewal);
+            }
+        }
+        if (batch.isEmpty() && available) {
+            return;
+        }
+        try {
+            RenewalResult result = restClient.post()
+                    .uri(renewalsUrl())
+                    .body(batch)
+                    .retrieve()
+                    .body(RenewalResult.class);
+            if (result != null && result.notFound() != null) {
+                result.notFound().forEach(renewal -> notFound.add(renewal.key()));
+            }
+            available = true;
+        } catch (RestClientException e) {
+            // Not retried: these instances now renew directly, and a retry could renew one that stopped
+            if (available) {
+                logger.warn("Batch renewal of {} leases failed, instances fall back to eureka: {}",
+                        batch.size(), e.getMessage());
+            }
+            available = false;
+        }
+    }
+
+    private String renewalsUrl() {
+        if (properties.getEurekaUrl() != null) {
+            return properties.getEurekaUrl();
+        }
+        String serviceUrl = clientConfig.getEurekaServerServiceUrls(EurekaClientConfigBean.DEFAULT_ZONE).get(0);
+        return serviceUrl.replaceAll("/?eureka/?$", "") + "/api/leases/renewals";
+    }
+
+    record RenewalResult(int renewed, List<LeaseRenewal> notFound) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.quanna.democlient.lease;
+
+/**
+ * Where heartbeats go instead of eureka-server.
+ */
+public interface LeaseAgentClient {
+
+    /**
+     * Status of the heartbeat with eureka's meaning: 200 accepted, 404 register again. Any other
+     * status means the agent can't take it and it goes to eureka directly.
+     */
+    int heartbeat(LeaseRenewal renewal);
+}
@@ -0,0 +1,89 @@
+package com.quanna.democlient.lease;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "lease-agent")
+public class LeaseAgentProperties {
+
+    public enum Role {
+        /**
+         * Heartbeats go straight to eureka, one request per instance
+         */
+        NONE,
+        /**
+         * Collects the heartbeats of the instances on this host, its own included, and renews them in batches
+         */
+        AGENT,
+        /**
+         * Sends heartbeats to the host's agent, or to eureka when the agent can't take them
+         */
+        MEMBER
+    }
+
+    private Role role = Role.NONE;
+
+    /**
+     * Agent of this host, used by members
+     */
+    private String url = "http://localhost:8001";
+
+    /**
+     * Batch renewal endpoint, used by the agent; defaults to /api/leases/renewals next to the first
+     * eureka service URL
+     */
+    private String eurekaUrl;
+
+    /**
+     * Time between two batch renewals; must stay well below the lease expiration
+     */
+    private Duration flushInterval = Duration.ofSeconds(2);
+
+    /**
+     * Connect and read timeout of calls to the agent and of batch renewals
+     */
+    private Duration timeout = Duration.ofSeconds(1);
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getEurekaUrl() {
+        return eurekaUrl;
+    }
+
+    public void setEurekaUrl(String eurekaUrl) {
+        this.eurekaUrl = eurekaUrl;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,11 @@
+package com.quanna.democlient.lease;
+
+/**
+ * One instance's heartbeat, as sent to the agent and on to eureka-server's batch renewal endpoint
+ */
+public record LeaseRenewal(String app, String id, Long lastDirtyTimestamp) {
+
+    String key() {
+        return app + "/" + id;
+    }
+}
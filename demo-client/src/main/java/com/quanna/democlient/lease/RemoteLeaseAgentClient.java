@@ -0,0 +1,43 @@
+package com.quanna.democlient.lease;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Sends heartbeats to the host's agent over loopback HTTP.
+ */
+public class RemoteLeaseAgentClient implements LeaseAgentClient {
+
+    private static final int UNAVAILABLE = 503;
+
+    private final RestClient restClient;
+
+    public RemoteLeaseAgentClient(RestClient.Builder restClientBuilder, LeaseAgentProperties properties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getTimeout());
+        requestFactory.setReadTimeout(properties.getTimeout());
+        this.restClient = restClientBuilder.clone()
+                .baseUrl(properties.getUrl())
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    @Override
+    public int heartbeat(LeaseRenewal renewal) {
+        try {
+            return restClient.post()
+                    .uri("/lease-agent/heartbeats")
+                    .body(renewal)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::isError, (request, response) -> {
+                    })
+                    .toBodilessEntity()
+                    .getStatusCode()
+                    .value();
+        } catch (RestClientException e) {
+            return UNAVAILABLE;
+        }
+    }
+}
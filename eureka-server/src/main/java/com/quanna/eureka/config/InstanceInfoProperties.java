@@ -0,0 +1,24 @@
+package com.quanna.eureka.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "instance-info")
+public class InstanceInfoProperties {
+
+    /**
+     * Timeout of one call to a service's /instance-info
+     */
+    private Duration requestTimeout = Duration.ofSeconds(5);
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+}
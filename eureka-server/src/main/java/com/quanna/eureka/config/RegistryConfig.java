@@ -0,0 +1,90 @@
+package com.quanna.eureka.config;
+
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.resources.ServerCodecs;
+import com.netflix.eureka.transport.EurekaServerHttpClientFactory;
+import com.quanna.eureka.registry.BatchLeaseRenewer;
+import com.quanna.eureka.registry.ChangeFeedInstanceRegistry;
+import com.quanna.eureka.registry.RegistryChangeFeed;
+import com.quanna.eureka.registry.RegistryChangeProperties;
+import com.quanna.eureka.registry.RegistryMetrics;
+import com.quanna.eureka.registry.RegistrySnapshotCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.cloud.netflix.eureka.EurekaInstanceConfigBean;
+import org.springframework.cloud.netflix.eureka.server.InstanceRegistryProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replaces the auto-configured {@code peerAwareInstanceRegistry} with one publishing its changes.
+ *
+ * The auto-configuration defines that bean unconditionally, so its definition is swapped for one
+ * built by {@link #changeFeedInstanceRegistry} rather than overridden by a second one.
+ */
+@Configuration
+public class RegistryConfig {
+
+    private static final String REGISTRY_BEAN = "peerAwareInstanceRegistry";
+
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor changeFeedInstanceRegistryDefinition() {
+        return registry -> {
+            RootBeanDefinition definition = new RootBeanDefinition();
+            definition.setTargetType(ChangeFeedInstanceRegistry.class);
+            definition.setFactoryBeanName("registryConfig");
+            definition.setFactoryMethodName("changeFeedInstanceRegistry");
+            definition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+            registry.removeBeanDefinition(REGISTRY_BEAN);
+            registry.registerBeanDefinition(REGISTRY_BEAN, definition);
+        };
+    }
+
+    @Bean
+    public RegistryChangeFeed registryChangeFeed(ServerCodecs serverCodecs, RegistryChangeProperties properties) {
+        return new RegistryChangeFeed(serverCodecs.getFullJsonCodec(), properties.getBufferSize());
+    }
+
+    @Bean
+    public RegistrySnapshotCache registrySnapshotCache(PeerAwareInstanceRegistry registry, RegistryChangeFeed feed) {
+        return new RegistrySnapshotCache(registry::getApplications, feed);
+    }
+
+    @Bean
+    public BatchLeaseRenewer batchLeaseRenewer(PeerAwareInstanceRegistry registry, EurekaServerConfig serverConfig) {
+        return new BatchLeaseRenewer(registry, serverConfig);
+    }
+
+    /**
+     * Factory method of {@code peerAwareInstanceRegistry}, not a bean of its own. Initializes the
+     * eureka client the same way as the registry it replaces.
+     */
+    public ChangeFeedInstanceRegistry changeFeedInstanceRegistry(EurekaServerConfig serverConfig,
+                                                                 EurekaClientConfig clientConfig,
+                                                                 ServerCodecs serverCodecs,
+                                                                 EurekaClient eurekaClient,
+                                                                 EurekaServerHttpClientFactory httpClientFactory,
+                                                                 EurekaInstanceConfigBean instanceConfig,
+                                                                 InstanceRegistryProperties registryProperties,
+                                                                 RegistryChangeFeed feed,
+                                                                 MeterRegistry meterRegistry) {
+        if (instanceConfig.isAsyncClientInitialization()) {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            executor.execute(eurekaClient::getApplications);
+            executor.shutdown();
+        } else {
+            eurekaClient.getApplications();
+        }
+        return new ChangeFeedInstanceRegistry(serverConfig, clientConfig, serverCodecs, eurekaClient,
+                httpClientFactory, registryProperties.getExpectedNumberOfClientsSendingRenews(),
+                registryProperties.getDefaultOpenForTrafficCount(), feed, new RegistryMetrics(meterRegistry));
+    }
+}
@@ -0,0 +1,60 @@
+package com.quanna.eureka.controller;
+
+import com.quanna.eureka.config.InstanceInfoProperties;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calls the /instance-info endpoint of registered services through the load-balanced {@link WebClient}.
+ */
+@RestController
+@RequestMapping("/api")
+public class InstanceInfoController {
+
+    private final WebClient webClient;
+    private final InstanceInfoProperties properties;
+
+    public InstanceInfoController(WebClient.Builder webClientBuilder, InstanceInfoProperties properties) {
+        this.webClient = webClientBuilder.build();
+        this.properties = properties;
+    }
+
+    @GetMapping("/instance-info/{serviceName}")
+    public Mono<Map<String, Object>> getInstanceInfo(@PathVariable String serviceName) {
+        return instanceInfo(serviceName, Object.class)
+                .map(response -> instanceInfoResult(serviceName, response))
+                .switchIfEmpty(Mono.fromSupplier(() -> instanceInfoResult(serviceName, null)))
+                .onErrorResume(e -> {
+                    Map<String, Object> error = new HashMap<>();
+                    error.put("success", false);
+                    error.put("serviceName", serviceName);
+                    error.put("error", e.getMessage());
+                    error.put("timestamp", System.currentTimeMillis());
+                    return Mono.just(error);
+                });
+    }
+
+    private static Map<String, Object> instanceInfoResult(String serviceName, Object response) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("serviceName", serviceName);
+        result.put("instanceInfo", response);
+        result.put("timestamp", System.currentTimeMillis());
+        return result;
+    }
+
+    private <T> Mono<T> instanceInfo(String serviceName, Class<T> type) {
+        return webClient.get()
+                .uri("http://" + serviceName + "/instance-info")
+                .retrieve()
+                .bodyToMono(type)
+                .timeout(properties.getRequestTimeout());
+    }
+}
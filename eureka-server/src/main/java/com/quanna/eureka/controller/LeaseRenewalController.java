@@ -0,0 +1,40 @@
+package com.quanna.eureka.controller;
+
+import com.quanna.eureka.registry.BatchLeaseRenewer;
+import com.quanna.eureka.registry.LeaseRenewal;
+import com.quanna.eureka.registry.LeaseRenewalProperties;
+import com.quanna.eureka.registry.LeaseRenewalResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Batch heartbeats, sent by host agents renewing the leases of the instances on their host in one
+ * request instead of one per instance.
+ */
+@RestController
+@RequestMapping("/api/leases")
+public class LeaseRenewalController {
+
+    private final BatchLeaseRenewer renewer;
+    private final LeaseRenewalProperties properties;
+
+    public LeaseRenewalController(BatchLeaseRenewer renewer, LeaseRenewalProperties properties) {
+        this.renewer = renewer;
+        this.properties = properties;
+    }
+
+    @PostMapping("/renewals")
+    public LeaseRenewalResult renew(@RequestBody List<LeaseRenewal> renewals) {
+        if (renewals.size() > properties.getMaxBatchSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at most " + properties.getMaxBatchSize() + " leases per batch");
+        }
+        return renewer.renew(renewals);
+    }
+}
@@ -0,0 +1,64 @@
+package com.quanna.eureka.controller;
+
+import com.quanna.eureka.loadtest.LoadBalanceComparison;
+import com.quanna.eureka.loadtest.LoadTestEngine;
+import com.quanna.eureka.loadtest.LoadTestProperties;
+import com.quanna.eureka.loadtest.LoadTestRequest;
+import com.quanna.eureka.loadtest.LoadTestResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Load tests against registered services, see {@link LoadTestEngine}.
+ *
+ * POST takes the test as a JSON body and answers with the result once it's done. The GET stream
+ * takes it as query parameters, so it can be opened with an EventSource, and sends "progress"
+ * events followed by one "result" event.
+ */
+@RestController
+@RequestMapping("/api")
+public class LoadTestController {
+
+    private final LoadTestEngine engine;
+    private final LoadTestProperties properties;
+
+    public LoadTestController(LoadTestEngine engine, LoadTestProperties properties) {
+        this.engine = engine;
+        this.properties = properties;
+    }
+
+    @GetMapping("/load-balance-compare/{serviceName}/{count}")
+    public Mono<LoadBalanceComparison> loadBalanceCompare(@PathVariable String serviceName,
+                                                          @PathVariable int count) {
+        if (count < 1 || count > properties.getMaxRequests()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "count must be between 1 and " + properties.getMaxRequests());
+        }
+        return engine.compare(serviceName, count);
+    }
+
+    @PostMapping("/load-tests/{serviceName}")
+    public Mono<LoadTestResult> run(@PathVariable String serviceName, @RequestBody LoadTestRequest request) {
+        return engine.run(serviceName, request);
+    }
+
+    @GetMapping(value = "/load-tests/{serviceName}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> stream(@PathVariable String serviceName,
+                                                @ModelAttribute LoadTestRequest request) {
+        return engine.stream(serviceName, request)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event instanceof LoadTestResult ? "result" : "progress")
+                        .build());
+    }
+}
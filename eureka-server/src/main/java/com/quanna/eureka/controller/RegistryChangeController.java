@@ -0,0 +1,50 @@
+package com.quanna.eureka.controller;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.quanna.eureka.registry.RegistryChange;
+import com.quanna.eureka.registry.RegistryChangeFeed;
+import com.quanna.eureka.registry.RegistryChangeProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.Locale;
+
+/**
+ * Pushes registry changes to clients as server-sent events, so they can poll the registry less often.
+ *
+ * Each event is named after its {@link RegistryChange.Type} and carries its position as id, which
+ * clients send back as Last-Event-ID when they reconnect.
+ */
+@RestController
+@RequestMapping("/api/registry")
+public class RegistryChangeController {
+
+    private final PeerAwareInstanceRegistry registry;
+    private final RegistryChangeFeed feed;
+    private final RegistryChangeProperties properties;
+
+    public RegistryChangeController(PeerAwareInstanceRegistry registry, RegistryChangeFeed feed,
+                                    RegistryChangeProperties properties) {
+        this.registry = registry;
+        this.feed = feed;
+        this.properties = properties;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<RegistryChange>> changes(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        Flux<ServerSentEvent<RegistryChange>> changes = feed.changes(lastEventId, registry::getApplications)
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(feed.eventId(change))
+                        .event(change.type().name().toLowerCase(Locale.ROOT))
+                        .build());
+        Flux<ServerSentEvent<RegistryChange>> heartbeats = Flux.interval(properties.getHeartbeatInterval())
+                .map(tick -> ServerSentEvent.<RegistryChange>builder().comment("heartbeat").build());
+        return Flux.merge(changes, heartbeats).takeUntilOther(feed.closed());
+    }
+}
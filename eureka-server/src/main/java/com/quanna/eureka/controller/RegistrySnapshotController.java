@@ -0,0 +1,42 @@
+package com.quanna.eureka.controller;
+
+import com.quanna.eureka.registry.RegistrySnapshot;
+import com.quanna.eureka.registry.RegistrySnapshotCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the compact registry snapshot. The cached bytes are written as they are: gzipped when the
+ * client accepts gzip, with the feed position as a weak ETag (both encodings carry the same registry) so
+ * an unchanged registry answers 304.
+ */
+@RestController
+@RequestMapping("/api/registry")
+public class RegistrySnapshotController {
+
+    private final RegistrySnapshotCache snapshots;
+
+    public RegistrySnapshotController(RegistrySnapshotCache snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<byte[]> snapshot(
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        RegistrySnapshot snapshot = snapshots.current();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag("W/\"" + snapshot.position() + "\"")
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+}
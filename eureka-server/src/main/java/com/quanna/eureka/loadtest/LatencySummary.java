@@ -0,0 +1,28 @@
+package com.quanna.eureka.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency of successful calls in milliseconds, read from a histogram recorded in microseconds.
+ */
+public record LatencySummary(long count, double min, double mean, double p50, double p90, double p99,
+                             double p999, double max) {
+
+    static LatencySummary of(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return new LatencySummary(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new LatencySummary(histogram.getTotalCount(),
+                millis(histogram.getMinValue()),
+                millis(histogram.getMean()),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(double micros) {
+        return Math.round(micros) / 1000.0;
+    }
+}
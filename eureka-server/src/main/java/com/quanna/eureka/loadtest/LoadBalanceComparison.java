@@ -0,0 +1,19 @@
+package com.quanna.eureka.loadtest;
+
+/**
+ * The same count-based test run with the blocking client, one call at a time, and then with the
+ * reactive client.
+ */
+public record LoadBalanceComparison(String serviceName, int totalRequests, LoadTestResult blocking,
+                                    LoadTestResult reactive, String performanceImprovement, String fasterBy,
+                                    long timestamp) {
+
+    static LoadBalanceComparison of(String serviceName, int totalRequests, LoadTestResult blocking,
+                                    LoadTestResult reactive) {
+        long blockingTime = blocking.executionTimeMs();
+        long reactiveTime = reactive.executionTimeMs();
+        long improvement = blockingTime > 0 ? ((blockingTime - reactiveTime) * 100) / blockingTime : 0;
+        return new LoadBalanceComparison(serviceName, totalRequests, blocking, reactive, improvement + "%",
+                blockingTime - reactiveTime + "ms", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,268 @@
+package com.quanna.eureka.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends load to a registered service through the load balancer and measures it.
+ *
+ * A test runs {@code concurrency} workers, each starting its next call when the previous one ends,
+ * until the run stops handing out calls. Blocking calls go through a per-test copy of the
+ * load-balanced {@link RestTemplate} on a scheduler with a thread for every call that can be in
+ * flight, so they never queue behind each other.
+ */
+@Component
+public class LoadTestEngine implements DisposableBean {
+
+    private static final int DEFAULT_REQUESTS = 100;
+    private static final String UNKNOWN_INSTANCE = "unknown";
+
+    private final WebClient webClient;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final LoadTestProperties properties;
+    private final Scheduler blockingScheduler;
+    private final AtomicInteger running = new AtomicInteger();
+
+    public LoadTestEngine(WebClient.Builder webClientBuilder, RestTemplate restTemplate,
+                          ObjectMapper objectMapper, LoadTestProperties properties) {
+        this.webClient = webClientBuilder.build();
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.blockingScheduler = Schedulers.newBoundedElastic(
+                properties.getMaxConcurrency() * properties.getMaxRunning(), 1, "load-test-blocking");
+    }
+
+    /**
+     * Checks the request and fills in defaults; throws 400 when it can't be run
+     */
+    public LoadTestRequest validate(LoadTestRequest request) {
+        if (request.getRequests() != null && request.getDuration() != null) {
+            throw badRequest("set either requests or duration, not both");
+        }
+        if (request.getRequests() == null && request.getDuration() == null) {
+            request.setRequests(DEFAULT_REQUESTS);
+        }
+        if (request.getRequests() != null
+                && (request.getRequests() < 1 || request.getRequests() > properties.getMaxRequests())) {
+            throw badRequest("requests must be between 1 and " + properties.getMaxRequests());
+        }
+        if (request.getDuration() != null && !within(request.getDuration(), properties.getMaxDuration())) {
+            throw badRequest("duration must be positive and at most " + properties.getMaxDuration());
+        }
+        if (request.getWarmup() == null) {
+            request.setWarmup(Duration.ZERO);
+        }
+        if (request.getWarmup().isNegative() || request.getWarmup().compareTo(properties.getMaxDuration()) > 0) {
+            throw badRequest("warmup must be at most " + properties.getMaxDuration());
+        }
+        if (request.getConcurrency() < 1 || request.getConcurrency() > properties.getMaxConcurrency()) {
+            throw badRequest("concurrency must be between 1 and " + properties.getMaxConcurrency());
+        }
+        if (request.getTimeout() == null || !within(request.getTimeout(), properties.getMaxDuration())) {
+            throw badRequest("timeout must be positive and at most " + properties.getMaxDuration());
+        }
+        if (request.getPath() == null || !request.getPath().startsWith("/")) {
+            throw badRequest("path must start with /");
+        }
+        if (request.getClient() == null) {
+            request.setClient(LoadTestRequest.Client.REACTIVE);
+        }
+        return request;
+    }
+
+    public Mono<LoadTestResult> run(String serviceName, LoadTestRequest request) {
+        LoadTestRequest checked = validate(request);
+        return Mono.defer(() -> {
+            Slot slot = acquire();
+            LoadTestRun run = new LoadTestRun(serviceName, checked);
+            return execute(serviceName, checked, run, slot)
+                    .then(Mono.fromCallable(run::result));
+        });
+    }
+
+    public Mono<LoadBalanceComparison> compare(String serviceName, int count) {
+        LoadTestRequest blocking = new LoadTestRequest();
+        blocking.setClient(LoadTestRequest.Client.BLOCKING);
+        blocking.setConcurrency(1);
+        blocking.setRequests(count);
+        LoadTestRequest reactive = new LoadTestRequest();
+        reactive.setConcurrency(properties.getCompareConcurrency());
+        reactive.setRequests(count);
+
+        Mono<LoadTestResult> reactiveRun = run(serviceName, reactive);
+        return run(serviceName, blocking)
+                .zipWhen(blockingResult -> reactiveRun)
+                .map(results -> LoadBalanceComparison.of(serviceName, count, results.getT1(), results.getT2()));
+    }
+
+    /**
+     * Runs the test, emitting a {@link LoadTestProgress} every progress interval and the
+     * {@link LoadTestResult} last. Cancelling stops the test.
+     */
+    public Flux<Object> stream(String serviceName, LoadTestRequest request) {
+        LoadTestRequest checked = validate(request);
+        return Flux.defer(() -> {
+            Slot slot = acquire();
+            LoadTestRun run = new LoadTestRun(serviceName, checked);
+            Mono<LoadTestResult> result = execute(serviceName, checked, run, slot)
+                    .then(Mono.fromCallable(run::result));
+            Flux<Object> progress = Flux.interval(properties.getProgressInterval())
+                    .map(tick -> run.progress());
+            // Subscribed once, so cancelling the stream cancels the test
+            return Flux.merge(progress, result)
+                    .takeUntil(LoadTestResult.class::isInstance);
+        });
+    }
+
+    private Slot acquire() {
+        if (running.incrementAndGet() > properties.getMaxRunning()) {
+            running.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many load tests running, try again later");
+        }
+        return new Slot();
+    }
+
+    private Mono<Void> execute(String serviceName, LoadTestRequest request, LoadTestRun run, Slot slot) {
+        String url = "http://" + serviceName + request.getPath();
+        Mono<String> call = request.getClient() == LoadTestRequest.Client.BLOCKING
+                ? blockingCall(blockingRestTemplate(request.getTimeout()), url, slot)
+                : reactiveCall(url, request.getTimeout());
+        return Flux.range(0, request.getConcurrency())
+                .flatMap(worker -> worker(run, call), request.getConcurrency())
+                .then()
+                .doFinally(signal -> {
+                    run.finish();
+                    slot.release();
+                });
+    }
+
+    private static Mono<Void> worker(LoadTestRun run, Mono<String> call) {
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    if (!run.claim(start)) {
+                        return Mono.just(false);
+                    }
+                    return call
+                            .doOnNext(instanceId -> run.recordSuccess(start, instanceId))
+                            .onErrorResume(error -> {
+                                run.recordError(start, error);
+                                return Mono.empty();
+                            })
+                            .thenReturn(true);
+                })
+                .repeat()
+                .takeWhile(Boolean::booleanValue)
+                .then();
+    }
+
+    private Mono<String> reactiveCall(String url, Duration timeout) {
+        return Mono.defer(() -> webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(this::instanceId)
+                .timeout(timeout));
+    }
+
+    /**
+     * The call holds the test's slot while it runs: once started it goes on after a cancel
+     */
+    private Mono<String> blockingCall(RestTemplate client, String url, Slot slot) {
+        return Mono.fromCallable(() -> {
+                    if (!slot.hold()) {
+                        throw new CancellationException("Load test already ended");
+                    }
+                    try {
+                        return instanceId(client.getForObject(url, byte[].class));
+                    } finally {
+                        slot.release();
+                    }
+                })
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * A blocking call can't be cancelled, so the timeout is the client's own read timeout
+     */
+    private RestTemplate blockingRestTemplate(Duration timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        RestTemplate client = new RestTemplate(requestFactory);
+        client.setInterceptors(restTemplate.getInterceptors());
+        return client;
+    }
+
+    private String instanceId(byte[] body) {
+        if (body == null || body.length == 0) {
+            return UNKNOWN_INSTANCE;
+        }
+        try {
+            JsonNode instanceId = objectMapper.readTree(body).get("instanceId");
+            return instanceId != null && instanceId.isTextual() ? instanceId.asText() : UNKNOWN_INSTANCE;
+        } catch (IOException e) {
+            return UNKNOWN_INSTANCE;
+        }
+    }
+
+    private static boolean within(Duration value, Duration max) {
+        return value.isPositive() && value.compareTo(max) <= 0;
+    }
+
+    private static ResponseStatusException badRequest(String reason) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, reason);
+    }
+
+    /**
+     * A test's share of {@code max-running}, freed when the test has ended and none of its blocking
+     * calls is still running
+     */
+    private final class Slot {
+        private final AtomicInteger holders = new AtomicInteger(1);
+
+        /**
+         * @return false if the slot was already freed
+         */
+        boolean hold() {
+            int current;
+            do {
+                current = holders.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!holders.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            if (holders.decrementAndGet() == 0) {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        blockingScheduler.dispose();
+    }
+}
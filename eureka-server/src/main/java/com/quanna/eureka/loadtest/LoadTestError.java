@@ -0,0 +1,43 @@
+package com.quanna.eureka.loadtest;
+
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Kinds of failed calls, the same for both clients.
+ */
+public enum LoadTestError {
+
+    TIMEOUT,
+    CONNECTION,
+    HTTP_4XX,
+    HTTP_5XX,
+    OTHER;
+
+    public String key() {
+        return name().toLowerCase();
+    }
+
+    static LoadTestError classify(Throwable error) {
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().is4xxClientError() ? HTTP_4XX : HTTP_5XX;
+        }
+        if (error instanceof HttpStatusCodeException e) {
+            return e.getStatusCode().is4xxClientError() ? HTTP_4XX : HTTP_5XX;
+        }
+        if (error instanceof WebClientRequestException || error instanceof ResourceAccessException) {
+            Throwable cause = error.getCause();
+            if (cause instanceof SocketTimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return TIMEOUT;
+            }
+            return cause instanceof IOException ? CONNECTION : OTHER;
+        }
+        return error instanceof TimeoutException ? TIMEOUT : OTHER;
+    }
+}
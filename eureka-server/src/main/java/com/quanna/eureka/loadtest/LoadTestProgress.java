@@ -0,0 +1,8 @@
+package com.quanna.eureka.loadtest;
+
+/**
+ * State of a running test, with throughput and latency over the last progress interval only.
+ */
+public record LoadTestProgress(String phase, long elapsedMs, long completed, long errors,
+                               double throughput, LatencySummary latency) {
+}
@@ -0,0 +1,89 @@
+package com.quanna.eureka.loadtest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "load-test")
+public class LoadTestProperties {
+
+    /**
+     * Largest concurrency a test may ask for
+     */
+    private int maxConcurrency = 64;
+
+    /**
+     * Largest request count of a count-based test, warm-up excluded
+     */
+    private int maxRequests = 100_000;
+
+    /**
+     * Longest duration of a duration-based test, and longest warm-up
+     */
+    private Duration maxDuration = Duration.ofMinutes(5);
+
+    /**
+     * Tests running at once; beyond that they are rejected with 503
+     */
+    private int maxRunning = 2;
+
+    /**
+     * Concurrency of the reactive half of /api/load-balance-compare
+     */
+    private int compareConcurrency = 32;
+
+    /**
+     * Time between two progress events of a streamed test
+     */
+    private Duration progressInterval = Duration.ofSeconds(1);
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public int getMaxRunning() {
+        return maxRunning;
+    }
+
+    public void setMaxRunning(int maxRunning) {
+        this.maxRunning = maxRunning;
+    }
+
+    public int getCompareConcurrency() {
+        return compareConcurrency;
+    }
+
+    public void setCompareConcurrency(int compareConcurrency) {
+        this.compareConcurrency = compareConcurrency;
+    }
+
+    public Duration getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(Duration progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+}
@@ -0,0 +1,111 @@
+package com.quanna.eureka.loadtest;
+
+import org.springframework.format.annotation.DurationFormat;
+
+import java.time.Duration;
+
+/**
+ * What to run against a service. A test is count-based when {@code requests} is set and
+ * duration-based when {@code duration} is; with neither it sends 100 requests.
+ *
+ * Durations are ISO-8601 in a JSON body and short ({@code 30s}) in query parameters.
+ */
+public class LoadTestRequest {
+
+    public enum Client {
+        /**
+         * Load-balanced WebClient
+         */
+        REACTIVE("reactive-webclient"),
+        /**
+         * Load-balanced RestTemplate, one blocking thread per concurrent call
+         */
+        BLOCKING("blocking-resttemplate");
+
+        private final String type;
+
+        Client(String type) {
+            this.type = type;
+        }
+
+        public String type() {
+            return type;
+        }
+    }
+
+    private String path = "/instance-info";
+
+    private Client client = Client.REACTIVE;
+
+    private int concurrency = 16;
+
+    private Integer requests;
+
+    @DurationFormat(style = DurationFormat.Style.SIMPLE)
+    private Duration duration;
+
+    /**
+     * Calls started within this time from the start are sent but left out of the results
+     */
+    @DurationFormat(style = DurationFormat.Style.SIMPLE)
+    private Duration warmup = Duration.ZERO;
+
+    @DurationFormat(style = DurationFormat.Style.SIMPLE)
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    public void setClient(Client client) {
+        this.client = client;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Integer getRequests() {
+        return requests;
+    }
+
+    public void setRequests(Integer requests) {
+        this.requests = requests;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,13 @@
+package com.quanna.eureka.loadtest;
+
+import java.util.Map;
+
+/**
+ * Outcome of a test. Counts, throughput and latency cover the measured calls only, warm-up calls
+ * are just counted in {@code warmupRequests}.
+ */
+public record LoadTestResult(String serviceName, String path, String type, int concurrency,
+                             long warmupRequests, long requests, long successes, Map<String, Long> errors,
+                             long executionTimeMs, double throughput, LatencySummary latency,
+                             Map<String, Long> instanceDistribution) {
+}
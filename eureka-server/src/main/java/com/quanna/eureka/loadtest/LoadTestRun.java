@@ -0,0 +1,146 @@
+package com.quanna.eureka.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared state of one test: which calls may still start, and what the finished ones recorded.
+ *
+ * Workers record into a {@link Recorder}; progress and results drain it into the total histogram,
+ * one reader at a time, so recording never takes a lock.
+ */
+final class LoadTestRun {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String serviceName;
+    private final LoadTestRequest request;
+    private final long startNanos;
+    private final long measureStartNanos;
+    private final long measureEndNanos;
+    private final AtomicLong issued = new AtomicLong();
+
+    private final LongAdder warmupRequests = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final Map<LoadTestError, LongAdder> errors = new EnumMap<>(LoadTestError.class);
+    private final Map<String, LongAdder> instances = new ConcurrentHashMap<>();
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private Histogram interval;
+    private long lastProgressNanos;
+    private long lastProgressCompleted;
+    private volatile long endNanos;
+
+    LoadTestRun(String serviceName, LoadTestRequest request) {
+        this.serviceName = serviceName;
+        this.request = request;
+        this.startNanos = System.nanoTime();
+        this.measureStartNanos = startNanos + request.getWarmup().toNanos();
+        this.measureEndNanos = request.getDuration() != null
+                ? measureStartNanos + request.getDuration().toNanos() : Long.MAX_VALUE;
+        this.lastProgressNanos = startNanos;
+        for (LoadTestError error : LoadTestError.values()) {
+            errors.put(error, new LongAdder());
+        }
+    }
+
+    /**
+     * Whether a worker may start a call at {@code now}; warm-up calls are always allowed
+     */
+    boolean claim(long now) {
+        if (now < measureStartNanos) {
+            return true;
+        }
+        if (request.getDuration() != null) {
+            return now < measureEndNanos;
+        }
+        return issued.incrementAndGet() <= request.getRequests();
+    }
+
+    void recordSuccess(long callStartNanos, String instanceId) {
+        if (callStartNanos < measureStartNanos) {
+            warmupRequests.increment();
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - callStartNanos);
+        recorder.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        successes.increment();
+        instances.computeIfAbsent(instanceId, id -> new LongAdder()).increment();
+    }
+
+    void recordError(long callStartNanos, Throwable error) {
+        if (callStartNanos < measureStartNanos) {
+            warmupRequests.increment();
+            return;
+        }
+        errors.get(LoadTestError.classify(error)).increment();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    synchronized LoadTestProgress progress() {
+        Histogram latest = drain();
+        long now = System.nanoTime();
+        long completed = successes.sum() + errorCount();
+        double seconds = (now - lastProgressNanos) / 1e9;
+        double throughput = seconds > 0 ? round((completed - lastProgressCompleted) / seconds) : 0;
+        lastProgressNanos = now;
+        lastProgressCompleted = completed;
+        String phase = now < measureStartNanos ? "warmup" : "measure";
+        return new LoadTestProgress(phase, TimeUnit.NANOSECONDS.toMillis(now - startNanos), completed,
+                errorCount(), throughput, LatencySummary.of(latest));
+    }
+
+    synchronized LoadTestResult result() {
+        drain();
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long measuredNanos = Math.max(0, end - measureStartNanos);
+        long requests = successes.sum() + errorCount();
+        double throughput = measuredNanos > 0 ? round(requests / (measuredNanos / 1e9)) : 0;
+
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((error, count) -> {
+            if (count.sum() > 0) {
+                errorCounts.put(error.key(), count.sum());
+            }
+        });
+        Map<String, Long> distribution = new TreeMap<>();
+        instances.forEach((instanceId, count) -> distribution.put(instanceId, count.sum()));
+
+        return new LoadTestResult(serviceName, request.getPath(), request.getClient().type(),
+                request.getConcurrency(), warmupRequests.sum(), requests, successes.sum(), errorCounts,
+                TimeUnit.NANOSECONDS.toMillis(measuredNanos), throughput, LatencySummary.of(total),
+                distribution);
+    }
+
+    private Histogram drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    private long errorCount() {
+        long count = 0;
+        for (LongAdder adder : errors.values()) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
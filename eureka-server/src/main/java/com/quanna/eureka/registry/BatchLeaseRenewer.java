@@ -0,0 +1,55 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renews many leases from one request. Each lease is renewed on its own, exactly as its own heartbeat
+ * would: it is replicated to peers, and a lease that stops being renewed expires and is evicted
+ * independently of the others in its batch.
+ */
+public class BatchLeaseRenewer {
+
+    private final PeerAwareInstanceRegistry registry;
+    private final EurekaServerConfig serverConfig;
+
+    public BatchLeaseRenewer(PeerAwareInstanceRegistry registry, EurekaServerConfig serverConfig) {
+        this.registry = registry;
+        this.serverConfig = serverConfig;
+    }
+
+    public LeaseRenewalResult renew(List<LeaseRenewal> renewals) {
+        int renewed = 0;
+        List<LeaseRenewal> notFound = new ArrayList<>();
+        for (LeaseRenewal renewal : renewals) {
+            if (renew(renewal)) {
+                renewed++;
+            } else {
+                notFound.add(renewal);
+            }
+        }
+        return new LeaseRenewalResult(renewed, notFound);
+    }
+
+    /**
+     * Same checks as eureka's heartbeat resource for a non-replicated renewal
+     */
+    private boolean renew(LeaseRenewal renewal) {
+        if (renewal.app() == null || renewal.id() == null) {
+            return false;
+        }
+        String app = renewal.app().toUpperCase();
+        if (!registry.renew(app, renewal.id(), false)) {
+            return false;
+        }
+        if (renewal.lastDirtyTimestamp() == null || !serverConfig.shouldSyncWhenTimestampDiffers()) {
+            return true;
+        }
+        InstanceInfo instance = registry.getInstanceByAppAndId(app, renewal.id(), false);
+        return instance == null || renewal.lastDirtyTimestamp() <= instance.getLastDirtyTimestamp();
+    }
+}
@@ -0,0 +1,166 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.registry.ResponseCache;
+import com.netflix.eureka.resources.ServerCodecs;
+import com.netflix.eureka.transport.EurekaServerHttpClientFactory;
+import org.springframework.cloud.netflix.eureka.server.InstanceRegistry;
+
+/**
+ * The Spring Cloud registry, also publishing every registration, cancellation and status change to a
+ * {@link RegistryChangeFeed}. Cancellations include evictions, which go through {@link #internalCancel}.
+ * Replicated changes are published too, so each server's feed covers the whole registry.
+ *
+ * Every call, eviction run and response cache read is recorded in {@link RegistryMetrics}. The
+ * registry lock is private to eureka, so its contention shows as the latency of the calls taking it.
+ */
+public class ChangeFeedInstanceRegistry extends InstanceRegistry {
+
+    private final RegistryChangeFeed feed;
+    private final RegistryMetrics metrics;
+    private volatile MeteredResponseCache responseCache;
+
+    public ChangeFeedInstanceRegistry(EurekaServerConfig serverConfig, EurekaClientConfig clientConfig,
+                                      ServerCodecs serverCodecs, EurekaClient eurekaClient,
+                                      EurekaServerHttpClientFactory eurekaServerHttpClientFactory,
+                                      int expectedNumberOfClientsSendingRenews, int defaultOpenForTrafficCount,
+                                      RegistryChangeFeed feed, RegistryMetrics metrics) {
+        super(serverConfig, clientConfig, serverCodecs, eurekaClient, eurekaServerHttpClientFactory,
+                expectedNumberOfClientsSendingRenews, defaultOpenForTrafficCount);
+        this.feed = feed;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void register(InstanceInfo info, int leaseDuration, boolean isReplication) {
+        metrics.record(RegistryMetrics.Operation.REGISTER, isReplication,
+                () -> super.register(info, leaseDuration, isReplication));
+        publish(RegistryChange.Type.REGISTERED, info.getAppName(), info.getId());
+    }
+
+    @Override
+    public void register(InstanceInfo info, boolean isReplication) {
+        metrics.record(RegistryMetrics.Operation.REGISTER, isReplication, () -> super.register(info, isReplication));
+        publish(RegistryChange.Type.REGISTERED, info.getAppName(), info.getId());
+    }
+
+    @Override
+    public boolean renew(String appName, String serverId, boolean isReplication) {
+        return metrics.record(RegistryMetrics.Operation.RENEW, isReplication,
+                () -> super.renew(appName, serverId, isReplication));
+    }
+
+    @Override
+    public boolean cancel(String appName, String serverId, boolean isReplication) {
+        return metrics.record(RegistryMetrics.Operation.CANCEL, isReplication,
+                () -> super.cancel(appName, serverId, isReplication));
+    }
+
+    @Override
+    public void evict(long additionalLeaseMs) {
+        metrics.sweep(() -> super.evict(additionalLeaseMs));
+    }
+
+    /**
+     * The instance is looked up through its application, as {@link #getInstanceByAppAndId} hides an
+     * expired lease and evictions would go unpublished
+     */
+    @Override
+    protected boolean internalCancel(String appName, String id, boolean isReplication) {
+        Application application = getApplication(appName, false);
+        InstanceInfo instance = application != null ? application.getByInstanceId(id) : null;
+        boolean cancelled = super.internalCancel(appName, id, isReplication);
+        if (cancelled) {
+            metrics.cancelled();
+            feed.publish(RegistryChange.Type.CANCELLED, instance);
+        }
+        return cancelled;
+    }
+
+    @Override
+    public boolean statusUpdate(String appName, String id, InstanceStatus newStatus, String lastDirtyTimestamp,
+                                boolean isReplication) {
+        boolean updated = metrics.record(RegistryMetrics.Operation.STATUS_UPDATE, isReplication,
+                () -> super.statusUpdate(appName, id, newStatus, lastDirtyTimestamp, isReplication));
+        if (updated) {
+            publish(RegistryChange.Type.STATUS_CHANGED, appName, id);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteStatusOverride(String appName, String id, InstanceStatus newStatus,
+                                        String lastDirtyTimestamp, boolean isReplication) {
+        boolean deleted = metrics.record(RegistryMetrics.Operation.DELETE_STATUS_OVERRIDE, isReplication,
+                () -> super.deleteStatusOverride(appName, id, newStatus, lastDirtyTimestamp, isReplication));
+        if (deleted) {
+            publish(RegistryChange.Type.STATUS_CHANGED, appName, id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Wraps eureka's response cache once it exists; the registry itself keeps using the unwrapped one
+     */
+    @Override
+    public ResponseCache getResponseCache() {
+        ResponseCache cache = super.getResponseCache();
+        if (cache == null) {
+            return null;
+        }
+        MeteredResponseCache metered = responseCache;
+        if (metered == null || metered.delegate() != cache) {
+            synchronized (this) {
+                metered = responseCache;
+                if (metered == null || metered.delegate() != cache) {
+                    metered = metrics.metered(cache);
+                    responseCache = metered;
+                }
+            }
+        }
+        return metered;
+    }
+
+    // The response cache builds its payloads from these; called during a fetch they make it a miss
+
+    @Override
+    public Applications getApplicationsFromMultipleRegions(String[] remoteRegions) {
+        metrics.payloadRead();
+        return super.getApplicationsFromMultipleRegions(remoteRegions);
+    }
+
+    /**
+     * Deprecated in eureka, but still what {@code ResponseCacheImpl} builds the delta payload from
+     */
+    @Deprecated
+    @Override
+    public Applications getApplicationDeltas() {
+        metrics.payloadRead();
+        return super.getApplicationDeltas();
+    }
+
+    @Override
+    public Applications getApplicationDeltasFromMultipleRegions(String[] remoteRegions) {
+        metrics.payloadRead();
+        return super.getApplicationDeltasFromMultipleRegions(remoteRegions);
+    }
+
+    @Override
+    public Application getApplication(String appName, boolean includeRemoteRegion) {
+        metrics.payloadRead();
+        return super.getApplication(appName, includeRemoteRegion);
+    }
+
+    /**
+     * Publishes the registry's copy of the instance, which carries the status the registry settled on
+     */
+    private void publish(RegistryChange.Type type, String appName, String id) {
+        feed.publish(type, getInstanceByAppAndId(appName, id, false));
+    }
+}
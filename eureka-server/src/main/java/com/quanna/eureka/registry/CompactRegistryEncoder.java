@@ -0,0 +1,92 @@
+package com.quanna.eureka.registry;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the registry as compact JSON, keeping only what a client needs to route to an instance:
+ * <pre>
+ * {"version":"1700000000000-42","apps":{"DEMO-CLIENT":[
+ *   {"id":"host:demo-client:8080","host":"host","ip":"10.0.0.5","port":8080,"status":"UP",
+ *    "updated":1700000000000,"metadata":{...}}]}}
+ * </pre>
+ * {@code updated} is the instance's last registration or status change, which tells a client laying the
+ * snapshot over its eureka fetch when the fetch has caught up. Lease, data center and URL fields are left out. {@code port} and {@code securePort} appear only when
+ * enabled, {@code vip} only when it differs from the app name, {@code metadata} only when not empty.
+ */
+public final class CompactRegistryEncoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private CompactRegistryEncoder() {
+    }
+
+    public static byte[] encode(Applications applications, String version) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        try (JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("version", version);
+            json.writeObjectFieldStart("apps");
+            for (Application application : applications.getRegisteredApplications()) {
+                json.writeArrayFieldStart(application.getName());
+                for (InstanceInfo instance : application.getInstancesAsIsFromEureka()) {
+                    writeInstance(json, instance);
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, bytes.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeInstance(JsonGenerator json, InstanceInfo instance) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", instance.getId());
+        json.writeStringField("host", instance.getHostName());
+        json.writeStringField("ip", instance.getIPAddr());
+        if (instance.isPortEnabled(InstanceInfo.PortType.UNSECURE)) {
+            json.writeNumberField("port", instance.getPort());
+        }
+        if (instance.isPortEnabled(InstanceInfo.PortType.SECURE)) {
+            json.writeNumberField("securePort", instance.getSecurePort());
+        }
+        json.writeStringField("status", instance.getStatus().name());
+        json.writeNumberField("updated", instance.getLastUpdatedTimestamp());
+        String vip = instance.getVIPAddress();
+        if (vip != null && !vip.equalsIgnoreCase(instance.getAppName())) {
+            json.writeStringField("vip", vip);
+        }
+        Map<String, String> metadata = instance.getMetadata();
+        if (metadata != null && !metadata.isEmpty()) {
+            json.writeObjectFieldStart("metadata");
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                json.writeStringField(entry.getKey(), entry.getValue());
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+}
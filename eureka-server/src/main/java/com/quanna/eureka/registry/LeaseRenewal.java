@@ -0,0 +1,8 @@
+package com.quanna.eureka.registry;
+
+/**
+ * One lease to renew in a batch. {@code lastDirtyTimestamp} is the client's, as on eureka's own
+ * heartbeat: when it is newer than the registry's copy the client is told to register again.
+ */
+public record LeaseRenewal(String app, String id, Long lastDirtyTimestamp) {
+}
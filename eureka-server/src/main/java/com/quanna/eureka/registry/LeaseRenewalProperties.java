@@ -0,0 +1,22 @@
+package com.quanna.eureka.registry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "lease-renewals")
+public class LeaseRenewalProperties {
+
+    /**
+     * Most leases one batch request may renew; larger batches are rejected with 400
+     */
+    private int maxBatchSize = 1000;
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+}
@@ -0,0 +1,10 @@
+package com.quanna.eureka.registry;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch renewal. Leases in {@code notFound} got what a single heartbeat would answer
+ * with 404, so their clients must register again.
+ */
+public record LeaseRenewalResult(int renewed, List<LeaseRenewal> notFound) {
+}
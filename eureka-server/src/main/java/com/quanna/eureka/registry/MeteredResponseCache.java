@@ -0,0 +1,54 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.eureka.registry.Key;
+import com.netflix.eureka.registry.ResponseCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response cache handed to eureka's resources, recording each read in {@link RegistryMetrics}.
+ */
+class MeteredResponseCache implements ResponseCache {
+
+    private final ResponseCache delegate;
+    private final RegistryMetrics metrics;
+
+    MeteredResponseCache(ResponseCache delegate, RegistryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    ResponseCache delegate() {
+        return delegate;
+    }
+
+    @Override
+    public String get(Key key) {
+        return metrics.fetch(key, () -> delegate.get(key));
+    }
+
+    @Override
+    public byte[] getGZIP(Key key) {
+        return metrics.fetch(key, () -> delegate.getGZIP(key));
+    }
+
+    @Override
+    public void invalidate(String appName, String vipAddress, String secureVipAddress) {
+        delegate.invalidate(appName, vipAddress, secureVipAddress);
+    }
+
+    @Override
+    public AtomicLong getVersionDelta() {
+        return delegate.getVersionDelta();
+    }
+
+    @Override
+    public AtomicLong getVersionDeltaWithRegions() {
+        return delegate.getVersionDeltaWithRegions();
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+}
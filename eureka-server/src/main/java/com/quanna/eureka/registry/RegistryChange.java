@@ -0,0 +1,23 @@
+package com.quanna.eureka.registry;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * One versioned registry change. {@code payload} is eureka's own JSON: the instance after the change,
+ * or for {@link Type#SNAPSHOT} the whole registry, so clients decode it with their eureka codec.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RegistryChange(long version, Type type, String app, String instanceId, String status,
+                             @JsonRawValue String payload) {
+
+    public enum Type {
+        REGISTERED,
+        CANCELLED,
+        STATUS_CHANGED,
+        /**
+         * The full registry at {@code version}; sent first when the client's position can't be resumed
+         */
+        SNAPSHOT
+    }
+}
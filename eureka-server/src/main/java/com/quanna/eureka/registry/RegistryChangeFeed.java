@@ -0,0 +1,163 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Versioned stream of registry changes, fed by {@link ChangeFeedInstanceRegistry}.
+ *
+ * The last {@code buffer-size} changes are replayed to every new subscriber and dropped below the
+ * version it resumes from, so a reconnecting client misses nothing as long as it was not away for
+ * longer than the buffer. Positions are {@code <epoch>-<version>}, the epoch being this server's
+ * start; a position from another epoch, or one that fell out of the buffer, starts with a snapshot.
+ * Should changes overflow the buffer while a stream subscribes, it ends before the gap, and the
+ * client's reconnect then gets the snapshot.
+ *
+ * Streams never end on their own, so they are closed when shutdown starts; otherwise graceful
+ * shutdown would wait for them until it times out.
+ */
+public class RegistryChangeFeed implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistryChangeFeed.class);
+
+    private final CodecWrapper codec;
+    private final int bufferSize;
+    private final long epoch = System.currentTimeMillis();
+    private final Sinks.Many<RegistryChange> sink;
+    private final Sinks.Empty<Void> closed = Sinks.empty();
+    private long version;
+    private volatile boolean running;
+
+    public RegistryChangeFeed(CodecWrapper codec, int bufferSize) {
+        this.codec = codec;
+        this.bufferSize = bufferSize;
+        this.sink = Sinks.many().replay().limit(bufferSize);
+    }
+
+    /**
+     * Called after the registry applied the change, with the instance as it is now
+     */
+    public void publish(RegistryChange.Type type, InstanceInfo instance) {
+        if (instance == null) {
+            return;
+        }
+        String payload = encode(instance);
+        if (payload == null) {
+            return;
+        }
+        synchronized (this) {
+            RegistryChange change = new RegistryChange(++version, type, instance.getAppName(), instance.getId(),
+                    instance.getStatus().name(), payload);
+            sink.tryEmitNext(change);
+        }
+    }
+
+    /**
+     * Changes after {@code lastEventId}, preceded by a snapshot of {@code registry} when that position
+     * can't be resumed. Delivered on their own thread, so a slow client never holds up the registry.
+     */
+    public Flux<RegistryChange> changes(String lastEventId, Supplier<Applications> registry) {
+        return Flux.defer(() -> {
+            RegistryChange snapshot = null;
+            long since;
+            synchronized (this) {
+                long resumed = resumedVersion(lastEventId);
+                if (resumed < 0 || resumed < version - bufferSize || resumed > version) {
+                    since = version;
+                    String payload = encode(registry.get());
+                    if (payload != null) {
+                        snapshot = new RegistryChange(version, RegistryChange.Type.SNAPSHOT, null, null, null, payload);
+                    }
+                } else {
+                    since = resumed;
+                }
+            }
+            AtomicLong next = new AtomicLong(since + 1);
+            Flux<RegistryChange> changes = sink.asFlux()
+                    .filter(change -> change.version() > since)
+                    .takeWhile(change -> change.version() == next.getAndIncrement());
+            return Flux.concat(Mono.justOrEmpty(snapshot), changes)
+                    .publishOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Completes when shutdown starts
+     */
+    public Mono<Void> closed() {
+        return closed.asMono();
+    }
+
+    public String eventId(RegistryChange change) {
+        return position(change.version());
+    }
+
+    /**
+     * Position of {@code version} in this server's feed, the form clients send back as Last-Event-ID
+     */
+    public String position(long version) {
+        return epoch + "-" + version;
+    }
+
+    /**
+     * Version of the last change published
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Runs in the default phase, before the web server's graceful shutdown
+     */
+    @Override
+    public void stop() {
+        running = false;
+        closed.tryEmitEmpty();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private long resumedVersion(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        int separator = lastEventId.indexOf('-');
+        try {
+            if (separator < 0 || Long.parseLong(lastEventId.substring(0, separator)) != epoch) {
+                return -1;
+            }
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String encode(Object value) {
+        try {
+            return codec.encode(value);
+        } catch (IOException e) {
+            logger.warn("Could not encode registry change: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.quanna.eureka.registry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "registry-changes")
+public class RegistryChangeProperties {
+
+    /**
+     * Changes kept for clients resuming with Last-Event-ID; older positions get a snapshot instead
+     */
+    private int bufferSize = 1024;
+
+    /**
+     * Interval of the comment lines keeping idle streams open through proxies
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+}
@@ -0,0 +1,208 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.eureka.registry.Key;
+import com.netflix.eureka.registry.ResponseCache;
+import com.netflix.eureka.registry.ResponseCacheImpl;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the registry, recorded by {@link ChangeFeedInstanceRegistry}:
+ * <ul>
+ *     <li>{@code eureka.registry.requests}: register, renew, cancel and status calls, by operation,
+ *     replication and outcome</li>
+ *     <li>{@code eureka.registry.fetches}: reads through the response cache, by type and whether the
+ *     payload was cached or had to be generated; {@code eureka.registry.fetches.hit.ratio} is the share
+ *     of cached ones since start</li>
+ *     <li>{@code eureka.registry.eviction.sweeps} and {@code eureka.registry.eviction.evicted}: duration
+ *     of each eviction run and the leases it evicted</li>
+ * </ul>
+ * A fetch is a miss when the response cache called back into the registry to build the payload on the
+ * fetching thread; the periodic read-only cache refresh runs on its own thread and isn't counted.
+ */
+public class RegistryMetrics {
+
+    public enum Operation {
+        REGISTER,
+        RENEW,
+        CANCEL,
+        STATUS_UPDATE,
+        DELETE_STATUS_OVERRIDE
+    }
+
+    enum FetchType {
+        FULL,
+        DELTA,
+        APP,
+        VIP,
+        SVIP
+    }
+
+    private static final int SUCCESS = 0;
+    private static final int NOT_FOUND = 1;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Operation, Timer[][]> requests = new EnumMap<>(Operation.class);
+    private final Map<FetchType, Timer[]> fetches = new EnumMap<>(FetchType.class);
+    private final Timer sweeps;
+    private final DistributionSummary evicted;
+    private final ThreadLocal<boolean[]> fetching = new ThreadLocal<>();
+    private final ThreadLocal<int[]> sweeping = new ThreadLocal<>();
+
+    public RegistryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Operation operation : Operation.values()) {
+            Timer[][] timers = new Timer[2][2];
+            for (int replication = 0; replication < 2; replication++) {
+                for (int outcome = 0; outcome < 2; outcome++) {
+                    timers[replication][outcome] = Timer.builder("eureka.registry.requests")
+                            .description("Registry writes and lease renewals handled by this server")
+                            .tag("operation", key(operation))
+                            .tag("replication", String.valueOf(replication == 1))
+                            .tag("outcome", outcome == SUCCESS ? "success" : "not_found")
+                            .register(meterRegistry);
+                }
+            }
+            requests.put(operation, timers);
+        }
+        for (FetchType type : FetchType.values()) {
+            fetches.put(type, new Timer[]{fetchTimer(type, "hit"), fetchTimer(type, "miss")});
+        }
+        Gauge.builder("eureka.registry.fetches.hit.ratio", this, RegistryMetrics::hitRatio)
+                .description("Share of registry fetches answered from the response cache since start")
+                .register(meterRegistry);
+
+        this.sweeps = Timer.builder("eureka.registry.eviction.sweeps")
+                .description("Duration of each run of the eviction task")
+                .register(meterRegistry);
+        this.evicted = DistributionSummary.builder("eureka.registry.eviction.evicted")
+                .description("Expired leases evicted by each run of the eviction task")
+                .baseUnit("leases")
+                .register(meterRegistry);
+    }
+
+    public void record(Operation operation, boolean replication, Runnable call) {
+        record(operation, replication, () -> {
+            call.run();
+            return true;
+        });
+    }
+
+    /**
+     * Runs {@code call}, recording it as not found when it returns false
+     */
+    public boolean record(Operation operation, boolean replication, BooleanSupplier call) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = call.getAsBoolean();
+            return success;
+        } finally {
+            requests.get(operation)[replication ? 1 : 0][success ? SUCCESS : NOT_FOUND]
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs one eviction, counting the leases cancelled on this thread while it runs
+     */
+    public void sweep(Runnable eviction) {
+        int[] count = new int[1];
+        sweeping.set(count);
+        long start = System.nanoTime();
+        try {
+            eviction.run();
+        } finally {
+            sweeping.remove();
+            sweeps.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            evicted.record(count[0]);
+        }
+    }
+
+    /**
+     * Called for every cancelled lease; counts it when an eviction runs on this thread
+     */
+    void cancelled() {
+        int[] count = sweeping.get();
+        if (count != null) {
+            count[0]++;
+        }
+    }
+
+    /**
+     * Called when the registry is read for a response payload; marks the fetch on this thread as a miss
+     */
+    void payloadRead() {
+        boolean[] miss = fetching.get();
+        if (miss != null) {
+            miss[0] = true;
+        }
+    }
+
+    /**
+     * The response cache as the resources see it, recording every read
+     */
+    MeteredResponseCache metered(ResponseCache responseCache) {
+        if (responseCache instanceof ResponseCacheImpl cache) {
+            Gauge.builder("eureka.registry.response.cache.size", cache, ResponseCacheImpl::getCurrentSize)
+                    .description("Payloads held by the response cache")
+                    .register(meterRegistry);
+        }
+        return new MeteredResponseCache(responseCache, this);
+    }
+
+    <T> T fetch(Key key, Supplier<T> read) {
+        boolean[] miss = new boolean[1];
+        fetching.set(miss);
+        long start = System.nanoTime();
+        try {
+            return read.get();
+        } finally {
+            fetching.remove();
+            fetches.get(fetchType(key))[miss[0] ? 1 : 0].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer fetchTimer(FetchType type, String cache) {
+        return Timer.builder("eureka.registry.fetches")
+                .description("Registry reads served through the response cache")
+                .tag("type", key(type))
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    private double hitRatio() {
+        long hits = 0;
+        long total = 0;
+        for (Timer[] timers : fetches.values()) {
+            hits += timers[0].count();
+            total += timers[0].count() + timers[1].count();
+        }
+        return total == 0 ? Double.NaN : (double) hits / total;
+    }
+
+    private static FetchType fetchType(Key key) {
+        return switch (key.getEntityType()) {
+            case VIP -> FetchType.VIP;
+            case SVIP -> FetchType.SVIP;
+            case Application -> switch (key.getName()) {
+                case ResponseCacheImpl.ALL_APPS -> FetchType.FULL;
+                case ResponseCacheImpl.ALL_APPS_DELTA -> FetchType.DELTA;
+                default -> FetchType.APP;
+            };
+        };
+    }
+
+    private static String key(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,11 @@
+package com.quanna.eureka.registry;
+
+/**
+ * The registry at one feed version, encoded once by {@link CompactRegistryEncoder} and shared by every
+ * request until the next change. The arrays are never modified after construction.
+ *
+ * {@code position} is the feed position it reflects, so a client can load the snapshot and then
+ * follow /api/registry/changes from there with Last-Event-ID.
+ */
+public record RegistrySnapshot(long version, String position, byte[] json, byte[] gzip) {
+}
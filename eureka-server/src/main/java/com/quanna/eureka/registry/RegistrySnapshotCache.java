@@ -0,0 +1,55 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps the current {@link RegistrySnapshot}, rebuilt only when the {@link RegistryChangeFeed} version
+ * moved. Renewals don't publish changes, so they never cause a rebuild.
+ *
+ * The version is read before the registry: the registry applies a change before publishing it, so a
+ * snapshot holds at least everything up to its version, and a newer change only makes the next
+ * request rebuild it.
+ */
+public class RegistrySnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistrySnapshotCache.class);
+
+    private final Supplier<Applications> registry;
+    private final RegistryChangeFeed feed;
+    private volatile RegistrySnapshot current;
+
+    public RegistrySnapshotCache(Supplier<Applications> registry, RegistryChangeFeed feed) {
+        this.registry = registry;
+        this.feed = feed;
+    }
+
+    public RegistrySnapshot current() {
+        RegistrySnapshot snapshot = current;
+        if (snapshot != null && snapshot.version() == feed.version()) {
+            return snapshot;
+        }
+        synchronized (this) {
+            long version = feed.version();
+            snapshot = current;
+            if (snapshot == null || snapshot.version() != version) {
+                snapshot = build(version);
+                current = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    private RegistrySnapshot build(long version) {
+        long start = System.nanoTime();
+        String position = feed.position(version);
+        byte[] json = CompactRegistryEncoder.encode(registry.get(), position);
+        byte[] gzip = CompactRegistryEncoder.gzip(json);
+        logger.debug("Built registry snapshot {}: {} bytes, {} gzipped, in {} us", position, json.length,
+                gzip.length, (System.nanoTime() - start) / 1000);
+        return new RegistrySnapshot(version, position, json, gzip);
+    }
+}
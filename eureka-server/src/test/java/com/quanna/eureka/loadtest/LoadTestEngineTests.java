@@ -0,0 +1,130 @@
+package com.quanna.eureka.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class LoadTestEngineTests {
+
+    private final AtomicReference<ExchangeFunction> upstream = new AtomicReference<>(request -> instance("demo-client:1"));
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LoadTestProperties properties = new LoadTestProperties();
+    private final LoadTestEngine engine;
+
+    LoadTestEngineTests() {
+        properties.setMaxRunning(1);
+        properties.setProgressInterval(Duration.ofMillis(20));
+        ExchangeFunction exchange = request -> {
+            calls.incrementAndGet();
+            return upstream.get().exchange(request);
+        };
+        engine = new LoadTestEngine(WebClient.builder().exchangeFunction(exchange), new RestTemplate(),
+                new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.destroy();
+    }
+
+    @Test
+    void countRunSendsRequestedCalls() {
+        LoadTestResult result = engine.run("demo-client", request(20, 4)).block();
+
+        assertThat(calls).hasValue(20);
+        assertThat(result.requests()).isEqualTo(20);
+        assertThat(result.successes()).isEqualTo(20);
+        assertThat(result.warmupRequests()).isZero();
+        assertThat(result.instanceDistribution()).containsEntry("demo-client:1", 20L);
+    }
+
+    @Test
+    void durationRunStopsAfterDuration() {
+        LoadTestRequest request = request(null, 2);
+        request.setDuration(Duration.ofMillis(100));
+
+        LoadTestResult result = engine.run("demo-client", request).block(Duration.ofSeconds(5));
+
+        assertThat(result.requests()).isPositive().isEqualTo(calls.get());
+        assertThat(result.executionTimeMs()).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void failedCallsAreCountedByKind() {
+        upstream.set(request -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()));
+
+        LoadTestResult result = engine.run("demo-client", request(5, 1)).block();
+
+        assertThat(result.requests()).isEqualTo(5);
+        assertThat(result.successes()).isZero();
+        assertThat(result.errors()).containsOnly(entry("http_5xx", 5L));
+    }
+
+    @Test
+    void runningTestHoldsItsSlot() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        upstream.set(request -> {
+            started.countDown();
+            return Mono.never();
+        });
+        Disposable first = engine.stream("demo-client", request(10, 1)).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> engine.run("demo-client", request(1, 1)).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        first.dispose();
+    }
+
+    @Test
+    void cancelledStreamReleasesItsSlot() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        upstream.set(request -> {
+            started.countDown();
+            return Mono.never();
+        });
+        Disposable stream = engine.stream("demo-client", request(10, 4)).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // e.g. the SSE client went away
+        stream.dispose();
+        upstream.set(request -> instance("demo-client:2"));
+
+        LoadTestResult result = engine.run("demo-client", request(3, 1)).block(Duration.ofSeconds(5));
+        assertThat(result.successes()).isEqualTo(3);
+    }
+
+    private static LoadTestRequest request(Integer requests, int concurrency) {
+        LoadTestRequest request = new LoadTestRequest();
+        request.setRequests(requests);
+        request.setConcurrency(concurrency);
+        return request;
+    }
+
+    private static Mono<ClientResponse> instance(String instanceId) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"instanceId\":\"" + instanceId + "\"}")
+                .build());
+    }
+}
@@ -0,0 +1,113 @@
+package com.quanna.eureka.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.springframework.http.HttpStatus.BAD_GATEWAY;
+
+class LoadTestRunTests {
+
+    @Test
+    void countRunHandsOutRequestedCallsOnly() {
+        LoadTestRun run = new LoadTestRun("demo-client", request(3, null, Duration.ZERO));
+        long now = System.nanoTime();
+
+        assertThat(run.claim(now)).isTrue();
+        assertThat(run.claim(now)).isTrue();
+        assertThat(run.claim(now)).isTrue();
+        assertThat(run.claim(now)).isFalse();
+        assertThat(run.claim(now)).isFalse();
+    }
+
+    @Test
+    void durationRunHandsOutCallsUntilItEnds() {
+        LoadTestRun run = new LoadTestRun("demo-client", request(null, Duration.ofSeconds(10), Duration.ZERO));
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(run.claim(now)).isTrue();
+        }
+        assertThat(run.claim(now + TimeUnit.SECONDS.toNanos(11))).isFalse();
+    }
+
+    @Test
+    void warmupCallsDoNotUseUpTheRequestCount() {
+        LoadTestRun run = new LoadTestRun("demo-client", request(1, null, Duration.ofMinutes(1)));
+        long now = System.nanoTime();
+        long measuring = now + TimeUnit.MINUTES.toNanos(2);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(run.claim(now)).isTrue();
+        }
+        assertThat(run.claim(measuring)).isTrue();
+        assertThat(run.claim(measuring)).isFalse();
+    }
+
+    @Test
+    void warmupCallsAreLeftOutOfTheResult() throws InterruptedException {
+        LoadTestRun run = new LoadTestRun("demo-client", request(10, null, Duration.ofMillis(50)));
+        long warmupStart = System.nanoTime();
+        run.recordSuccess(warmupStart, "demo-client:1");
+        run.recordError(warmupStart, new TimeoutException());
+
+        Thread.sleep(60);
+        long measuredStart = System.nanoTime();
+        run.recordSuccess(measuredStart, "demo-client:2");
+        run.finish();
+
+        LoadTestResult result = run.result();
+        assertThat(result.warmupRequests()).isEqualTo(2);
+        assertThat(result.requests()).isEqualTo(1);
+        assertThat(result.successes()).isEqualTo(1);
+        assertThat(result.errors()).isEmpty();
+        assertThat(result.latency().count()).isEqualTo(1);
+        assertThat(result.instanceDistribution()).containsOnlyKeys("demo-client:2");
+    }
+
+    @Test
+    void errorsAreClassifiedForBothClients() {
+        LoadTestRun run = new LoadTestRun("demo-client", request(100, null, Duration.ZERO));
+        long start = System.nanoTime();
+        URI uri = URI.create("http://demo-client/instance-info");
+
+        run.recordError(start, new TimeoutException());
+        run.recordError(start, new ResourceAccessException("read timed out", new SocketTimeoutException()));
+        run.recordError(start, new WebClientRequestException(new ConnectException(), HttpMethod.GET, uri,
+                new HttpHeaders()));
+        run.recordError(start, WebClientResponseException.create(404, "Not Found", null, null, null));
+        run.recordError(start, WebClientResponseException.create(503, "Service Unavailable", null, null, null));
+        run.recordError(start, new HttpServerErrorException(BAD_GATEWAY));
+        run.recordError(start, new IllegalStateException("No instances available"));
+        run.recordSuccess(start, "demo-client:1");
+        run.finish();
+
+        LoadTestResult result = run.result();
+        assertThat(result.requests()).isEqualTo(8);
+        assertThat(result.successes()).isEqualTo(1);
+        assertThat(result.errors()).containsExactly(
+                entry("timeout", 2L), entry("connection", 1L), entry("http_4xx", 1L),
+                entry("http_5xx", 2L), entry("other", 1L));
+    }
+
+    static LoadTestRequest request(Integer requests, Duration duration, Duration warmup) {
+        LoadTestRequest request = new LoadTestRequest();
+        request.setRequests(requests);
+        request.setDuration(duration);
+        request.setWarmup(warmup);
+        return request;
+    }
+}
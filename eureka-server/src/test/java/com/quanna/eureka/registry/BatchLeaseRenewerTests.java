@@ -0,0 +1,97 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchLeaseRenewerTests {
+
+    private static final String APP = "DEMO-CLIENT";
+    private static final String ID = "demo-client:9001";
+    private static final long REGISTRY_DIRTY = 1_000;
+
+    private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+    private final EurekaServerConfig serverConfig = mock(EurekaServerConfig.class);
+    private final BatchLeaseRenewer renewer = new BatchLeaseRenewer(registry, serverConfig);
+
+    @BeforeEach
+    void setUp() {
+        when(serverConfig.shouldSyncWhenTimestampDiffers()).thenReturn(true);
+        when(registry.renew(APP, ID, false)).thenReturn(true);
+        when(registry.getInstanceByAppAndId(APP, ID, false)).thenReturn(InstanceInfo.Builder.newBuilder()
+                .setAppName(APP)
+                .setInstanceId(ID)
+                .setHostName("localhost")
+                .setLastDirtyTimestamp(REGISTRY_DIRTY)
+                .build());
+    }
+
+    @Test
+    void sameOrOlderDirtyTimestampIsRenewed() {
+        LeaseRenewalResult result = renewer.renew(List.of(
+                new LeaseRenewal(APP, ID, REGISTRY_DIRTY),
+                new LeaseRenewal(APP, ID, REGISTRY_DIRTY - 1),
+                new LeaseRenewal(APP, ID, null)));
+
+        assertThat(result.renewed()).isEqualTo(3);
+        assertThat(result.notFound()).isEmpty();
+    }
+
+    @Test
+    void newerDirtyTimestampMustRegisterAgain() {
+        LeaseRenewal newer = new LeaseRenewal(APP, ID, REGISTRY_DIRTY + 1);
+
+        LeaseRenewalResult result = renewer.renew(List.of(newer, new LeaseRenewal(APP, ID, REGISTRY_DIRTY)));
+
+        assertThat(result.renewed()).isEqualTo(1);
+        assertThat(result.notFound()).containsExactly(newer);
+        // The lease itself was still renewed, as eureka's heartbeat does before comparing
+        verify(registry, times(2)).renew(APP, ID, false);
+    }
+
+    @Test
+    void newerDirtyTimestampIsIgnoredWhenSyncIsOff() {
+        when(serverConfig.shouldSyncWhenTimestampDiffers()).thenReturn(false);
+
+        LeaseRenewalResult result = renewer.renew(List.of(new LeaseRenewal(APP, ID, REGISTRY_DIRTY + 1)));
+
+        assertThat(result.renewed()).isEqualTo(1);
+        verify(registry, never()).getInstanceByAppAndId(anyString(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void instanceGoneAfterRenewalCountsAsRenewed() {
+        when(registry.getInstanceByAppAndId(APP, ID, false)).thenReturn(null);
+
+        assertThat(renewer.renew(List.of(new LeaseRenewal(APP, ID, REGISTRY_DIRTY + 1))).renewed()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownOrIncompleteLeasesAreNotFound() {
+        LeaseRenewal unknown = new LeaseRenewal(APP, "demo-client:9002", REGISTRY_DIRTY);
+        LeaseRenewal withoutId = new LeaseRenewal(APP, null, null);
+
+        LeaseRenewalResult result = renewer.renew(List.of(unknown, withoutId));
+
+        assertThat(result.renewed()).isZero();
+        assertThat(result.notFound()).containsExactly(unknown, withoutId);
+    }
+
+    @Test
+    void appNameIsMatchedUpperCase() {
+        assertThat(renewer.renew(List.of(new LeaseRenewal("demo-client", ID, REGISTRY_DIRTY))).renewed()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,127 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.netflix.eureka.server.CloudJacksonJson;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegistryChangeFeedTests {
+
+    private static final int BUFFER_SIZE = 4;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final RegistryChangeFeed feed = new RegistryChangeFeed(new CloudJacksonJson(), BUFFER_SIZE);
+    private final Supplier<Applications> registry = Applications::new;
+
+    @Test
+    void newStreamStartsWithSnapshotAtCurrentVersion() {
+        publish(2);
+
+        List<RegistryChange> changes = take(null, 2);
+
+        assertThat(changes.get(0).type()).isEqualTo(RegistryChange.Type.SNAPSHOT);
+        assertThat(changes.get(0).version()).isEqualTo(2);
+        assertThat(changes.get(1).version()).isEqualTo(3);
+    }
+
+    @Test
+    void currentPositionResumesWithoutSnapshot() {
+        publish(3);
+        String position = feed.position(feed.version());
+
+        List<RegistryChange> changes = take(position, 1);
+
+        assertThat(changes).extracting(RegistryChange::version).containsExactly(4L);
+        assertThat(changes.get(0).type()).isEqualTo(RegistryChange.Type.REGISTERED);
+    }
+
+    @Test
+    void oldestBufferedPositionReplaysEverythingAfterIt() {
+        publish(BUFFER_SIZE + 3);
+        long oldest = feed.version() - BUFFER_SIZE;
+
+        List<RegistryChange> changes = feed.changes(feed.position(oldest), registry)
+                .take(BUFFER_SIZE)
+                .collectList()
+                .block(TIMEOUT);
+
+        assertThat(changes).extracting(RegistryChange::version)
+                .containsExactly(oldest + 1, oldest + 2, oldest + 3, oldest + 4);
+    }
+
+    @Test
+    void positionBeforeBufferStartsWithSnapshot() {
+        publish(BUFFER_SIZE + 3);
+        long version = feed.version();
+
+        List<RegistryChange> changes = take(feed.position(version - BUFFER_SIZE - 1), 2);
+
+        assertThat(changes.get(0).type()).isEqualTo(RegistryChange.Type.SNAPSHOT);
+        assertThat(changes.get(0).version()).isEqualTo(version);
+        assertThat(changes.get(1).version()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void positionAheadOfFeedStartsWithSnapshot() {
+        publish(2);
+
+        assertThat(take(feed.position(3), 1).get(0).type()).isEqualTo(RegistryChange.Type.SNAPSHOT);
+    }
+
+    @Test
+    void positionOfOtherEpochOrMalformedStartsWithSnapshot() {
+        publish(2);
+
+        for (String position : List.of("1-1", "1", "x-1", feed.position(1).replace("-", "-x"))) {
+            assertThat(take(position, 1).get(0).type()).as(position).isEqualTo(RegistryChange.Type.SNAPSHOT);
+        }
+    }
+
+    @Test
+    void streamEndsWhenBufferOverflowsWhileSubscribing() {
+        publish(1);
+        // Changes land between the snapshot and the subscription, pushing out the first of them
+        Supplier<Applications> busyRegistry = () -> {
+            for (int i = 0; i <= BUFFER_SIZE; i++) {
+                feed.publish(RegistryChange.Type.REGISTERED, instance(100 + i));
+            }
+            return new Applications();
+        };
+
+        List<RegistryChange> changes = feed.changes(null, busyRegistry).collectList().block(TIMEOUT);
+
+        assertThat(changes).extracting(RegistryChange::type).containsExactly(RegistryChange.Type.SNAPSHOT);
+    }
+
+    /**
+     * Takes {@code count} changes, publishing one more once subscribed
+     */
+    private List<RegistryChange> take(String lastEventId, int count) {
+        return feed.changes(lastEventId, registry)
+                .doOnSubscribe(subscription -> publish(1))
+                .take(count)
+                .collectList()
+                .block(TIMEOUT);
+    }
+
+    private void publish(int count) {
+        for (int i = 0; i < count; i++) {
+            feed.publish(RegistryChange.Type.REGISTERED, instance(i));
+        }
+    }
+
+    private static InstanceInfo instance(int i) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName("DEMO-CLIENT")
+                .setInstanceId("demo-client:" + (9000 + i))
+                .setHostName("localhost")
+                .setPort(9000 + i)
+                .build();
+    }
+}
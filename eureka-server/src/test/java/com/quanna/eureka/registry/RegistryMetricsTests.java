@@ -0,0 +1,111 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.eureka.Version;
+import com.netflix.eureka.registry.Key;
+import com.netflix.eureka.registry.ResponseCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RegistryMetricsTests {
+
+    private static final Key FULL = key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS);
+    private static final Key DELTA = key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RegistryMetrics metrics = new RegistryMetrics(meterRegistry);
+
+    @Test
+    void fetchIsMissOnlyWhenPayloadIsBuiltOnFetchingThread() {
+        metrics.fetch(FULL, () -> "cached");
+        metrics.fetch(FULL, () -> {
+            metrics.payloadRead();
+            return "built";
+        });
+        // The read-only cache refresh builds payloads on its own thread
+        metrics.fetch(FULL, () -> CompletableFuture.runAsync(metrics::payloadRead).join());
+
+        assertThat(fetches("full", "hit")).isEqualTo(2);
+        assertThat(fetches("full", "miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("eureka.registry.fetches.hit.ratio").gauge().value()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    void payloadReadOutsideFetchDoesNotLeakIntoNextFetch() {
+        metrics.payloadRead();
+        metrics.fetch(DELTA, () -> "cached");
+        assertThatThrownBy(() -> metrics.fetch(DELTA, () -> {
+            metrics.payloadRead();
+            throw new IllegalStateException("encoding failed");
+        })).isInstanceOf(IllegalStateException.class);
+        metrics.fetch(DELTA, () -> "cached");
+
+        assertThat(fetches("delta", "hit")).isEqualTo(2);
+        assertThat(fetches("delta", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void fetchesAreTypedByKey() {
+        metrics.fetch(key(Key.EntityType.Application, "DEMO-CLIENT"), () -> "");
+        metrics.fetch(key(Key.EntityType.VIP, "demo-client"), () -> "");
+        metrics.fetch(key(Key.EntityType.SVIP, "demo-client"), () -> "");
+
+        assertThat(fetches("app", "hit")).isEqualTo(1);
+        assertThat(fetches("vip", "hit")).isEqualTo(1);
+        assertThat(fetches("svip", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void onlyCancellationsOnSweepThreadCountAsEvicted() {
+        metrics.cancelled();
+        metrics.sweep(() -> {
+            metrics.cancelled();
+            metrics.cancelled();
+            // A client cancelling its own lease meanwhile
+            CompletableFuture.runAsync(metrics::cancelled).join();
+        });
+        metrics.cancelled();
+
+        assertThat(meterRegistry.get("eureka.registry.eviction.sweeps").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("eureka.registry.eviction.evicted").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void requestsAreTaggedByReplicationAndOutcome() {
+        metrics.record(RegistryMetrics.Operation.RENEW, false, () -> true);
+        metrics.record(RegistryMetrics.Operation.RENEW, true, () -> false);
+        metrics.record(RegistryMetrics.Operation.REGISTER, true, () -> {
+        });
+        assertThatThrownBy(() -> metrics.record(RegistryMetrics.Operation.CANCEL, false, () -> {
+            throw new IllegalStateException("replication failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(requests("renew", false, "success")).isEqualTo(1);
+        assertThat(requests("renew", true, "not_found")).isEqualTo(1);
+        assertThat(requests("renew", true, "success")).isZero();
+        assertThat(requests("register", true, "success")).isEqualTo(1);
+        assertThat(requests("cancel", false, "not_found")).isEqualTo(1);
+    }
+
+    private long fetches(String type, String cache) {
+        return meterRegistry.get("eureka.registry.fetches").tag("type", type).tag("cache", cache).timer().count();
+    }
+
+    private long requests(String operation, boolean replication, String outcome) {
+        return meterRegistry.get("eureka.registry.requests")
+                .tag("operation", operation)
+                .tag("replication", String.valueOf(replication))
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    private static Key key(Key.EntityType type, String name) {
+        return new Key(type, name, Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+    }
+}
@@ -0,0 +1,142 @@
+package com.quanna.eureka.registry;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.netflix.eureka.server.CloudJacksonJson;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full registry encoding: eureka's JSON response, as its response cache builds it on a miss (full JSON
+ * codec, then gzip), against the compact snapshot, and against serving the cached snapshot.
+ *
+ * Instances are spread over apps of 10, with the metadata Spring Cloud clients register. Payload
+ * sizes are printed once per trial.
+ *
+ * Run with:
+ * <pre>
+ * ./mvnw -pl eureka-server -Pbenchmark test-compile exec:exec "-Dbenchmark=RegistrySnapshotBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrySnapshotBenchmark {
+
+    private static final int INSTANCES_PER_APP = 10;
+
+    @Param({"100", "1000", "10000"})
+    private int instances;
+
+    private Applications applications;
+    private CloudJacksonJson eurekaCodec;
+    private RegistrySnapshotCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applications = new Applications();
+        for (int i = 0; i < instances; i++) {
+            String appName = "SERVICE-" + (i / INSTANCES_PER_APP);
+            Application application = applications.getRegisteredApplications(appName);
+            if (application == null) {
+                application = new Application(appName);
+                applications.addApplication(application);
+            }
+            application.addInstance(instance(appName, i));
+        }
+        applications.setAppsHashCode(applications.getReconcileHashCode());
+        eurekaCodec = new CloudJacksonJson();
+
+        RegistryChangeFeed feed = new RegistryChangeFeed(eurekaCodec, 1);
+        cache = new RegistrySnapshotCache(() -> applications, feed);
+        RegistrySnapshot snapshot = cache.current();
+
+        byte[] eurekaJson = eurekaJson();
+        System.out.printf("%n%d instances: eureka json %d B, gzip %d B; compact json %d B, gzip %d B%n",
+                instances, eurekaJson.length, CompactRegistryEncoder.gzip(eurekaJson).length,
+                snapshot.json().length, snapshot.gzip().length);
+    }
+
+    @Benchmark
+    public byte[] eurekaJson() {
+        return eurekaCodec.encode(applications).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] eurekaJsonGzip() {
+        return CompactRegistryEncoder.gzip(eurekaJson());
+    }
+
+    @Benchmark
+    public byte[] compactJson() {
+        return CompactRegistryEncoder.encode(applications, "0-0");
+    }
+
+    @Benchmark
+    public byte[] compactJsonGzip() {
+        return CompactRegistryEncoder.gzip(compactJson());
+    }
+
+    @Benchmark
+    public byte[] cachedSnapshot() {
+        return cache.current().gzip();
+    }
+
+    private static InstanceInfo instance(String appName, int i) {
+        String host = "host-" + i;
+        int port = 8080 + (i % 100);
+        return InstanceInfo.Builder.newBuilder()
+                .setInstanceId(host + ":" + appName.toLowerCase() + ":" + port)
+                .setAppName(appName)
+                .setHostName(host)
+                .setIPAddr("10.0." + (i / 250) + "." + (i % 250))
+                .setPort(port)
+                .setSecurePort(443)
+                .enablePort(InstanceInfo.PortType.SECURE, false)
+                .setVIPAddress(appName.toLowerCase())
+                .setSecureVIPAddress(appName.toLowerCase())
+                .setHomePageUrl("/", null)
+                .setStatusPageUrl("/actuator/info", null)
+                .setHealthCheckUrls("/actuator/health", null, null)
+                .setStatus(InstanceInfo.InstanceStatus.UP)
+                .setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder()
+                        .setRenewalIntervalInSecs(30)
+                        .setDurationInSecs(90)
+                        .setRegistrationTimestamp(System.currentTimeMillis())
+                        .build())
+                .setMetadata(Map.of("management.port", String.valueOf(port), "zone", "zone-" + (i % 3)))
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RegistrySnapshotBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}